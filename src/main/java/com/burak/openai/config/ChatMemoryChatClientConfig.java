@@ -4,7 +4,10 @@ package com.burak.openai.config;
 
 
 import com.burak.openai.advisor.TokenUsageAuditAdvisor;
+import com.burak.openai.rag.HybridDocumentRetriever;
+import com.burak.openai.rag.LexicalIndex;
 import com.burak.openai.rag.PIIMaskingDocumentPostProcessor;
+import com.burak.openai.rag.SeedCorpusLoader;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -15,7 +18,6 @@ import org.springframework.ai.chat.memory.repository.jdbc.JdbcChatMemoryReposito
 import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.preretrieval.query.transformation.TranslationQueryTransformer;
-import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -57,13 +59,16 @@ public class ChatMemoryChatClientConfig {
 	
 	@Bean
 	RetrievalAugmentationAdvisor retrievalAugmentationAdvisor(VectorStore vectorStore,
+	                                                          LexicalIndex lexicalIndex,
+	                                                          SeedCorpusLoader seedCorpusLoader,
 	                                                          ChatClient.Builder chatClientBuilder) {
 		return RetrievalAugmentationAdvisor.builder()
 			.queryTransformers(TranslationQueryTransformer.builder()
 				.chatClientBuilder(chatClientBuilder.clone())
 				.targetLanguage("english").build())
-			.documentRetriever(VectorStoreDocumentRetriever.builder().vectorStore(vectorStore)
-				.topK(10).similarityThreshold(0.5).build())   //3ten 10 yaptık
+			.documentRetriever(HybridDocumentRetriever.builder().vectorStore(vectorStore)
+				.topK(10).similarityThreshold(0.5).filterExpression(seedCorpusLoader.sharedCorpusFilter())
+				.lexicalIndex(lexicalIndex).build())   //3ten 10 yaptık
 			.documentPostProcessors(PIIMaskingDocumentPostProcessor.builder())
 			.build();
 	}
@@ -0,0 +1,79 @@
+package com.burak.openai.config;
+
+import com.burak.openai.rag.ChunkPointStore;
+import com.burak.openai.rag.EmbeddedPointStore;
+import com.burak.openai.rag.EmbeddedVectorStore;
+import com.burak.openai.service.ChunkTextStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.file.Path;
+
+/**
+ * In-process vector store in place of Qdrant, with {@code document.vector-store.type=embedded}.
+ * Qdrant is then never contacted: {@code spring.ai.vectorstore.type} follows the same property,
+ * so Spring AI's Qdrant auto-configuration, its client included, is not loaded. The store is
+ * snapshotted on a schedule and on shutdown.
+ */
+@Configuration
+@ConditionalOnProperty(name = "document.vector-store.type", havingValue = "embedded")
+@Slf4j
+public class EmbeddedVectorStoreConfig {
+	
+	private final ObjectProvider<EmbeddedVectorStore> embeddedVectorStore;
+	
+	public EmbeddedVectorStoreConfig(ObjectProvider<EmbeddedVectorStore> embeddedVectorStore) {
+		this.embeddedVectorStore = embeddedVectorStore;
+	}
+	
+	@Bean
+	@Primary
+	public EmbeddedVectorStore embeddedVectorStore(EmbeddingModel embeddingModel,
+	                                               ChunkTextStore chunkTextStore,
+	                                               MeterRegistry meterRegistry,
+	                                               @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String modelId,
+	                                               @Value("${document.retrieval.query-embedding-cache.enabled:true}") boolean queryCacheEnabled,
+	                                               @Value("${document.retrieval.query-embedding-cache.max-entries:1000}") int queryCacheMaxEntries,
+	                                               @Value("${document.vector-store.embedded.directory:./data/vector-store}") Path directory,
+	                                               @Value("${document.vector-store.embedded.dimensions:1536}") int dimensions,
+	                                               @Value("${document.vector-store.embedded.quantize:true}") boolean quantize,
+	                                               @Value("${document.vector-store.embedded.m:16}") int m,
+	                                               @Value("${document.vector-store.embedded.ef-construction:200}") int efConstruction,
+	                                               @Value("${document.vector-store.embedded.ef-search:64}") int efSearch,
+	                                               @Value("${document.vector-store.embedded.exact-search-threshold:2000}") int exactSearchThreshold) {
+		return EmbeddedVectorStore.builder()
+			.embeddingModel(VectorStoreConfig.queryEmbeddingModel(embeddingModel, modelId, queryCacheEnabled,
+				queryCacheMaxEntries, meterRegistry))
+			.chunkTextStore(chunkTextStore)
+			.directory(directory)
+			.dimensions(dimensions)
+			.quantize(quantize)
+			.m(m)
+			.efConstruction(efConstruction)
+			.efSearch(efSearch)
+			.exactSearchThreshold(exactSearchThreshold)
+			.build();
+	}
+	
+	@Bean
+	public ChunkPointStore embeddedPointStore(EmbeddedVectorStore embeddedVectorStore) {
+		return new EmbeddedPointStore(embeddedVectorStore);
+	}
+	
+	@Scheduled(initialDelayString = "${document.vector-store.embedded.snapshot-interval:PT5M}", fixedDelayString = "${document.vector-store.embedded.snapshot-interval:PT5M}")
+	public void snapshot() {
+		try {
+			embeddedVectorStore.getObject().snapshot();
+		} catch (RuntimeException e) {
+			log.error("Could not snapshot the embedded vector store", e);
+		}
+	}
+}
\ No newline at end of file
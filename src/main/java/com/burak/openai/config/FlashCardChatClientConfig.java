@@ -2,8 +2,12 @@
 package com.burak.openai.config;
 
 import com.burak.openai.advisor.TokenUsageAuditAdvisor;
+import com.burak.openai.rag.DocumentTombstoneRegistry;
+import com.burak.openai.rag.LexicalIndex;
 import com.burak.openai.rag.PIIMaskingDocumentPostProcessor;
+import com.burak.openai.rag.RetrievalResultCache;
 import com.burak.openai.rag.UserDocumentRetriever;
+import com.burak.openai.service.ChunkTextStore;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -28,7 +32,11 @@ public class FlashCardChatClientConfig {
 	@Bean("flashCardChatClient")
 	public ChatClient flashCardChatClient(ChatClient.Builder chatClientBuilder,
 	                                      ChatMemory chatMemory,
-	                                      VectorStore vectorStore) {
+	                                      VectorStore vectorStore,
+	                                      DocumentTombstoneRegistry tombstoneRegistry,
+	                                      RetrievalResultCache retrievalResultCache,
+	                                      LexicalIndex lexicalIndex,
+	                                      ChunkTextStore chunkTextStore) {
 
 
 		
@@ -36,8 +44,12 @@ public class FlashCardChatClientConfig {
 		var flashCardRAGAdvisor = RetrievalAugmentationAdvisor.builder()
 			.documentRetriever(UserDocumentRetriever.builder()
 				.vectorStore(vectorStore)
-				.topK(15)  // More documents for flashcard generation
+				.topK(8)  // Hybrid retrieval ranks the relevant chunks first, 8 are enough
 				.similarityThreshold(0.5)  // Lower threshold for more content
+				.tombstoneRegistry(tombstoneRegistry)
+				.resultCache(retrievalResultCache)
+				.lexicalIndex(lexicalIndex)
+				.chunkTextStore(chunkTextStore)
 				.build())
 			.documentPostProcessors(PIIMaskingDocumentPostProcessor.builder())
 			.build();
@@ -1,8 +1,12 @@
 package com.burak.openai.config;
 
 import com.burak.openai.advisor.TokenUsageAuditAdvisor;
+import com.burak.openai.rag.DocumentTombstoneRegistry;
+import com.burak.openai.rag.LexicalIndex;
 import com.burak.openai.rag.PIIMaskingDocumentPostProcessor;
+import com.burak.openai.rag.RetrievalResultCache;
 import com.burak.openai.rag.UserDocumentRetriever;
+import com.burak.openai.service.ChunkTextStore;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
@@ -27,6 +31,18 @@ public class QuizChatClientConfig {
 	@Autowired
 	private VectorStore vectorStore;
 	
+	@Autowired
+	private DocumentTombstoneRegistry tombstoneRegistry;
+	
+	@Autowired
+	private RetrievalResultCache retrievalResultCache;
+	
+	@Autowired
+	private LexicalIndex lexicalIndex;
+	
+	@Autowired
+	private ChunkTextStore chunkTextStore;
+	
 	@Bean("quizChatClient")
 	public ChatClient quizChatClient(ChatClient.Builder chatClientBuilder) {
 		
@@ -34,9 +50,12 @@ public class QuizChatClientConfig {
 		var quizRAGAdvisor = RetrievalAugmentationAdvisor.builder()
 			.documentRetriever(UserDocumentRetriever.builder()
 				.vectorStore(vectorStore)
-				.topK(20)  // Quiz için daha fazla doküman
+				.topK(10)  // Hibrit arama ile 20 yerine 10 doküman yeterli
 				.similarityThreshold(0.5) //00.3  // Düşük threshold, daha
-			
+				.tombstoneRegistry(tombstoneRegistry)
+				.resultCache(retrievalResultCache)
+				.lexicalIndex(lexicalIndex)
+				.chunkTextStore(chunkTextStore)
 				.build())
 			.documentPostProcessors(PIIMaskingDocumentPostProcessor.builder())
 			.build();
@@ -97,8 +116,12 @@ public class QuizChatClientConfig {
 		var contentAnalyzerRAGAdvisor = RetrievalAugmentationAdvisor.builder()
 			.documentRetriever(UserDocumentRetriever.builder()
 				.vectorStore(vectorStore)
-				.topK(15)  // Orta seviye doküman getirme
+				.topK(10)  // Orta seviye doküman getirme (hibrit arama)
 				.similarityThreshold(0.4)
+				.tombstoneRegistry(tombstoneRegistry)
+				.resultCache(retrievalResultCache)
+				.lexicalIndex(lexicalIndex)
+				.chunkTextStore(chunkTextStore)
 				.build())
 			.build();
 		
@@ -0,0 +1,22 @@
+package com.burak.openai.config;
+
+import com.burak.openai.rag.TextCleanupTransformer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TextCleanupConfig {
+	
+	@Bean
+	public TextCleanupTransformer textCleanupTransformer(
+		@Value("${document.ingestion.cleanup.min-repeated-pages:3}") int minRepeatedPages,
+		@Value("${document.ingestion.cleanup.repeated-page-ratio:0.5}") double repeatedPageRatio,
+		@Value("${document.ingestion.cleanup.max-boilerplate-line-length:120}") int maxBoilerplateLineLength) {
+		return TextCleanupTransformer.builder()
+			.minRepeatedPages(minRepeatedPages)
+			.repeatedPageRatio(repeatedPageRatio)
+			.maxBoilerplateLineLength(maxBoilerplateLineLength)
+			.build();
+	}
+}
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com.burak.openai.config;
 
 import com.burak.openai.advisor.TokenUsageAuditAdvisor;
+import com.burak.openai.rag.DocumentTombstoneRegistry;
+import com.burak.openai.rag.LexicalIndex;
 import com.burak.openai.rag.PIIMaskingDocumentPostProcessor;
+import com.burak.openai.rag.RetrievalResultCache;
 import com.burak.openai.rag.UserDocumentRetriever;
+import com.burak.openai.service.ChunkTextStore;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
@@ -27,7 +31,11 @@ public class UserDocumentChatClientConfig {
 	@Bean("userDocumentChatClient")
 	public ChatClient userDocumentChatClient(ChatClient.Builder chatClientBuilder,
 	                                         ChatMemory chatMemory,
-	                                         VectorStore vectorStore) {
+	                                         VectorStore vectorStore,
+	                                         DocumentTombstoneRegistry tombstoneRegistry,
+	                                         RetrievalResultCache retrievalResultCache,
+	                                         LexicalIndex lexicalIndex,
+	                                         ChunkTextStore chunkTextStore) {
 		
 		Advisor memoryAdvisor = MessageChatMemoryAdvisor.builder(chatMemory).build();
 		
@@ -37,6 +45,10 @@ public class UserDocumentChatClientConfig {
 				.vectorStore(vectorStore)
 				.topK(10)  // Daha fazla doküman getir
 				.similarityThreshold(0.5)  // Threshold'u düşür
+				.tombstoneRegistry(tombstoneRegistry)
+				.resultCache(retrievalResultCache)
+				.lexicalIndex(lexicalIndex)
+				.chunkTextStore(chunkTextStore)
 				.build())
 			.documentPostProcessors(PIIMaskingDocumentPostProcessor.builder())
 			.build();
@@ -0,0 +1,73 @@
+package com.burak.openai.config;
+
+import com.burak.openai.rag.CachingQueryEmbeddingModel;
+import com.burak.openai.rag.ChunkPointStore;
+import com.burak.openai.rag.CollectionRouter;
+import com.burak.openai.rag.EmbeddingModelRegistry;
+import com.burak.openai.rag.QdrantPointStore;
+import com.burak.openai.rag.RoutingVectorStore;
+import com.burak.openai.service.ChunkTextStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.qdrant.client.QdrantClient;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class VectorStoreConfig {
+	
+	// Primary over the auto-configured QdrantVectorStore, which is pinned to the base collection
+	@Bean
+	@Primary
+	@ConditionalOnProperty(name = "document.vector-store.type", havingValue = "qdrant", matchIfMissing = true)
+	public VectorStore routingVectorStore(QdrantClient qdrantClient,
+	                                      EmbeddingModelRegistry embeddingModelRegistry,
+	                                      CollectionRouter collectionRouter,
+	                                      ChunkTextStore chunkTextStore,
+	                                      MeterRegistry meterRegistry,
+	                                      ObjectProvider<ObservationRegistry> observationRegistry,
+	                                      @Value("${document.retrieval.query-embedding-cache.enabled:true}") boolean queryCacheEnabled,
+	                                      @Value("${document.retrieval.query-embedding-cache.max-entries:1000}") int queryCacheMaxEntries) {
+		return RoutingVectorStore.builder()
+			.qdrantClient(qdrantClient)
+			.embeddingModels(modelId -> queryEmbeddingModel(embeddingModelRegistry.get(modelId), modelId,
+				queryCacheEnabled, queryCacheMaxEntries, meterRegistry))
+			.observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+			.collectionRouter(collectionRouter)
+			.chunkTextStore(chunkTextStore)
+			.build();
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "document.vector-store.type", havingValue = "qdrant", matchIfMissing = true)
+	public ChunkPointStore qdrantPointStore(QdrantClient qdrantClient,
+	                                        MeterRegistry meterRegistry,
+	                                        @Value("${document.ingestion.qdrant.delete-batch-size:1000}") int deleteBatchSize,
+	                                        @Value("${document.ingestion.qdrant.max-in-flight-batches:4}") int maxInFlightBatches,
+	                                        @Value("${document.ingestion.qdrant.wait-for-indexing:false}") boolean waitForIndexing) {
+		return new QdrantPointStore(qdrantClient, meterRegistry, deleteBatchSize, maxInFlightBatches, waitForIndexing);
+	}
+	
+	/**
+	 * Embedding model of a vector store: search queries are embedded through the cache,
+	 * document batches go straight to the model.
+	 */
+	static EmbeddingModel queryEmbeddingModel(EmbeddingModel embeddingModel, String modelId, boolean queryCacheEnabled,
+	                                          int queryCacheMaxEntries, MeterRegistry meterRegistry) {
+		if (!queryCacheEnabled) {
+			return embeddingModel;
+		}
+		return CachingQueryEmbeddingModel.builder()
+			.delegate(embeddingModel)
+			.modelId(modelId)
+			.maxEntries(queryCacheMaxEntries)
+			.meterRegistry(meterRegistry)
+			.build();
+	}
+}
\ No newline at end of file
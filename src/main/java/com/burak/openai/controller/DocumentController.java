@@ -1,10 +1,18 @@
 package com.burak.openai.controller;
 
+import com.burak.openai.entity.IngestionJob;
+import com.burak.openai.entity.UploadSession;
+import com.burak.openai.service.ArchiveUploadService;
 import com.burak.openai.service.DocumentService;
+import com.burak.openai.service.IngestionJobService;
+import com.burak.openai.service.ResumableUploadService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -12,25 +20,144 @@ import java.util.Map;
 public class DocumentController {
 	
 	private final DocumentService documentService;
+	private final IngestionJobService ingestionJobService;
+	private final ResumableUploadService resumableUploadService;
+	private final ArchiveUploadService archiveUploadService;
 	
-	public DocumentController(DocumentService documentService) {
+	public DocumentController(DocumentService documentService, IngestionJobService ingestionJobService,
+	                          ResumableUploadService resumableUploadService, ArchiveUploadService archiveUploadService) {
 		this.documentService = documentService;
+		this.ingestionJobService = ingestionJobService;
+		this.resumableUploadService = resumableUploadService;
+		this.archiveUploadService = archiveUploadService;
 	}
 	
 	@PostMapping("/upload")
 	public ResponseEntity<Map<String, String>> uploadDocument(
 		@RequestHeader(value = "username", defaultValue = "burak") String username,
-		@RequestParam("file") MultipartFile file) {
+		@RequestParam("file") MultipartFile file,
+		@RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting) {
 		
-		String documentId = documentService.uploadDocument(username, file);
+		IngestionJob job = documentService.uploadDocument(username, file, replaceExisting);
 		
-		return ResponseEntity.ok(Map.of(
-			"message", "Document uploaded successfully",
-			"documentId", documentId,
+		return ResponseEntity.accepted().body(Map.of(
+			"message", "Document uploaded, processing started",
+			"documentId", job.getDocumentId(),
+			"jobId", job.getJobId(),
+			"status", job.getStatus(),
 			"filename", file.getOriginalFilename()
 		));
 	}
 	
+	@PostMapping("/upload-archive")
+	public ResponseEntity<Map<String, Object>> uploadArchive(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@RequestParam("file") MultipartFile file,
+		@RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting) {
+		
+		List<ArchiveUploadService.EntryResult> results = archiveUploadService.uploadArchive(username, file, replaceExisting);
+		
+		return ResponseEntity.accepted().body(Map.of(
+			"message", "Archive uploaded, processing started",
+			"archive", file.getOriginalFilename(),
+			"queued", results.stream().filter(result -> result.jobId() != null).count(),
+			"files", results
+		));
+	}
+	
+	@PostMapping("/uploads")
+	public ResponseEntity<Map<String, Object>> initiateUpload(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@RequestParam("filename") String filename,
+		@RequestParam(value = "contentType", required = false) String contentType,
+		@RequestParam(value = "size", required = false) Long size) {
+		
+		UploadSession session = resumableUploadService.initiate(username, filename, contentType, size);
+		
+		return ResponseEntity.ok(Map.of(
+			"uploadId", session.getUploadId(),
+			"filename", session.getOriginalFilename(),
+			"status", session.getStatus()
+		));
+	}
+	
+	@PutMapping("/uploads/{uploadId}/parts/{partNumber}")
+	public ResponseEntity<ResumableUploadService.PartReceipt> uploadPart(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@RequestHeader(value = "X-Content-SHA256", required = false) String sha256,
+		@PathVariable String uploadId,
+		@PathVariable int partNumber,
+		InputStream body) {
+		
+		return ResponseEntity.ok(resumableUploadService.uploadPart(username, uploadId, partNumber, body, sha256));
+	}
+	
+	@GetMapping("/uploads/{uploadId}")
+	public ResponseEntity<Map<String, Object>> getUploadStatus(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@PathVariable String uploadId) {
+		
+		UploadSession session = resumableUploadService.getSession(username, uploadId);
+		
+		// jobId is null until the upload is completed, so Map.of can't be used here
+		Map<String, Object> response = new HashMap<>();
+		response.put("uploadId", session.getUploadId());
+		response.put("filename", session.getOriginalFilename());
+		response.put("status", session.getStatus());
+		response.put("receivedParts", resumableUploadService.getReceivedParts(username, uploadId));
+		response.put("jobId", session.getJobId());
+		return ResponseEntity.ok(response);
+	}
+	
+	@PostMapping("/uploads/{uploadId}/complete")
+	public ResponseEntity<Map<String, String>> completeUpload(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@PathVariable String uploadId,
+		@RequestParam(value = "sha256", required = false) String sha256,
+		@RequestParam(value = "replaceExisting", defaultValue = "false") boolean replaceExisting) {
+		
+		IngestionJob job = resumableUploadService.complete(username, uploadId, sha256, replaceExisting);
+		
+		return ResponseEntity.accepted().body(Map.of(
+			"message", "Upload complete, processing started",
+			"documentId", job.getDocumentId(),
+			"jobId", job.getJobId(),
+			"status", job.getStatus(),
+			"filename", job.getOriginalFilename()
+		));
+	}
+	
+	@DeleteMapping("/uploads/{uploadId}")
+	public ResponseEntity<Map<String, String>> abortUpload(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@PathVariable String uploadId) {
+		
+		resumableUploadService.abort(username, uploadId);
+		
+		return ResponseEntity.ok(Map.of(
+			"message", "Upload aborted",
+			"uploadId", uploadId
+		));
+	}
+	
+	@GetMapping("/jobs/{jobId}")
+	public ResponseEntity<IngestionJob> getJobStatus(
+		@RequestHeader(value = "username", defaultValue = "burak") String username,
+		@PathVariable String jobId) {
+		
+		return ResponseEntity.ok(ingestionJobService.getJob(username, jobId));
+	}
+	
+	@GetMapping("/jobs")
+	public ResponseEntity<Map<String, Object>> getUserJobs(
+		@RequestHeader("username") String username) {
+		
+		return ResponseEntity.ok(Map.of(
+			"username", username,
+			"jobs", ingestionJobService.getUserJobs(username)
+		));
+	}
+	
 	@GetMapping("/user-documents")
 	public ResponseEntity<Map<String, Object>> getUserDocuments(
 		@RequestHeader("username") String username) {
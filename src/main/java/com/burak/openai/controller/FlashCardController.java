@@ -49,11 +49,10 @@ public class FlashCardController {
 		}
 		
 		try {
-			UserDocumentRetriever.setCurrentUsername(username);
-			
 			String contentQuery = "What topics, concepts, formulas, definitions and important information are in this document? List as detailed as possible.";
 			
 			String documentContent = chatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user(contentQuery)
 				.call()
 				.content();
@@ -81,6 +80,7 @@ public class FlashCardController {
 			
 			// Create flashcard with structured output
 			FlashCardResponse flashCardResponse = chatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.options(ChatOptions.builder()
 					.temperature(0.5)
 					.model("gpt-3.5-turbo")
@@ -102,8 +102,6 @@ public class FlashCardController {
 			e.printStackTrace();
 			return ResponseEntity.internalServerError()
 				.body("{\"error\": \"Error while creating FlashCard: " + e.getMessage() + "\"}");
-		} finally {
-			UserDocumentRetriever.clearCurrentUsername();
 		}
 	}
 }
\ No newline at end of file
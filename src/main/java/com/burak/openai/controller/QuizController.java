@@ -64,12 +64,10 @@ public class QuizController {
 		}
 		
 		try {
-			// Set current username for retriever
-			UserDocumentRetriever.setCurrentUsername(username);
-			
 			// PHASE 1: Content Analysis with specialized client
 			System.out.println("Phase 1: Analyzing document content...");
 			String documentContent = quizContentAnalyzerClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user("Analyze the document and extract key topics, important concepts, definitions, facts, and information that can be used for creating educational quiz questions. Focus on the most significant content.")
 				.call()
 				.content();
@@ -102,6 +100,7 @@ public class QuizController {
 			
 			// Quiz client with structured output
 			QuizResponse quizResponse = quizChatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user(quizPrompt)
 				.call()
 				.entity(QuizResponse.class);
@@ -123,8 +122,6 @@ public class QuizController {
 			
 			// Fallback approach
 			return generateEmergencyFallbackQuiz(username, questionCount);
-		} finally {
-			UserDocumentRetriever.clearCurrentUsername();
 		}
 	}
 	
@@ -146,7 +143,6 @@ public class QuizController {
 	private ResponseEntity<String> generateFallbackQuiz(String username, int questionCount, String difficulty, String content) {
 		try {
 			System.out.println("=== FALLBACK QUIZ GENERATION ===");
-			UserDocumentRetriever.setCurrentUsername(username);
 			
 			// Load fallback template
 			String template = quizFallbackTemplate.getContentAsString(StandardCharsets.UTF_8);
@@ -156,6 +152,7 @@ public class QuizController {
 				.replace("{documentContent}", content.length() > 800 ? content.substring(0, 800) : content);
 			
 			String rawResponse = quizFallbackChatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user(fallbackPrompt)
 				.call()
 				.content();
@@ -170,8 +167,6 @@ public class QuizController {
 		} catch (Exception fallbackEx) {
 			System.err.println("Fallback approach failed: " + fallbackEx.getMessage());
 			return generateEmergencyFallbackQuiz(username, questionCount);
-		} finally {
-			UserDocumentRetriever.clearCurrentUsername();
 		}
 	}
 	
@@ -97,9 +97,6 @@ public class QuizResultController {
 				));
 			}
 			
-			// Set current username for retriever
-			UserDocumentRetriever.setCurrentUsername(username);
-			
 			// Build analysis prompt with friendly tone
 			StringBuilder wrongAnswersText = new StringBuilder();
 			List<String> topicsForWebSearch = new ArrayList<>();
@@ -119,7 +116,7 @@ public class QuizResultController {
 			}
 			
 			// Generate friendly AI analysis
-			String analysis = generateFriendlyAnalysis(wrongAnswersText.toString());
+			String analysis = generateFriendlyAnalysis(username, wrongAnswersText.toString());
 			
 			// Get web resources for incorrect topics using MCP Tavily
 			System.out.println("🌐 Searching for web resources for topics: " + topicsForWebSearch);
@@ -149,15 +146,13 @@ public class QuizResultController {
 					"webResources", List.of(),
 					"canSaveReport", false
 				));
-		} finally {
-			UserDocumentRetriever.clearCurrentUsername();
 		}
 	}
 	
 	/**
 	 * Generate friendly, encouraging analysis with emojis
 	 */
-	private String generateFriendlyAnalysis(String wrongAnswersText) {
+	private String generateFriendlyAnalysis(String username, String wrongAnswersText) {
 		try {
 			// Use a simple, friendly analysis prompt instead of complex template
 			String analysisPrompt = String.format("""
@@ -178,6 +173,7 @@ public class QuizResultController {
 				""", wrongAnswersText);
 			
 			String analysis = chatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user(analysisPrompt)
 				.call()
 				.content();
@@ -76,23 +76,17 @@ public class RAGController {
 		@RequestHeader("username") String username,
 		@RequestParam("message") String message) {
 
-		try {
-			UserDocumentRetriever.setCurrentUsername(username);
-
-			String answer = userDocumentChatClient.prompt()
-				.advisors(advisorSpec -> advisorSpec.param(CONVERSATION_ID, username))
-				.user(message)
-				.call().content();
-
-			return ResponseEntity.ok(Map.of(
-				"answer", answer,
-				"username", username,
-				"query", message
-			));
+		String answer = userDocumentChatClient.prompt()
+			.advisors(advisorSpec -> advisorSpec.param(CONVERSATION_ID, username)
+				.param(UserDocumentRetriever.USERNAME, username))
+			.user(message)
+			.call().content();
 
-		} finally {
-			UserDocumentRetriever.clearCurrentUsername();
-		}
+		return ResponseEntity.ok(Map.of(
+			"answer", answer,
+			"username", username,
+			"query", message
+		));
 	}
 	
 
@@ -0,0 +1,27 @@
+package com.burak.openai.controller;
+
+import com.burak.openai.service.ReindexService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reindex")
+public class ReindexController {
+	
+	private final ReindexService reindexService;
+	
+	public ReindexController(ReindexService reindexService) {
+		this.reindexService = reindexService;
+	}
+	
+	@PostMapping
+	public ResponseEntity<ReindexService.ReindexStatus> startReindex() {
+		return ResponseEntity.accepted().body(reindexService.start());
+	}
+	
+	@GetMapping
+	public ResponseEntity<ReindexService.ReindexStatus> getReindexStatus() {
+		ReindexService.ReindexStatus status = reindexService.getStatus();
+		return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+	}
+}
\ No newline at end of file
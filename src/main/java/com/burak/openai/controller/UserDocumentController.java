@@ -29,10 +29,8 @@ public class UserDocumentController {
 		}
 		
 		try {
-			// Set current username for retriever
-			UserDocumentRetriever.setCurrentUsername(username);
-			
 			String response = chatClient.prompt()
+				.advisors(advisorSpec -> advisorSpec.param(UserDocumentRetriever.USERNAME, username))
 				.user(message)
 				.call()
 				.content();
@@ -41,9 +39,6 @@ public class UserDocumentController {
 		} catch (Exception e) {
 			return ResponseEntity.internalServerError()
 				.body("Hata oluştu: " + e.getMessage());
-		} finally {
-			// Clear username
-			UserDocumentRetriever.clearCurrentUsername();
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.burak.openai.controller;
+
+import com.burak.openai.service.OrphanVectorCollector;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/vector-gc")
+public class VectorGcController {
+	
+	private final OrphanVectorCollector orphanVectorCollector;
+	
+	public VectorGcController(OrphanVectorCollector orphanVectorCollector) {
+		this.orphanVectorCollector = orphanVectorCollector;
+	}
+	
+	/**
+	 * Run a collection now. Defaults to a dry run; pass {@code dryRun=false} to delete.
+	 */
+	@PostMapping
+	public ResponseEntity<OrphanVectorCollector.GcReport> collect(@RequestParam(defaultValue = "true") boolean dryRun) {
+		return ResponseEntity.ok(orphanVectorCollector.collect(dryRun));
+	}
+	
+	@GetMapping
+	public ResponseEntity<OrphanVectorCollector.GcReport> getLastReport() {
+		OrphanVectorCollector.GcReport report = orphanVectorCollector.getLastReport();
+		return report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.burak.openai.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "chunk_texts")
+public class ChunkText {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "chunk_hash", unique = true, nullable = false, length = 64)
+	private String chunkHash; // SHA-256 of the chunk text, also stored in the point payload
+	
+	@Lob
+	@Column(name = "chunk_text", nullable = false)
+	private String text;
+	
+	@Column(name = "seed", nullable = false)
+	private boolean seed; // Text of a seed corpus chunk, which has no chunk manifest
+	
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+	
+	@Column(name = "last_referenced_at", nullable = false)
+	private LocalDateTime lastReferencedAt; // Last time a chunk was written with this text, for the orphan grace period
+}
\ No newline at end of file
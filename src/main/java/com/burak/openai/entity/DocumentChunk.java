@@ -0,0 +1,27 @@
+package com.burak.openai.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "document_chunks", indexes = @Index(name = "idx_document_chunks_document_id", columnList = "document_id"))
+public class DocumentChunk {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "document_id", nullable = false)
+	private String documentId;
+	
+	@Column(name = "chunk_hash", nullable = false, length = 64)
+	private String chunkHash; // SHA-256 of the chunk text
+	
+	@Column(name = "point_id", nullable = false, length = 36)
+	private String pointId;
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.burak.openai.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "ingestion_jobs")
+public class IngestionJob {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "job_id", unique = true, nullable = false)
+	private String jobId;
+	
+	@Column(name = "document_id", nullable = false)
+	private String documentId;
+	
+	@Column(name = "username", nullable = false)
+	private String username;
+	
+	@Column(name = "original_filename")
+	private String originalFilename;
+	
+	@Column(name = "staged_path")
+	private String stagedPath;
+	
+	@Column(name = "status", nullable = false)
+	private String status; // QUEUED, PARSING, SPLITTING, EMBEDDING, STORING, COMPLETED, FAILED
+	
+	@Column(name = "progress")
+	private Integer progress;
+	
+	@Column(name = "chunk_count")
+	private Integer chunkCount;
+	
+	// Tokens of the extracted text, and how many of them the cleanup stage removed
+	@Column(name = "extracted_tokens")
+	private Integer extractedTokens;
+	
+	@Column(name = "cleanup_tokens_saved")
+	private Integer cleanupTokensSaved;
+	
+	@Column(name = "error_message", length = 2000)
+	private String errorMessage;
+	
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+	
+	@Column(name = "started_at")
+	private LocalDateTime startedAt;
+	
+	@Column(name = "completed_at")
+	private LocalDateTime completedAt;
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.burak.openai.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "upload_sessions")
+public class UploadSession {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "upload_id", unique = true, nullable = false)
+	private String uploadId;
+	
+	@Column(name = "username", nullable = false)
+	private String username;
+	
+	@Column(name = "original_filename", nullable = false)
+	private String originalFilename;
+	
+	@Column(name = "content_type")
+	private String contentType;
+	
+	@Column(name = "expected_size")
+	private Long expectedSize; // optional, checked on complete
+	
+	@Column(name = "status", nullable = false)
+	private String status; // OPEN, COMPLETING, COMPLETED, FAILED, ABORTED
+	
+	@Column(name = "job_id")
+	private String jobId;
+	
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+	
+	@Column(name = "completed_at")
+	private LocalDateTime completedAt;
+}
\ No newline at end of file
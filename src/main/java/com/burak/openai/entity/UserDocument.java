@@ -33,9 +33,16 @@ public class UserDocument {
 	@Column(name = "file_size")
 	private Long fileSize;
 	
+	@Column(name = "content_hash", length = 64)
+	private String contentHash; // SHA-256 of the uploaded bytes, also the key of the original in ContentBlobStore
+	
+	@Column(name = "shared_from_document_id")
+	private String sharedFromDocumentId; // Set on copies of content another document already ingested: its chunks are read instead
+	
 	@Column(name = "upload_date", nullable = false)
 	private LocalDateTime uploadDate;
 	
 	@Column(name = "status")
-	private String status = "ACTIVE"; // ACTIVE, DELETED
+	@Builder.Default
+	private String status = "ACTIVE"; // PROCESSING, ACTIVE, FAILED, DELETING
 }
\ No newline at end of file
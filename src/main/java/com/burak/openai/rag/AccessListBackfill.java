@@ -0,0 +1,76 @@
+package com.burak.openai.rag;
+
+import io.qdrant.client.grpc.Points.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.qdrant.client.ConditionFactory.isEmpty;
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+
+/**
+ * One-off migration of points written before chunks carried an access list: points of
+ * user documents without {@code users} get their owner as the only reader. Sharing the
+ * content later rewrites the list as usual. The embedded store always had access lists,
+ * so there it finds nothing to migrate.
+ */
+@Component
+@Slf4j
+public class AccessListBackfill {
+	
+	private final CollectionRouter collectionRouter;
+	private final ChunkPointStore pointStore;
+	private final int pageSize;
+	
+	public AccessListBackfill(CollectionRouter collectionRouter,
+	                          ChunkPointStore pointStore,
+	                          @Value("${document.ingestion.qdrant.delete-batch-size:1000}") int pageSize) {
+		this.collectionRouter = collectionRouter;
+		this.pointStore = pointStore;
+		this.pageSize = pageSize;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(1)
+	public void backfillAccessLists() {
+		String collectionName = collectionRouter.getLiveCollection();
+		try {
+			Map<String, String> ownersByDocumentId = new LinkedHashMap<>();
+			Filter withoutAccessList = Filter.newBuilder()
+				.addMust(isEmpty("users"))
+				.addMustNot(isEmpty("documentId"))
+				.build();
+			pointStore.scan(collectionName, withoutAccessList, List.of("documentId", "username"), pageSize,
+				page -> page.forEach(payload -> ownersByDocumentId.putIfAbsent((String) payload.get("documentId"),
+					(String) payload.getOrDefault("username", ""))));
+			
+			int migrated = 0;
+			for (Map.Entry<String, String> owner : ownersByDocumentId.entrySet()) {
+				if (owner.getValue().isEmpty()) {
+					log.warn("Points of document {} have neither an access list nor an owner", owner.getKey());
+					continue;
+				}
+				Filter filter = Filter.newBuilder()
+					.addMust(matchKeyword("documentId", owner.getKey()))
+					.addMust(isEmpty("users"))
+					.build();
+				pointStore.setPayload(collectionName, filter, Map.of(
+					"users", List.of(owner.getValue()),
+					"documentIds", List.of(owner.getKey())));
+				migrated++;
+			}
+			if (migrated > 0) {
+				log.info("Backfilled the access list of {} documents in {}", migrated, collectionName);
+			}
+		} catch (RuntimeException e) {
+			log.warn("Could not backfill access lists in {}: {}", collectionName, e.getMessage());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.burak.openai.rag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.Assert;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Embedding model that keeps the vectors of single query texts in a bounded in-memory LRU
+ * cache, so retrieval doesn't go to the remote model for a query it has seen recently.
+ * The quiz and flashcard flows send the same fixed queries on every request. Entries are
+ * keyed by the model id and the query text with whitespace and Unicode forms normalized.
+ * <p>
+ * Only {@link #embed(String)}, the call a vector store makes for a search, is cached.
+ * Document batches are passed straight through to the delegate.
+ */
+public class CachingQueryEmbeddingModel implements EmbeddingModel {
+	
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	
+	private final EmbeddingModel delegate;
+	private final String modelId;
+	private final Map<String, float[]> vectors;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+	
+	private CachingQueryEmbeddingModel(EmbeddingModel delegate, String modelId, int maxEntries,
+	                                   MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.modelId = modelId;
+		this.hits = meterRegistry.counter("query.embedding.cache.hits");
+		this.misses = meterRegistry.counter("query.embedding.cache.misses");
+		this.evictions = meterRegistry.counter("query.embedding.cache.evictions");
+		this.vectors = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+				if (size() > maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+		meterRegistry.gauge("query.embedding.cache.size", this, CachingQueryEmbeddingModel::size);
+		meterRegistry.gauge("query.embedding.cache.hit-ratio", this, CachingQueryEmbeddingModel::hitRatio);
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	@Override
+	public float[] embed(String text) {
+		String key = cacheKey(text);
+		float[] cached;
+		synchronized (vectors) {
+			cached = vectors.get(key);
+		}
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		// Outside the lock: a remote call must not hold up hits on other queries
+		float[] vector = delegate.embed(text);
+		synchronized (vectors) {
+			vectors.put(key, vector);
+		}
+		return vector;
+	}
+	
+	String cacheKey(String text) {
+		String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+		return modelId + "\n" + WHITESPACE.matcher(normalized).replaceAll(" ").strip();
+	}
+	
+	public int size() {
+		synchronized (vectors) {
+			return vectors.size();
+		}
+	}
+	
+	private double hitRatio() {
+		double lookups = hits.count() + misses.count();
+		return lookups == 0 ? 0.0 : hits.count() / lookups;
+	}
+	
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		return delegate.call(request);
+	}
+	
+	@Override
+	public float[] embed(Document document) {
+		return delegate.embed(document);
+	}
+	
+	@Override
+	public List<float[]> embed(List<String> texts) {
+		return delegate.embed(texts);
+	}
+	
+	@Override
+	public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+		return delegate.embed(documents, options, batchingStrategy);
+	}
+	
+	@Override
+	public EmbeddingResponse embedForResponse(List<String> texts) {
+		return delegate.embedForResponse(texts);
+	}
+	
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+	
+	public static class Builder {
+		private EmbeddingModel delegate;
+		private String modelId = "default";
+		private int maxEntries = 1000;
+		private MeterRegistry meterRegistry;
+		
+		private Builder() {}
+		
+		public Builder delegate(EmbeddingModel delegate) {
+			this.delegate = delegate;
+			return this;
+		}
+		
+		/**
+		 * Id of the delegate's model, part of the cache key.
+		 */
+		public Builder modelId(String modelId) {
+			this.modelId = modelId;
+			return this;
+		}
+		
+		public Builder maxEntries(int maxEntries) {
+			if (maxEntries <= 0) {
+				throw new IllegalArgumentException("maxEntries must be greater than 0");
+			}
+			this.maxEntries = maxEntries;
+			return this;
+		}
+		
+		public Builder meterRegistry(MeterRegistry meterRegistry) {
+			this.meterRegistry = meterRegistry;
+			return this;
+		}
+		
+		public CachingQueryEmbeddingModel build() {
+			Assert.notNull(delegate, "delegate must be set");
+			Assert.hasText(modelId, "modelId cannot be empty");
+			return new CachingQueryEmbeddingModel(delegate, modelId, maxEntries,
+				meterRegistry != null ? meterRegistry : new SimpleMeterRegistry());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.EmbeddingCacheService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Embedding stage of the ingestion pipeline. Chunks are packed into batches capped by
+ * token count and sent to the embedding model in parallel on a bounded pool shared by
+ * all ingestion jobs. A failing batch is retried on its own without redoing the others.
+ * Vectors are looked up in and written back to the {@link EmbeddingCacheService}.
+ * <p>
+ * Chunks are embedded with the model of every collection they are written to, which is
+ * two models while a re-index into a collection of another model is running.
+ */
+@Component
+@Slf4j
+public class ChunkEmbeddingStage {
+	
+	private final EmbeddingModelRegistry embeddingModelRegistry;
+	private final CollectionRouter collectionRouter;
+	private final EmbeddingCacheService embeddingCacheService;
+	private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+	private final ExecutorService executor;
+	private final int maxBatchTokens;
+	private final int maxBatchSize;
+	private final int maxRetries;
+	private final long retryBackoffMillis;
+	
+	public ChunkEmbeddingStage(EmbeddingModelRegistry embeddingModelRegistry,
+	                           CollectionRouter collectionRouter,
+	                           EmbeddingCacheService embeddingCacheService,
+	                           @Value("${document.ingestion.embedding.max-batch-tokens:20000}") int maxBatchTokens,
+	                           @Value("${document.ingestion.embedding.max-batch-size:512}") int maxBatchSize,
+	                           @Value("${document.ingestion.embedding.max-concurrency:4}") int maxConcurrency,
+	                           @Value("${document.ingestion.embedding.max-retries:3}") int maxRetries,
+	                           @Value("${document.ingestion.embedding.retry-backoff-ms:500}") long retryBackoffMillis) {
+		if (maxBatchTokens <= 0 || maxBatchSize <= 0 || maxConcurrency <= 0) {
+			throw new IllegalArgumentException("Embedding batch limits and concurrency must be greater than 0");
+		}
+		this.embeddingModelRegistry = embeddingModelRegistry;
+		this.collectionRouter = collectionRouter;
+		this.embeddingCacheService = embeddingCacheService;
+		this.maxBatchTokens = maxBatchTokens;
+		this.maxBatchSize = maxBatchSize;
+		this.maxRetries = maxRetries;
+		this.retryBackoffMillis = retryBackoffMillis;
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+			Thread thread = new Thread(runnable, "embedding-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	/**
+	 * Embed all chunks for the collections currently written and return them in input
+	 * order. Chunks whose text is already in the embedding cache are not sent to the model.
+	 *
+	 * @param chunks           chunks to embed
+	 * @param progressListener receives the percentage of finished batches, may be null
+	 */
+	public List<EmbeddedChunk> embed(List<Document> chunks, IntConsumer progressListener) {
+		return embed(chunks, collectionRouter.getWriteCollections(), progressListener);
+	}
+	
+	/**
+	 * Embed all chunks with the model of each of the given collections and return them in
+	 * input order.
+	 */
+	public List<EmbeddedChunk> embed(List<Document> chunks, List<String> collectionNames,
+	                                 IntConsumer progressListener) {
+		if (chunks.isEmpty()) {
+			return List.of();
+		}
+		Set<String> models = new LinkedHashSet<>();
+		collectionNames.forEach(collectionName -> models.add(collectionRouter.getModel(collectionName)));
+		List<String> texts = chunks.stream().map(Document::getText).toList();
+		Map<String, float[][]> vectorsByModel = new HashMap<>();
+		List<Runnable> batchTasks = new ArrayList<>();
+		for (String model : models) {
+			float[][] vectors = new float[chunks.size()][];
+			vectorsByModel.put(model, vectors);
+			Map<Integer, float[]> cached = embeddingCacheService.getAll(model, texts);
+			cached.forEach((index, vector) -> vectors[index] = vector);
+			
+			List<Integer> missing = new ArrayList<>();
+			for (int i = 0; i < vectors.length; i++) {
+				if (vectors[i] == null) {
+					missing.add(i);
+				}
+			}
+			List<List<Integer>> batches = packBatches(texts, missing);
+			log.info("Embedding {} chunks with {} in {} batches ({} served from cache)",
+				missing.size(), model, batches.size(), cached.size());
+			batches.forEach(batch -> batchTasks.add(() -> embedBatch(model, texts, batch, vectors)));
+		}
+		
+		AtomicInteger finishedBatches = new AtomicInteger();
+		List<CompletableFuture<Void>> futures = new ArrayList<>(batchTasks.size());
+		for (Runnable batchTask : batchTasks) {
+			futures.add(CompletableFuture.runAsync(batchTask, executor)
+				.whenComplete((result, error) -> {
+					if (error == null && progressListener != null) {
+						progressListener.accept(finishedBatches.incrementAndGet() * 100 / batchTasks.size());
+					}
+				}));
+		}
+		
+		try {
+			CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw new RuntimeException("Embedding failed: " + e.getCause().getMessage(), e.getCause());
+		}
+		
+		List<EmbeddedChunk> embedded = new ArrayList<>(chunks.size());
+		for (int i = 0; i < chunks.size(); i++) {
+			Map<String, float[]> embeddings = new HashMap<>();
+			for (String model : models) {
+				embeddings.put(model, vectorsByModel.get(model)[i]);
+			}
+			embedded.add(new EmbeddedChunk(chunks.get(i), embeddings));
+		}
+		return embedded;
+	}
+	
+	/**
+	 * Greedily pack consecutive chunks into batches that stay under both the token
+	 * and the input count limit. A single chunk larger than the token limit gets a
+	 * batch of its own.
+	 */
+	List<List<Integer>> packBatches(List<String> texts, List<Integer> indexes) {
+		List<List<Integer>> batches = new ArrayList<>();
+		List<Integer> current = new ArrayList<>();
+		int currentTokens = 0;
+		for (Integer index : indexes) {
+			int tokens = tokenCountEstimator.estimate(texts.get(index));
+			if (!current.isEmpty() && (currentTokens + tokens > maxBatchTokens || current.size() >= maxBatchSize)) {
+				batches.add(current);
+				current = new ArrayList<>();
+				currentTokens = 0;
+			}
+			current.add(index);
+			currentTokens += tokens;
+		}
+		if (!current.isEmpty()) {
+			batches.add(current);
+		}
+		return batches;
+	}
+	
+	private void embedBatch(String model, List<String> texts, List<Integer> batch, float[][] vectors) {
+		List<String> batchTexts = batch.stream().map(texts::get).toList();
+		RuntimeException lastError = null;
+		for (int attempt = 0; attempt <= maxRetries; attempt++) {
+			try {
+				List<float[]> batchVectors = embeddingModelRegistry.get(model).embed(batchTexts);
+				for (int i = 0; i < batch.size(); i++) {
+					vectors[batch.get(i)] = batchVectors.get(i);
+				}
+				embeddingCacheService.putAll(model, batchTexts, batchVectors);
+				return;
+			} catch (RuntimeException e) {
+				lastError = e;
+				log.warn("Embedding batch of {} chunks failed (attempt {}/{}): {}",
+					batch.size(), attempt + 1, maxRetries + 1, e.getMessage());
+				if (attempt < maxRetries) {
+					sleepBeforeRetry(attempt);
+				}
+			}
+		}
+		throw lastError;
+	}
+	
+	private void sleepBeforeRetry(int attempt) {
+		try {
+			Thread.sleep(retryBackoffMillis << attempt);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting to retry embedding batch", e);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.burak.openai.rag;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.qdrant.client.grpc.Points.Filter;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Point storage behind the {@link QdrantChunkWriter}: Qdrant, or the in-process
+ * {@link EmbeddedVectorStore} with {@code document.vector-store.type=embedded}. A point is
+ * a {@link Document} whose metadata is the payload; its text is empty when chunk texts are
+ * kept in the chunk store. Filters are Qdrant filters; the embedded store evaluates them
+ * against the payloads and, having a single collection, ignores collection names.
+ */
+public interface ChunkPointStore {
+	
+	/**
+	 * Start an upsert of the points with their vectors. Blocks only while the store has
+	 * the maximum number of upserts in flight.
+	 */
+	ListenableFuture<?> upsert(String collectionName, List<Document> points, List<float[]> vectors);
+	
+	void delete(String collectionName, List<String> pointIds);
+	
+	/**
+	 * @return number of deleted points
+	 */
+	long delete(String collectionName, Filter filter);
+	
+	/**
+	 * Overwrite payload fields of every point matching the filter; fields not given are
+	 * left as they are.
+	 */
+	void setPayload(String collectionName, Filter filter, Map<String, Object> fields);
+	
+	long count(String collectionName, Filter filter);
+	
+	/**
+	 * Hand the given payload fields of the points matching the filter to the consumer page
+	 * by page, one map per point.
+	 *
+	 * @return number of points scanned
+	 */
+	long scan(String collectionName, Filter filter, List<String> fields, int pageSize,
+	          Consumer<List<Map<String, Object>>> pageConsumer);
+	
+	/**
+	 * Hand every point, with its text and payload, to the consumer page by page.
+	 *
+	 * @return number of points scanned
+	 */
+	long scanPoints(String collectionName, int pageSize, Consumer<List<Document>> pageConsumer);
+	
+	/**
+	 * Keyword indexes on the fields we filter by, where the store has them.
+	 */
+	void ensurePayloadIndexes(String collectionName, List<String> fields);
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.burak.openai.rag;
+
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections.AliasDescription;
+import io.qdrant.client.grpc.Collections.AliasOperations;
+import io.qdrant.client.grpc.Collections.CreateAlias;
+import io.qdrant.client.grpc.Collections.DeleteAlias;
+import io.qdrant.client.grpc.Collections.Distance;
+import io.qdrant.client.grpc.Collections.VectorParams;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.burak.openai.rag.QdrantChunkWriter.await;
+
+/**
+ * Decides which Qdrant collection is read and which ones are written. Searches always go
+ * to the live collection; while a re-index is running, writes also go to its target
+ * collection so uploads made during the run are not lost on the switch.
+ * <p>
+ * Collections are versioned as {@code <base>_v<n>}. The live one is recorded in the
+ * Qdrant alias {@code <base>_live}, which survives restarts; without the alias the base
+ * collection from {@code spring.ai.vectorstore.qdrant.collection-name} is live.
+ * <p>
+ * Each collection is searched and written with the embedding model it was created for,
+ * so searches move to the query model of a new collection in the same step as they move
+ * to the collection. Collections not created by this process, such as the live one after
+ * a restart, are taken to be embedded with the configured model.
+ * <p>
+ * The embedded vector store has a single collection: the base collection is always live
+ * and re-indexing into a new collection is not available.
+ */
+@Component
+@Slf4j
+public class CollectionRouter {
+	
+	private record Routing(String liveCollection, String dualWriteCollection) {}
+	
+	private final QdrantClient qdrantClient;
+	private final EmbeddingModelRegistry embeddingModelRegistry;
+	private final String baseCollection;
+	private final String liveAlias;
+	private final boolean initializeSchema;
+	private final boolean embedded;
+	private final Pattern versionPattern;
+	private final AtomicReference<Routing> routing;
+	private final Map<String, String> modelsByCollection = new ConcurrentHashMap<>();
+	private volatile boolean liveAliasExists;
+	
+	public CollectionRouter(ObjectProvider<QdrantClient> qdrantClient,
+	                        EmbeddingModelRegistry embeddingModelRegistry,
+	                        @Value("${spring.ai.vectorstore.qdrant.collection-name}") String baseCollection,
+	                        @Value("${spring.ai.vectorstore.qdrant.initialize-schema:true}") boolean initializeSchema,
+	                        @Value("${document.vector-store.type:qdrant}") String vectorStoreType) {
+		// Absent with the embedded vector store
+		this.qdrantClient = qdrantClient.getIfAvailable();
+		this.embeddingModelRegistry = embeddingModelRegistry;
+		this.baseCollection = baseCollection;
+		this.liveAlias = baseCollection + "_live";
+		this.initializeSchema = initializeSchema;
+		this.embedded = "embedded".equals(vectorStoreType);
+		this.versionPattern = Pattern.compile(Pattern.quote(baseCollection) + "_v(\\d+)");
+		this.routing = new AtomicReference<>(new Routing(baseCollection, null));
+	}
+	
+	@PostConstruct
+	public void resolveLiveCollection() {
+		if (embedded) {
+			log.info("Using the embedded vector store, live collection is {}", baseCollection);
+			return;
+		}
+		try {
+			for (AliasDescription alias : await(qdrantClient.listAliasesAsync(), "listing collection aliases")) {
+				if (alias.getAliasName().equals(liveAlias)) {
+					liveAliasExists = true;
+					routing.set(new Routing(alias.getCollectionName(), null));
+				}
+			}
+			String live = getLiveCollection();
+			if (initializeSchema && !await(qdrantClient.collectionExistsAsync(live), "checking collection " + live)) {
+				createCollection(live, getModel(live));
+			}
+			log.info("Live vector collection is {}", live);
+		} catch (RuntimeException e) {
+			log.warn("Could not resolve live collection, using {}: {}", baseCollection, e.getMessage());
+		}
+	}
+	
+	public String getLiveCollection() {
+		return routing.get().liveCollection();
+	}
+	
+	/**
+	 * Embedding model the points of a collection are embedded with, and its search queries
+	 * must be.
+	 */
+	public String getModel(String collection) {
+		return modelsByCollection.getOrDefault(collection, embeddingModelRegistry.getDefaultModel());
+	}
+	
+	public String getLiveModel() {
+		return getModel(getLiveCollection());
+	}
+	
+	/**
+	 * Collections every chunk write and delete must be applied to.
+	 */
+	public List<String> getWriteCollections() {
+		Routing current = routing.get();
+		return current.dualWriteCollection() == null
+			? List.of(current.liveCollection())
+			: List.of(current.liveCollection(), current.dualWriteCollection());
+	}
+	
+	public void startDualWrite(String collection) {
+		routing.updateAndGet(current -> new Routing(current.liveCollection(), collection));
+		log.info("Dual-writing chunks to {} and {}", getLiveCollection(), collection);
+	}
+	
+	public void stopDualWrite() {
+		routing.updateAndGet(current -> new Routing(current.liveCollection(), null));
+	}
+	
+	/**
+	 * Make {@code collection} live. The alias is repointed in a single Qdrant alias update
+	 * and the in-process routing is swapped in one step, so searches move over at once,
+	 * together with the model their queries are embedded with.
+	 */
+	public synchronized void switchLive(String collection) {
+		requireQdrant();
+		List<AliasOperations> operations = new ArrayList<>();
+		if (liveAliasExists) {
+			operations.add(AliasOperations.newBuilder()
+				.setDeleteAlias(DeleteAlias.newBuilder().setAliasName(liveAlias))
+				.build());
+		}
+		operations.add(AliasOperations.newBuilder()
+			.setCreateAlias(CreateAlias.newBuilder().setAliasName(liveAlias).setCollectionName(collection))
+			.build());
+		await(qdrantClient.updateAliasesAsync(operations), "switching " + liveAlias + " to " + collection);
+		liveAliasExists = true;
+		
+		String previous = routing.getAndSet(new Routing(collection, null)).liveCollection();
+		String model = getModel(collection);
+		log.info("Switched live vector collection from {} to {} ({})", previous, collection, model);
+		if (!model.equals(embeddingModelRegistry.getDefaultModel())) {
+			log.warn("Collection {} is embedded with {}: set spring.ai.openai.embedding.options.model to it before "
+				+ "the next restart", collection, model);
+		}
+	}
+	
+	public void createCollection(String collection, String model) {
+		requireQdrant();
+		VectorParams vectorParams = VectorParams.newBuilder()
+			.setSize(embeddingModelRegistry.dimensions(model))
+			.setDistance(Distance.Cosine)
+			.build();
+		await(qdrantClient.createCollectionAsync(collection, vectorParams), "creating collection " + collection);
+		modelsByCollection.put(collection, model);
+		log.info("Created collection {} for {} with {} dimensions", collection, model, vectorParams.getSize());
+	}
+	
+	public void deleteCollection(String collection) {
+		requireQdrant();
+		if (getWriteCollections().contains(collection)) {
+			throw new IllegalStateException("Collection " + collection + " is in use");
+		}
+		await(qdrantClient.deleteCollectionAsync(collection), "deleting collection " + collection);
+		modelsByCollection.remove(collection);
+		log.info("Deleted collection {}", collection);
+	}
+	
+	/**
+	 * The base collection and every {@code <base>_v<n>} collection that exists.
+	 */
+	public List<String> listCollections() {
+		if (embedded) {
+			return List.of(getLiveCollection());
+		}
+		return await(qdrantClient.listCollectionsAsync(), "listing collections").stream()
+			.filter(name -> name.equals(baseCollection) || versionPattern.matcher(name).matches())
+			.toList();
+	}
+	
+	private void requireQdrant() {
+		if (embedded) {
+			throw new RuntimeException("Collections can only be managed with the Qdrant vector store");
+		}
+	}
+	
+	public String nextVersionName() {
+		int latest = 0;
+		for (String name : listCollections()) {
+			Matcher matcher = versionPattern.matcher(name);
+			if (matcher.matches()) {
+				latest = Math.max(latest, Integer.parseInt(matcher.group(1)));
+			}
+		}
+		return baseCollection + "_v" + (latest + 1);
+	}
+}
\ No newline at end of file
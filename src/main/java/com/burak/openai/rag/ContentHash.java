@@ -0,0 +1,35 @@
+package com.burak.openai.rag;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers used to content-address uploads and chunks.
+ */
+public final class ContentHash {
+	
+	private ContentHash() {
+	}
+	
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+	
+	public static String sha256(String text) {
+		return sha256(text.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static String sha256(byte[] bytes) {
+		return toHex(newDigest().digest(bytes));
+	}
+	
+	public static String toHex(byte[] digest) {
+		return HexFormat.of().formatHex(digest);
+	}
+}
\ No newline at end of file
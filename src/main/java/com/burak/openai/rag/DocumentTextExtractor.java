@@ -0,0 +1,261 @@
+package com.burak.openai.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.extractor.EmbeddedDocumentExtractor;
+import org.apache.tika.metadata.HttpHeaders;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ocr.TesseractOCRConfig;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.parser.txt.CharsetDetector;
+import org.apache.tika.parser.txt.CharsetMatch;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Text extraction shared by all ingestion paths. Plain text, Markdown and CSV need no
+ * parsing and are decoded directly (BOM, then strict UTF-8, then charset detection).
+ * Large documents can be {@linkplain #stream streamed} instead of extracted in one piece.
+ * Everything else goes through a single {@link AutoDetectParser} that is built once and
+ * shared, since Tika parsers are thread-safe and expensive to initialize. OCR and
+ * extraction of embedded resources (attachments, images inside office files) are off
+ * unless enabled.
+ */
+@Component
+@Slf4j
+public class DocumentTextExtractor {
+	
+	public static final String SOURCE_METADATA = "source";
+	
+	private static final Set<String> PLAIN_TEXT_TYPES = Set.of("text/plain", "text/markdown", "text/x-markdown",
+		"text/csv");
+	private static final Set<String> PLAIN_TEXT_EXTENSIONS = Set.of(".txt", ".md", ".markdown", ".csv");
+	private static final Charset FALLBACK_CHARSET = Charset.forName("windows-1252");
+	private static final int CHARSET_DETECTION_BYTES = 64 * 1024;
+	private static final int MIN_CHARSET_CONFIDENCE = 50;
+	
+	private final AutoDetectParser parser;
+	private final boolean ocrEnabled;
+	private final boolean embeddedExtractionEnabled;
+	
+	public DocumentTextExtractor(@Value("${document.ingestion.extraction.ocr-enabled:false}") boolean ocrEnabled,
+	                             @Value("${document.ingestion.extraction.embedded-enabled:false}") boolean embeddedExtractionEnabled) {
+		this.parser = new AutoDetectParser(TikaConfig.getDefaultConfig());
+		this.ocrEnabled = ocrEnabled;
+		this.embeddedExtractionEnabled = embeddedExtractionEnabled;
+	}
+	
+	/**
+	 * Extract the text of a resource as a single document with a {@code source} metadata
+	 * entry holding the filename.
+	 */
+	public List<Document> extract(Resource resource, String contentType, String filename) throws IOException {
+		String text = isPlainText(contentType, filename)
+			? readPlainText(resource)
+			: parse(resource, contentType, filename);
+		if (text.isBlank()) {
+			return List.of();
+		}
+		return List.of(Document.builder()
+			.text(text)
+			.metadata(SOURCE_METADATA, filename)
+			.build());
+	}
+	
+	/**
+	 * Write the text of a resource to {@code out} while it is being read, without holding
+	 * the whole text in memory. Plain text is decoded as a stream; other formats are parsed
+	 * with a SAX handler that writes body text straight through.
+	 */
+	public void stream(Resource resource, String contentType, String filename, Writer out) throws IOException {
+		if (isPlainText(contentType, filename)) {
+			try (InputStream in = new BufferedInputStream(resource.getInputStream(), CHARSET_DETECTION_BYTES)) {
+				in.mark(CHARSET_DETECTION_BYTES);
+				byte[] sample = in.readNBytes(CHARSET_DETECTION_BYTES);
+				in.reset();
+				Charset charset = sniffCharset(sample, sample.length < CHARSET_DETECTION_BYTES);
+				in.skipNBytes(bomLength(sample));
+				new InputStreamReader(in, charset).transferTo(out);
+			}
+			return;
+		}
+		parse(resource, contentType, filename, new BodyContentHandler(out));
+	}
+	
+	public boolean isPlainText(String contentType, String filename) {
+		if (contentType != null) {
+			String mediaType = contentType.split(";", 2)[0].strip().toLowerCase(Locale.ROOT);
+			if (PLAIN_TEXT_TYPES.contains(mediaType)) {
+				return true;
+			}
+		}
+		if (filename == null) {
+			return false;
+		}
+		int dot = filename.lastIndexOf('.');
+		return dot >= 0 && PLAIN_TEXT_EXTENSIONS.contains(filename.substring(dot).toLowerCase(Locale.ROOT));
+	}
+	
+	private String readPlainText(Resource resource) throws IOException {
+		byte[] bytes = resource.getContentAsByteArray();
+		return decode(bytes);
+	}
+	
+	private static String decode(byte[] bytes) {
+		int bom = bomLength(bytes);
+		if (bom > 0) {
+			return new String(bytes, bom, bytes.length - bom, sniffCharset(bytes, true));
+		}
+		try {
+			return StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT)
+				.decode(ByteBuffer.wrap(bytes))
+				.toString();
+		} catch (CharacterCodingException e) {
+			return new String(bytes, detectCharset(bytes));
+		}
+	}
+	
+	/**
+	 * Charset of text starting with {@code sample}: the BOM if there is one, UTF-8 if the
+	 * sample is valid UTF-8, otherwise the detected charset. A sample that isn't the whole
+	 * text may end in the middle of a UTF-8 sequence, which is not held against it.
+	 */
+	private static Charset sniffCharset(byte[] sample, boolean complete) {
+		if (startsWith(sample, 0xEF, 0xBB, 0xBF)) {
+			return StandardCharsets.UTF_8;
+		}
+		if (startsWith(sample, 0xFE, 0xFF)) {
+			return StandardCharsets.UTF_16BE;
+		}
+		if (startsWith(sample, 0xFF, 0xFE)) {
+			return StandardCharsets.UTF_16LE;
+		}
+		CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPORT)
+			.onUnmappableCharacter(CodingErrorAction.REPORT);
+		CharBuffer decoded = CharBuffer.allocate(sample.length);
+		CoderResult result = utf8.decode(ByteBuffer.wrap(sample), decoded, complete);
+		if (!result.isError() && complete) {
+			result = utf8.flush(decoded);
+		}
+		return result.isError() ? detectCharset(sample) : StandardCharsets.UTF_8;
+	}
+	
+	private static int bomLength(byte[] bytes) {
+		if (startsWith(bytes, 0xEF, 0xBB, 0xBF)) {
+			return 3;
+		}
+		return startsWith(bytes, 0xFE, 0xFF) || startsWith(bytes, 0xFF, 0xFE) ? 2 : 0;
+	}
+	
+	private static Charset detectCharset(byte[] bytes) {
+		byte[] sample = bytes.length > CHARSET_DETECTION_BYTES
+			? Arrays.copyOf(bytes, CHARSET_DETECTION_BYTES)
+			: bytes;
+		CharsetMatch match = new CharsetDetector().setText(sample).detect();
+		// Short or ambiguous samples give low-confidence guesses; Western text is the safer bet then
+		if (match != null && match.getConfidence() >= MIN_CHARSET_CONFIDENCE) {
+			try {
+				return Charset.forName(match.getName());
+			} catch (IllegalArgumentException e) {
+				log.debug("Detected charset {} is not supported", match.getName());
+			}
+		}
+		return FALLBACK_CHARSET;
+	}
+	
+	private String parse(Resource resource, String contentType, String filename) throws IOException {
+		ContentHandler handler = new BodyContentHandler(-1);
+		parse(resource, contentType, filename, handler);
+		return handler.toString();
+	}
+	
+	private void parse(Resource resource, String contentType, String filename, ContentHandler handler)
+		throws IOException {
+		Metadata metadata = new Metadata();
+		if (filename != null) {
+			metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, filename);
+		}
+		if (contentType != null) {
+			metadata.set(HttpHeaders.CONTENT_TYPE, contentType);
+		}
+		try (InputStream in = resource.getInputStream()) {
+			parser.parse(in, handler, metadata, newParseContext());
+		} catch (TikaException | SAXException e) {
+			throw new IOException("Could not extract text from " + filename + ": " + e.getMessage(), e);
+		}
+	}
+	
+	private ParseContext newParseContext() {
+		ParseContext context = new ParseContext();
+		if (embeddedExtractionEnabled) {
+			context.set(Parser.class, parser);
+		} else {
+			context.set(EmbeddedDocumentExtractor.class, new SkipEmbeddedDocumentExtractor());
+		}
+		if (!ocrEnabled) {
+			TesseractOCRConfig ocrConfig = new TesseractOCRConfig();
+			ocrConfig.setSkipOcr(true);
+			context.set(TesseractOCRConfig.class, ocrConfig);
+			PDFParserConfig pdfConfig = new PDFParserConfig();
+			pdfConfig.setOcrStrategy(PDFParserConfig.OCR_STRATEGY.NO_OCR);
+			pdfConfig.setExtractInlineImages(false);
+			context.set(PDFParserConfig.class, pdfConfig);
+		}
+		return context;
+	}
+	
+	private static boolean startsWith(byte[] bytes, int... prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if ((bytes[i] & 0xFF) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static final class SkipEmbeddedDocumentExtractor implements EmbeddedDocumentExtractor {
+		
+		@Override
+		public boolean shouldParseEmbedded(Metadata metadata) {
+			return false;
+		}
+		
+		@Override
+		public void parseEmbedded(InputStream stream, ContentHandler handler, Metadata metadata, boolean outputHtml) {
+		}
+	}
+}
\ No newline at end of file
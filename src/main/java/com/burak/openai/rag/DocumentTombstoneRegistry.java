@@ -0,0 +1,35 @@
+package com.burak.openai.rag;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of documents whose vectors are being deleted. Retrievers exclude these
+ * document ids from every search, so a deleted document disappears from answers right
+ * away even though its points are still being removed from the vector store. Documents
+ * whose ingestion failed are hidden the same way until they are deleted.
+ */
+@Component
+public class DocumentTombstoneRegistry {
+	
+	private final Map<String, Set<String>> tombstonesByUser = new ConcurrentHashMap<>();
+	
+	public void add(String username, String documentId) {
+		tombstonesByUser.computeIfAbsent(username, key -> ConcurrentHashMap.newKeySet()).add(documentId);
+	}
+	
+	public void remove(String username, String documentId) {
+		tombstonesByUser.computeIfPresent(username, (key, documentIds) -> {
+			documentIds.remove(documentId);
+			return documentIds.isEmpty() ? null : documentIds;
+		});
+	}
+	
+	public Set<String> getTombstones(String username) {
+		Set<String> documentIds = tombstonesByUser.get(username);
+		return documentIds == null ? Set.of() : Set.copyOf(documentIds);
+	}
+}
\ No newline at end of file
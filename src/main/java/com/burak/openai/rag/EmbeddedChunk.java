@@ -0,0 +1,20 @@
+package com.burak.openai.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Map;
+
+/**
+ * A chunk together with the vectors computed for its text, by embedding model. There is
+ * one vector unless a re-index into a collection of another model is running.
+ */
+public record EmbeddedChunk(Document document, Map<String, float[]> embeddings) {
+	
+	public float[] embedding(String model) {
+		float[] embedding = embeddings.get(model);
+		if (embedding == null) {
+			throw new IllegalArgumentException("Chunk " + document.getId() + " has no " + model + " embedding");
+		}
+		return embedding;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.burak.openai.rag;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.qdrant.client.grpc.Points.Filter;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link ChunkPointStore} over the in-process {@link EmbeddedVectorStore}. The store has a
+ * single collection, so collection names are ignored; writes are applied before the
+ * returned future completes.
+ */
+public class EmbeddedPointStore implements ChunkPointStore {
+	
+	private final EmbeddedVectorStore embeddedStore;
+	
+	public EmbeddedPointStore(EmbeddedVectorStore embeddedStore) {
+		this.embeddedStore = embeddedStore;
+	}
+	
+	@Override
+	public ListenableFuture<?> upsert(String collectionName, List<Document> points, List<float[]> vectors) {
+		embeddedStore.upsert(points, vectors);
+		return Futures.immediateFuture(null);
+	}
+	
+	@Override
+	public void delete(String collectionName, List<String> pointIds) {
+		embeddedStore.delete(pointIds);
+	}
+	
+	@Override
+	public long delete(String collectionName, Filter filter) {
+		return embeddedStore.removeIf(PayloadFilters.matcher(filter));
+	}
+	
+	@Override
+	public void setPayload(String collectionName, Filter filter, Map<String, Object> fields) {
+		embeddedStore.updatePayload(PayloadFilters.matcher(filter), fields);
+	}
+	
+	@Override
+	public long count(String collectionName, Filter filter) {
+		return embeddedStore.count(PayloadFilters.matcher(filter));
+	}
+	
+	@Override
+	public long scan(String collectionName, Filter filter, List<String> fields, int pageSize,
+	                 Consumer<List<Map<String, Object>>> pageConsumer) {
+		return embeddedStore.scan(PayloadFilters.matcher(filter), fields, pageSize, pageConsumer);
+	}
+	
+	@Override
+	public long scanPoints(String collectionName, int pageSize, Consumer<List<Document>> pageConsumer) {
+		return embeddedStore.scanPoints(pageSize, pageConsumer);
+	}
+	
+	@Override
+	public void ensurePayloadIndexes(String collectionName, List<String> fields) {
+		// Payloads are filtered in memory
+	}
+}
\ No newline at end of file
@@ -0,0 +1,810 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-process {@link VectorStore}, used instead of Qdrant when
+ * {@code document.vector-store.type=embedded}. Vectors live off-heap in memory-mapped
+ * files ({@link MappedVectorFile}); points are indexed in one HNSW graph per user, keyed by
+ * the entries of their {@code users} field, plus a shared graph for points without users
+ * (the seed corpus). A search filtered on {@code users == name}, which is how user
+ * retrieval searches, only walks that user's graph. Other searches walk every graph and
+ * merge the hits.
+ * <p>
+ * Graphs smaller than {@code exactSearchThreshold} are searched by brute force. With
+ * {@code quantize} the graphs are traversed on int8 codes and the hits rescored with the
+ * float vectors. Points are kept in memory without their vectors, so metadata filters are
+ * evaluated in process.
+ * <p>
+ * {@link #snapshot()} writes the points and graphs next to the vector files, and the
+ * store reloads them on start. Updates after the last snapshot are lost on a crash;
+ * slots freed since the last snapshot are not reused before the next one, so a snapshot
+ * never points at an overwritten vector.
+ */
+@Slf4j
+public class EmbeddedVectorStore implements VectorStore, Closeable {
+	
+	static final String SNAPSHOT_FILE = "snapshot.bin";
+	
+	private static final String SHARED_PARTITION = "";
+	private static final String USERS_FIELD = "users";
+	private static final int SNAPSHOT_MAGIC = 0x484e5357;
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final int MIN_DELETED_FOR_REBUILD = 64;
+	private static final long GRAPH_SEED = 42;
+	
+	private final EmbeddingModel embeddingModel;
+	private final ChunkTextStore chunkTextStore;
+	private final Path directory;
+	private final MappedVectorFile vectors;
+	private final int m;
+	private final int efConstruction;
+	private final int efSearch;
+	private final int exactSearchThreshold;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Point> points = new HashMap<>();
+	private final Map<String, HnswIndex> partitions = new HashMap<>();
+	private final Deque<Integer> freeSlots = new ArrayDeque<>();
+	private final List<Integer> releasedSlots = new ArrayList<>();
+	private Point[] pointsBySlot = new Point[1024];
+	// Number of graphs that hold a node for each slot, deleted nodes included
+	private int[] slotReferences = new int[1024];
+	private int nextSlot;
+	private boolean dirty;
+	
+	private record Point(String id, String text, Map<String, Object> metadata, int slot) {}
+	
+	private EmbeddedVectorStore(EmbeddingModel embeddingModel, ChunkTextStore chunkTextStore, Path directory,
+	                            int dimensions, boolean quantize, int m, int efConstruction, int efSearch,
+	                            int exactSearchThreshold) throws IOException {
+		this.embeddingModel = embeddingModel;
+		this.chunkTextStore = chunkTextStore;
+		this.directory = directory;
+		this.vectors = new MappedVectorFile(directory, dimensions, quantize);
+		this.m = m;
+		this.efConstruction = efConstruction;
+		this.efSearch = efSearch;
+		this.exactSearchThreshold = exactSearchThreshold;
+		if (Files.exists(directory.resolve(SNAPSHOT_FILE))) {
+			load();
+		}
+	}
+	
+	@Override
+	public void add(List<Document> documents) {
+		List<float[]> embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+			new TokenCountBatchingStrategy());
+		upsert(documents, embeddings);
+	}
+	
+	/**
+	 * Insert or replace points with vectors that are already computed. The document
+	 * metadata becomes the point payload.
+	 */
+	public void upsert(List<Document> documents, List<float[]> embeddings) {
+		Assert.isTrue(documents.size() == embeddings.size(), "Every document needs an embedding");
+		lock.writeLock().lock();
+		try {
+			for (int i = 0; i < documents.size(); i++) {
+				Document document = documents.get(i);
+				Point previous = points.get(document.getId());
+				if (previous != null) {
+					removePoint(previous);
+				}
+				int slot = allocateSlot();
+				vectors.put(slot, embeddings.get(i));
+				Point point = new Point(document.getId(), document.getText() != null ? document.getText() : "",
+					new HashMap<>(document.getMetadata()), slot);
+				points.put(point.id(), point);
+				pointsBySlot[slot] = point;
+				for (String partition : partitionsOf(point.metadata())) {
+					addToPartition(partition, slot);
+				}
+			}
+			dirty = true;
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write vectors to " + directory, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void delete(List<String> idList) {
+		lock.writeLock().lock();
+		try {
+			for (String id : idList) {
+				Point point = points.get(id);
+				if (point != null) {
+					removePoint(point);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void delete(Filter.Expression filterExpression) {
+		removeIf(matcher(filterExpression));
+	}
+	
+	/**
+	 * Delete every point whose payload matches.
+	 *
+	 * @return number of deleted points
+	 */
+	public long removeIf(Predicate<Map<String, Object>> payloadFilter) {
+		lock.writeLock().lock();
+		try {
+			List<Point> matching = points.values().stream()
+				.filter(point -> payloadFilter.test(point.metadata()))
+				.toList();
+			matching.forEach(this::removePoint);
+			return matching.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Overwrite payload fields of every point whose payload matches; fields not given are
+	 * left as they are. A changed {@code users} field moves the points between graphs.
+	 */
+	public void updatePayload(Predicate<Map<String, Object>> payloadFilter, Map<String, Object> fields) {
+		lock.writeLock().lock();
+		try {
+			for (Point point : List.copyOf(points.values())) {
+				if (!payloadFilter.test(point.metadata())) {
+					continue;
+				}
+				Set<String> before = partitionsOf(point.metadata());
+				point.metadata().putAll(fields);
+				Set<String> after = partitionsOf(point.metadata());
+				for (String partition : before) {
+					if (!after.contains(partition)) {
+						removeFromPartition(partition, point.slot());
+					}
+				}
+				for (String partition : after) {
+					if (!before.contains(partition)) {
+						addToPartition(partition, point.slot());
+					}
+				}
+				dirty = true;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public long count(Predicate<Map<String, Object>> payloadFilter) {
+		lock.readLock().lock();
+		try {
+			return points.values().stream().filter(point -> payloadFilter.test(point.metadata())).count();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Hand the given payload fields of the points whose payload matches to the consumer
+	 * page by page, one map per point. The values are collected first, so the consumer may
+	 * delete points.
+	 *
+	 * @return number of points scanned
+	 */
+	public long scan(Predicate<Map<String, Object>> payloadFilter, List<String> fields, int pageSize,
+	                 Consumer<List<Map<String, Object>>> pageConsumer) {
+		List<Map<String, Object>> values;
+		lock.readLock().lock();
+		try {
+			values = points.values().stream()
+				.filter(point -> payloadFilter.test(point.metadata()))
+				.map(point -> {
+					Map<String, Object> selected = new HashMap<>();
+					for (String field : fields) {
+						Object fieldValue = point.metadata().get(field);
+						if (fieldValue != null) {
+							selected.put(field, fieldValue);
+						}
+					}
+					return selected;
+				})
+				.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (int start = 0; start < values.size(); start += pageSize) {
+			pageConsumer.accept(values.subList(start, Math.min(start + pageSize, values.size())));
+		}
+		return values.size();
+	}
+	
+	/**
+	 * Hand the points to the consumer page by page, with their text and payload. The
+	 * points are collected first, so the consumer may change the store.
+	 *
+	 * @return number of points scanned
+	 */
+	public long scanPoints(int pageSize, Consumer<List<Document>> pageConsumer) {
+		List<Document> documents;
+		lock.readLock().lock();
+		try {
+			documents = points.values().stream()
+				.map(point -> Document.builder()
+					.id(point.id())
+					.text(point.text())
+					.metadata(new HashMap<>(point.metadata()))
+					.build())
+				.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (int start = 0; start < documents.size(); start += pageSize) {
+			pageConsumer.accept(documents.subList(start, Math.min(start + pageSize, documents.size())));
+		}
+		return documents.size();
+	}
+	
+	/**
+	 * Vector slots handed out so far, free ones included.
+	 */
+	int allocatedSlots() {
+		lock.readLock().lock();
+		try {
+			return nextSlot;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<Document> similaritySearch(SearchRequest request) {
+		float[] embedding = embeddingModel.embed(request.getQuery());
+		Predicate<Map<String, Object>> payloadFilter = request.hasFilterExpression()
+			? matcher(request.getFilterExpression())
+			: payload -> true;
+		String pinnedUser = request.hasFilterExpression() ? pinnedUser(request.getFilterExpression()) : null;
+		
+		Map<Integer, Float> scores = new HashMap<>();
+		List<Document> results;
+		lock.readLock().lock();
+		try {
+			MappedVectorFile.Query query = vectors.query(embedding);
+			Collection<HnswIndex> graphs = pinnedUser == null
+				? partitions.values()
+				: partitions.containsKey(pinnedUser) ? List.of(partitions.get(pinnedUser)) : List.of();
+			for (HnswIndex graph : graphs) {
+				for (HnswIndex.Hit hit : search(graph, query, request.getTopK(), payloadFilter)) {
+					scores.put(hit.slot(), hit.score());
+				}
+			}
+			
+			results = scores.entrySet().stream()
+				.filter(entry -> entry.getValue() >= request.getSimilarityThreshold())
+				.sorted(Map.Entry.<Integer, Float>comparingByValue(Comparator.reverseOrder()))
+				.limit(request.getTopK())
+				.map(entry -> toDocument(pointsBySlot[entry.getKey()], entry.getValue()))
+				.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+		return chunkTextStore != null ? chunkTextStore.hydrate(results) : results;
+	}
+	
+	private List<HnswIndex.Hit> search(HnswIndex graph, MappedVectorFile.Query query, int topK,
+	                                   Predicate<Map<String, Object>> payloadFilter) {
+		if (graph.liveCount() > exactSearchThreshold) {
+			return graph.search(query, topK, efSearch, slot -> payloadFilter.test(pointsBySlot[slot].metadata()));
+		}
+		List<HnswIndex.Hit> hits = new ArrayList<>();
+		for (int slot : graph.liveSlots()) {
+			if (payloadFilter.test(pointsBySlot[slot].metadata())) {
+				hits.add(new HnswIndex.Hit(slot, vectors.score(slot, query)));
+			}
+		}
+		return hits;
+	}
+	
+	private static Document toDocument(Point point, float score) {
+		Map<String, Object> metadata = new HashMap<>(point.metadata());
+		metadata.put(DocumentMetadata.DISTANCE.value(), 1 - score);
+		return Document.builder()
+			.id(point.id())
+			.text(point.text())
+			.metadata(metadata)
+			.score((double) score)
+			.build();
+	}
+	
+	/**
+	 * Write points and graphs to the snapshot file, if anything changed since the last
+	 * one. The file is replaced atomically; searches keep running meanwhile.
+	 */
+	public synchronized void snapshot() {
+		int released;
+		lock.readLock().lock();
+		try {
+			if (!dirty) {
+				return;
+			}
+			released = releasedSlots.size();
+			long startNanos = System.nanoTime();
+			vectors.force();
+			Path target = directory.resolve(SNAPSHOT_FILE);
+			Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				writeSnapshot(out);
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			dirty = false;
+			log.info("Wrote vector store snapshot with {} points in {} graphs in {} ms", points.size(),
+				partitions.size(), (System.nanoTime() - startNanos) / 1_000_000);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write vector store snapshot to " + directory, e);
+		} finally {
+			lock.readLock().unlock();
+		}
+		// Slots freed before this snapshot are no longer referenced by the file on disk
+		lock.writeLock().lock();
+		try {
+			List<Integer> reusable = releasedSlots.subList(0, released);
+			freeSlots.addAll(reusable);
+			reusable.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		snapshot();
+		vectors.close();
+	}
+	
+	private void writeSnapshot(DataOutputStream out) throws IOException {
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeInt(SNAPSHOT_VERSION);
+		out.writeInt(vectors.dimensions());
+		out.writeBoolean(vectors.quantized());
+		out.writeInt(nextSlot);
+		out.writeInt(points.size());
+		for (Point point : points.values()) {
+			writeString(out, point.id());
+			writeString(out, point.text());
+			out.writeInt(point.slot());
+			writeValue(out, point.metadata());
+		}
+		out.writeInt(nextSlot);
+		for (int slot = 0; slot < nextSlot; slot++) {
+			out.writeInt(slotReferences[slot]);
+		}
+		out.writeInt(partitions.size());
+		for (Map.Entry<String, HnswIndex> partition : partitions.entrySet()) {
+			writeString(out, partition.getKey());
+			partition.getValue().write(out);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void load() throws IOException {
+		long startNanos = System.nanoTime();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+			Files.newInputStream(directory.resolve(SNAPSHOT_FILE))))) {
+			if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+				throw new IOException("Not a vector store snapshot");
+			}
+			int dimensions = in.readInt();
+			if (dimensions != vectors.dimensions()) {
+				throw new IOException("Snapshot has " + dimensions + " dimensions, expected " + vectors.dimensions()
+					+ "; remove " + directory + " to start over");
+			}
+			boolean quantized = in.readBoolean();
+			nextSlot = in.readInt();
+			ensureSlotCapacity(nextSlot);
+			int pointCount = in.readInt();
+			for (int i = 0; i < pointCount; i++) {
+				String id = readString(in);
+				String text = readString(in);
+				int slot = in.readInt();
+				Point point = new Point(id, text, (Map<String, Object>) readValue(in), slot);
+				points.put(id, point);
+				pointsBySlot[slot] = point;
+			}
+			int slots = in.readInt();
+			for (int slot = 0; slot < slots; slot++) {
+				slotReferences[slot] = in.readInt();
+				if (slotReferences[slot] == 0) {
+					freeSlots.add(slot);
+				}
+			}
+			int partitionCount = in.readInt();
+			for (int i = 0; i < partitionCount; i++) {
+				String partition = readString(in);
+				partitions.put(partition, HnswIndex.read(in, vectors, m, efConstruction, GRAPH_SEED));
+			}
+			if (quantized != vectors.quantized()) {
+				// The int8 codes are missing or stale: derive them again from the float vectors
+				for (int slot = 0; slot < nextSlot; slot++) {
+					if (slotReferences[slot] > 0) {
+						vectors.put(slot, vectors.get(slot));
+					}
+				}
+				dirty = true;
+			}
+		}
+		log.info("Loaded {} points in {} graphs from {} in {} ms", points.size(), partitions.size(), directory,
+			(System.nanoTime() - startNanos) / 1_000_000);
+	}
+	
+	private void removePoint(Point point) {
+		points.remove(point.id());
+		pointsBySlot[point.slot()] = null;
+		for (String partition : partitionsOf(point.metadata())) {
+			removeFromPartition(partition, point.slot());
+		}
+		dirty = true;
+	}
+	
+	private void addToPartition(String partition, int slot) {
+		HnswIndex graph = partitions.computeIfAbsent(partition,
+			key -> new HnswIndex(vectors, m, efConstruction, GRAPH_SEED));
+		if (graph.insert(slot)) {
+			slotReferences[slot]++;
+		}
+	}
+	
+	/**
+	 * Mark the slot deleted in a graph and rebuild the graph once deleted nodes make up
+	 * half of it.
+	 */
+	private void removeFromPartition(String partition, int slot) {
+		HnswIndex graph = partitions.get(partition);
+		if (graph == null || !graph.markDeleted(slot)) {
+			return;
+		}
+		if (graph.liveCount() == 0) {
+			partitions.remove(partition);
+			Arrays.stream(graph.deletedSlots()).forEach(this::releaseSlot);
+			return;
+		}
+		if (graph.deletedCount() < Math.max(MIN_DELETED_FOR_REBUILD, graph.liveCount())) {
+			return;
+		}
+		HnswIndex rebuilt = new HnswIndex(vectors, m, efConstruction, GRAPH_SEED);
+		for (int live : graph.liveSlots()) {
+			rebuilt.insert(live);
+		}
+		partitions.put(partition, rebuilt);
+		Arrays.stream(graph.deletedSlots()).forEach(this::releaseSlot);
+		log.debug("Rebuilt graph {} with {} nodes, dropped {} deleted", partition, rebuilt.size(),
+			graph.deletedCount());
+	}
+	
+	private void releaseSlot(int slot) {
+		if (--slotReferences[slot] == 0) {
+			releasedSlots.add(slot);
+		}
+	}
+	
+	private int allocateSlot() {
+		Integer free = freeSlots.poll();
+		if (free != null) {
+			return free;
+		}
+		ensureSlotCapacity(nextSlot + 1);
+		return nextSlot++;
+	}
+	
+	private void ensureSlotCapacity(int capacity) {
+		if (capacity > pointsBySlot.length) {
+			int length = Math.max(capacity, pointsBySlot.length * 2);
+			pointsBySlot = Arrays.copyOf(pointsBySlot, length);
+			slotReferences = Arrays.copyOf(slotReferences, length);
+		}
+	}
+	
+	private static Set<String> partitionsOf(Map<String, Object> metadata) {
+		Set<String> partitions = new LinkedHashSet<>();
+		if (metadata.get(USERS_FIELD) instanceof Collection<?> users) {
+			users.forEach(user -> partitions.add(String.valueOf(user)));
+		}
+		if (partitions.isEmpty()) {
+			partitions.add(SHARED_PARTITION);
+		}
+		return partitions;
+	}
+	
+	/**
+	 * The user a filter restricts results to, when it is {@code users == name} on its own
+	 * or as part of a conjunction.
+	 */
+	private static String pinnedUser(Filter.Operand operand) {
+		if (operand instanceof Filter.Group group) {
+			return pinnedUser(group.content());
+		}
+		if (!(operand instanceof Filter.Expression expression)) {
+			return null;
+		}
+		if (expression.type() == Filter.ExpressionType.AND) {
+			String left = pinnedUser(expression.left());
+			return left != null ? left : pinnedUser(expression.right());
+		}
+		if (expression.type() == Filter.ExpressionType.EQ && expression.left() instanceof Filter.Key key
+			&& USERS_FIELD.equals(key.key()) && expression.right() instanceof Filter.Value value) {
+			return String.valueOf(value.value());
+		}
+		return null;
+	}
+	
+	/**
+	 * Payload predicate for a Spring AI filter expression. A list field matches a
+	 * comparison when any of its elements does, as in Qdrant.
+	 */
+	static Predicate<Map<String, Object>> matcher(Filter.Operand operand) {
+		if (operand instanceof Filter.Group group) {
+			return matcher(group.content());
+		}
+		if (!(operand instanceof Filter.Expression expression)) {
+			throw new IllegalArgumentException("Unsupported filter operand: " + operand);
+		}
+		return switch (expression.type()) {
+			case AND -> matcher(expression.left()).and(matcher(expression.right()));
+			case OR -> matcher(expression.left()).or(matcher(expression.right()));
+			case NOT -> matcher(expression.left()).negate();
+			case EQ -> field(expression, (fieldValue, value) -> compare(fieldValue, value) == 0);
+			case NE -> field(expression, (fieldValue, value) -> compare(fieldValue, value) == 0).negate();
+			case GT -> field(expression, (fieldValue, value) -> compare(fieldValue, value) > 0);
+			case GTE -> field(expression, (fieldValue, value) -> compare(fieldValue, value) >= 0);
+			case LT -> field(expression, (fieldValue, value) -> compare(fieldValue, value) < 0);
+			case LTE -> field(expression, (fieldValue, value) -> compare(fieldValue, value) <= 0);
+			case IN -> field(expression, EmbeddedVectorStore::isIn);
+			case NIN -> field(expression, EmbeddedVectorStore::isIn).negate();
+		};
+	}
+	
+	private static Predicate<Map<String, Object>> field(Filter.Expression expression,
+	                                                    BiPredicate<Object, Object> test) {
+		if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+			throw new IllegalArgumentException("Unsupported filter expression: " + expression);
+		}
+		return payload -> {
+			Object fieldValue = payload.get(key.key());
+			if (fieldValue instanceof Collection<?> elements) {
+				return elements.stream().anyMatch(element -> test.test(element, value.value()));
+			}
+			return fieldValue != null && test.test(fieldValue, value.value());
+		};
+	}
+	
+	private static boolean isIn(Object fieldValue, Object values) {
+		if (values instanceof Collection<?> candidates) {
+			return candidates.stream().anyMatch(candidate -> compare(fieldValue, candidate) == 0);
+		}
+		return compare(fieldValue, values) == 0;
+	}
+	
+	/**
+	 * Numbers compare by value whatever their type, everything else by its string form.
+	 */
+	private static int compare(Object fieldValue, Object value) {
+		if (fieldValue instanceof Number a && value instanceof Number b) {
+			return Double.compare(a.doubleValue(), b.doubleValue());
+		}
+		return String.valueOf(fieldValue).compareTo(String.valueOf(value));
+	}
+	
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static String readString(DataInputStream in) throws IOException {
+		return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Payload values as written by the chunk writer: strings, numbers, booleans, lists and
+	 * maps. Anything else is kept as its string form.
+	 */
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		switch (value) {
+			case null -> out.writeByte('n');
+			case String text -> {
+				out.writeByte('s');
+				writeString(out, text);
+			}
+			case Integer number -> {
+				out.writeByte('i');
+				out.writeInt(number);
+			}
+			case Long number -> {
+				out.writeByte('l');
+				out.writeLong(number);
+			}
+			case Number number -> {
+				out.writeByte('d');
+				out.writeDouble(number.doubleValue());
+			}
+			case Boolean flag -> {
+				out.writeByte('b');
+				out.writeBoolean(flag);
+			}
+			case Collection<?> values -> {
+				out.writeByte('a');
+				out.writeInt(values.size());
+				for (Object element : values) {
+					writeValue(out, element);
+				}
+			}
+			case Map<?, ?> fields -> {
+				out.writeByte('m');
+				out.writeInt(fields.size());
+				for (Map.Entry<?, ?> field : fields.entrySet()) {
+					writeString(out, String.valueOf(field.getKey()));
+					writeValue(out, field.getValue());
+				}
+			}
+			default -> {
+				out.writeByte('s');
+				writeString(out, value.toString());
+			}
+		}
+	}
+	
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		return switch (type) {
+			case 'n' -> null;
+			case 's' -> readString(in);
+			case 'i' -> in.readInt();
+			case 'l' -> in.readLong();
+			case 'd' -> in.readDouble();
+			case 'b' -> in.readBoolean();
+			case 'a' -> {
+				int size = in.readInt();
+				List<Object> values = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					values.add(readValue(in));
+				}
+				yield values;
+			}
+			case 'm' -> {
+				int size = in.readInt();
+				Map<String, Object> fields = new LinkedHashMap<>();
+				for (int i = 0; i < size; i++) {
+					fields.put(readString(in), readValue(in));
+				}
+				yield fields;
+			}
+			default -> throw new IOException("Unknown value type " + type + " in snapshot");
+		};
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	public static class Builder {
+		private EmbeddingModel embeddingModel;
+		private ChunkTextStore chunkTextStore;
+		private Path directory;
+		private int dimensions = 1536;
+		private boolean quantize = false;
+		private int m = 16;
+		private int efConstruction = 200;
+		private int efSearch = 64;
+		private int exactSearchThreshold = 2000;
+		
+		private Builder() {}
+		
+		public Builder embeddingModel(EmbeddingModel embeddingModel) {
+			this.embeddingModel = embeddingModel;
+			return this;
+		}
+		
+		public Builder chunkTextStore(ChunkTextStore chunkTextStore) {
+			this.chunkTextStore = chunkTextStore;
+			return this;
+		}
+		
+		public Builder directory(Path directory) {
+			this.directory = directory;
+			return this;
+		}
+		
+		public Builder dimensions(int dimensions) {
+			this.dimensions = dimensions;
+			return this;
+		}
+		
+		/**
+		 * Traverse the graphs on int8 codes (a quarter of the memory traffic) and rescore the
+		 * hits with the float vectors.
+		 */
+		public Builder quantize(boolean quantize) {
+			this.quantize = quantize;
+			return this;
+		}
+		
+		/**
+		 * Links per node and level; twice as many on the bottom level.
+		 */
+		public Builder m(int m) {
+			this.m = m;
+			return this;
+		}
+		
+		public Builder efConstruction(int efConstruction) {
+			this.efConstruction = efConstruction;
+			return this;
+		}
+		
+		public Builder efSearch(int efSearch) {
+			this.efSearch = efSearch;
+			return this;
+		}
+		
+		/**
+		 * Graphs with at most this many live points are searched by brute force.
+		 */
+		public Builder exactSearchThreshold(int exactSearchThreshold) {
+			this.exactSearchThreshold = exactSearchThreshold;
+			return this;
+		}
+		
+		public EmbeddedVectorStore build() {
+			Assert.notNull(embeddingModel, "embeddingModel must be set");
+			Assert.notNull(directory, "directory must be set");
+			Assert.isTrue(m >= 2, "m must be at least 2");
+			Assert.isTrue(efConstruction >= m, "efConstruction must be at least m");
+			Assert.isTrue(efSearch > 0, "efSearch must be greater than 0");
+			Assert.isTrue(exactSearchThreshold >= 0, "exactSearchThreshold must not be negative");
+			try {
+				return new EmbeddedVectorStore(embeddingModel, chunkTextStore, directory, dimensions, quantize, m,
+					efConstruction, efSearch, exactSearchThreshold);
+			} catch (IOException e) {
+				throw new RuntimeException("Could not open embedded vector store in " + directory, e);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.burak.openai.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The embedding models chunks and queries are embedded with, by model id. Everything is
+ * embedded with the configured model ({@code spring.ai.openai.embedding.options.model})
+ * unless a re-index targets another model of the same provider
+ * ({@code document.reindex.embedding-model}); that model is requested per call through
+ * the request options. The {@link CollectionRouter} records which model each collection
+ * it routes to was embedded with.
+ */
+@Component
+public class EmbeddingModelRegistry {
+	
+	private final EmbeddingModel embeddingModel;
+	private final String defaultModel;
+	private final String reindexModel;
+	private final Integer reindexDimensions;
+	private final Map<String, EmbeddingModel> models = new ConcurrentHashMap<>();
+	private final Map<String, Integer> dimensions = new ConcurrentHashMap<>();
+	
+	public EmbeddingModelRegistry(EmbeddingModel embeddingModel,
+	                              @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String defaultModel,
+	                              @Value("${document.reindex.embedding-model:}") String reindexModel,
+	                              @Value("${document.reindex.embedding-dimensions:0}") int reindexDimensions) {
+		this.embeddingModel = embeddingModel;
+		this.defaultModel = defaultModel;
+		this.reindexModel = reindexModel.isBlank() ? defaultModel : reindexModel;
+		// The provider's default size unless the model supports shortened vectors
+		this.reindexDimensions = reindexDimensions > 0 ? reindexDimensions : null;
+	}
+	
+	public String getDefaultModel() {
+		return defaultModel;
+	}
+	
+	/**
+	 * Model the next re-index embeds its target collection with.
+	 */
+	public String getReindexModel() {
+		return reindexModel;
+	}
+	
+	public EmbeddingModel get(String model) {
+		if (model.equals(defaultModel)) {
+			return embeddingModel;
+		}
+		return models.computeIfAbsent(model, name -> new RequestedModel(embeddingModel, EmbeddingOptionsBuilder.builder()
+			.withModel(name)
+			.withDimensions(name.equals(reindexModel) ? reindexDimensions : null)
+			.build()));
+	}
+	
+	/**
+	 * Vector size of the model, asked from the provider once.
+	 */
+	public int dimensions(String model) {
+		return dimensions.computeIfAbsent(model, name -> get(name).dimensions());
+	}
+	
+	/**
+	 * The configured model client with the model (and vector size) of every request
+	 * replaced by the given options.
+	 */
+	private record RequestedModel(EmbeddingModel delegate, EmbeddingOptions options) implements EmbeddingModel {
+		
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			return delegate.call(new EmbeddingRequest(request.getInstructions(), options));
+		}
+		
+		@Override
+		public float[] embed(Document document) {
+			return embed(document.getText());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,480 @@
+package com.burak.openai.rag;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph (Malkov &amp; Yashunin) over vectors of a
+ * {@link MappedVectorFile}. The graph refers to vectors by slot, so several graphs can
+ * share the same file; nodes have local ids in insertion order.
+ * <p>
+ * Inserts use exact scores and the neighbor selection heuristic. Searches traverse with
+ * the int8 scores when the file is quantized and rescore the candidates with the float
+ * vectors. Deleted nodes stay in the graph for routing and are skipped in results until
+ * the graph is rebuilt.
+ * <p>
+ * Not synchronized: inserts and deletes must not run concurrently with anything else,
+ * searches may run concurrently with each other.
+ */
+final class HnswIndex {
+	
+	private static final int FORMAT_VERSION = 1;
+	
+	private final MappedVectorFile vectors;
+	private final int maxConnections;
+	private final int maxConnectionsLayer0;
+	private final int efConstruction;
+	private final double levelMultiplier;
+	private final Random random;
+	private final Map<Integer, Integer> nodeBySlot = new HashMap<>();
+	private final BitSet deleted = new BitSet();
+	private int[] slots = new int[16];
+	// links[node][level] holds the neighbor count followed by the neighbor node ids
+	private int[][][] links = new int[16][][];
+	private int size;
+	private int deletedCount;
+	private int entryPoint = -1;
+	private int maxLevel = -1;
+	
+	/**
+	 * A search hit: the vector slot and its exact similarity to the query.
+	 */
+	record Hit(int slot, float score) {}
+	
+	HnswIndex(MappedVectorFile vectors, int m, int efConstruction, long seed) {
+		if (m < 2 || efConstruction < m) {
+			throw new IllegalArgumentException("m must be at least 2 and efConstruction at least m");
+		}
+		this.vectors = vectors;
+		this.maxConnections = m;
+		this.maxConnectionsLayer0 = 2 * m;
+		this.efConstruction = efConstruction;
+		this.levelMultiplier = 1 / Math.log(m);
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Nodes in the graph, including deleted ones.
+	 */
+	int size() {
+		return size;
+	}
+	
+	int deletedCount() {
+		return deletedCount;
+	}
+	
+	int liveCount() {
+		return size - deletedCount;
+	}
+	
+	/**
+	 * Slots of the nodes that are not deleted.
+	 */
+	int[] liveSlots() {
+		int[] live = new int[liveCount()];
+		int count = 0;
+		for (int node = deleted.nextClearBit(0); node < size; node = deleted.nextClearBit(node + 1)) {
+			live[count++] = slots[node];
+		}
+		return live;
+	}
+	
+	/**
+	 * Slots of the deleted nodes.
+	 */
+	int[] deletedSlots() {
+		return deleted.stream().map(node -> slots[node]).toArray();
+	}
+	
+	/**
+	 * Add the vector in {@code slot} to the graph. A deleted node of the same slot is
+	 * revived instead, since its vector and links are still valid.
+	 *
+	 * @return {@code true} if a new node was added
+	 */
+	boolean insert(int slot) {
+		Integer existing = nodeBySlot.get(slot);
+		if (existing != null) {
+			if (deleted.get(existing)) {
+				deleted.clear(existing);
+				deletedCount--;
+			}
+			return false;
+		}
+		
+		int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+		int node = size++;
+		if (node == slots.length) {
+			slots = Arrays.copyOf(slots, node * 2);
+			links = Arrays.copyOf(links, node * 2);
+		}
+		slots[node] = slot;
+		links[node] = new int[level + 1][];
+		for (int l = 0; l <= level; l++) {
+			links[node][l] = new int[1 + maxConnections(l)];
+		}
+		nodeBySlot.put(slot, node);
+		
+		if (entryPoint < 0) {
+			entryPoint = node;
+			maxLevel = level;
+			return true;
+		}
+		
+		MappedVectorFile.Query query = vectors.query(vectors.get(slot));
+		int current = entryPoint;
+		for (int l = maxLevel; l > level; l--) {
+			current = greedyClosest(query, current, l, false);
+		}
+		for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+			long[] candidates = searchLayer(query, current, efConstruction, l, false, null);
+			int[] neighbors = selectNeighbors(candidates, maxConnections(l));
+			System.arraycopy(neighbors, 0, links[node][l], 1, neighbors.length);
+			links[node][l][0] = neighbors.length;
+			for (int neighbor : neighbors) {
+				connect(neighbor, node, l);
+			}
+			current = ScoredNode.node(candidates[0]);
+		}
+		if (level > maxLevel) {
+			entryPoint = node;
+			maxLevel = level;
+		}
+		return true;
+	}
+	
+	/**
+	 * Skip the slot in search results. Its node keeps routing searches until the graph is
+	 * rebuilt.
+	 *
+	 * @return {@code true} if the slot was live in this graph
+	 */
+	boolean markDeleted(int slot) {
+		Integer node = nodeBySlot.get(slot);
+		if (node == null || deleted.get(node)) {
+			return false;
+		}
+		deleted.set(node);
+		deletedCount++;
+		return true;
+	}
+	
+	/**
+	 * The {@code k} live nodes closest to the query among those whose slot is accepted,
+	 * best first.
+	 *
+	 * @param ef size of the candidate list; larger is slower and more accurate
+	 */
+	List<Hit> search(MappedVectorFile.Query query, int k, int ef, IntPredicate acceptSlot) {
+		if (entryPoint < 0 || liveCount() == 0) {
+			return List.of();
+		}
+		boolean approximate = vectors.quantized();
+		int current = entryPoint;
+		for (int l = maxLevel; l > 0; l--) {
+			current = greedyClosest(query, current, l, approximate);
+		}
+		long[] candidates = searchLayer(query, current, Math.max(ef, k), 0, approximate,
+			node -> !deleted.get(node) && (acceptSlot == null || acceptSlot.test(slots[node])));
+		
+		List<Hit> hits = new ArrayList<>(candidates.length);
+		for (long candidate : candidates) {
+			int slot = slots[ScoredNode.node(candidate)];
+			hits.add(new Hit(slot, approximate ? vectors.score(slot, query) : ScoredNode.score(candidate)));
+		}
+		if (approximate) {
+			hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+		}
+		return hits.size() > k ? List.copyOf(hits.subList(0, k)) : hits;
+	}
+	
+	private int maxConnections(int level) {
+		return level == 0 ? maxConnectionsLayer0 : maxConnections;
+	}
+	
+	private float score(MappedVectorFile.Query query, int node, boolean approximate) {
+		return approximate ? vectors.approximateScore(slots[node], query) : vectors.score(slots[node], query);
+	}
+	
+	private int greedyClosest(MappedVectorFile.Query query, int start, int level, boolean approximate) {
+		int best = start;
+		float bestScore = score(query, start, approximate);
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			int[] neighbors = links[best][level];
+			for (int i = 1; i <= neighbors[0]; i++) {
+				float neighborScore = score(query, neighbors[i], approximate);
+				if (neighborScore > bestScore) {
+					bestScore = neighborScore;
+					best = neighbors[i];
+					improved = true;
+				}
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Beam search on one level. Nodes the filter rejects are still traversed but never
+	 * returned, so a selective filter widens the search instead of emptying the result.
+	 *
+	 * @return up to {@code ef} accepted nodes as {@link ScoredNode}s, best first
+	 */
+	private long[] searchLayer(MappedVectorFile.Query query, int start, int ef, int level, boolean approximate,
+	                           IntPredicate accept) {
+		BitSet visited = new BitSet(size);
+		LongHeap candidates = new LongHeap(ef * 2);
+		LongHeap results = new LongHeap(ef + 1);
+		long first = ScoredNode.of(score(query, start, approximate), start);
+		visited.set(start);
+		candidates.push(ScoredNode.reversed(first));
+		if (accept == null || accept.test(start)) {
+			results.push(first);
+		}
+		while (!candidates.isEmpty()) {
+			long candidate = ScoredNode.reversed(candidates.pop());
+			if (results.size() >= ef && ScoredNode.score(candidate) < ScoredNode.score(results.peek())) {
+				break;
+			}
+			int[] neighbors = links[ScoredNode.node(candidate)][level];
+			for (int i = 1; i <= neighbors[0]; i++) {
+				int neighbor = neighbors[i];
+				if (visited.get(neighbor)) {
+					continue;
+				}
+				visited.set(neighbor);
+				float neighborScore = score(query, neighbor, approximate);
+				if (results.size() < ef || neighborScore > ScoredNode.score(results.peek())) {
+					long scored = ScoredNode.of(neighborScore, neighbor);
+					candidates.push(ScoredNode.reversed(scored));
+					if (accept == null || accept.test(neighbor)) {
+						results.push(scored);
+						if (results.size() > ef) {
+							results.pop();
+						}
+					}
+				}
+			}
+		}
+		long[] best = new long[results.size()];
+		for (int i = best.length - 1; i >= 0; i--) {
+			best[i] = results.pop();
+		}
+		return best;
+	}
+	
+	/**
+	 * Neighbor selection heuristic: a candidate is kept only if it is closer to the base
+	 * than to every neighbor kept so far, which spreads links across clusters. Remaining
+	 * places are filled with the closest pruned candidates.
+	 *
+	 * @param candidates scored candidates, best first
+	 */
+	private int[] selectNeighbors(long[] candidates, int max) {
+		int[] selected = new int[Math.min(max, candidates.length)];
+		int count = 0;
+		boolean[] pruned = new boolean[candidates.length];
+		for (int i = 0; i < candidates.length && count < selected.length; i++) {
+			int candidate = ScoredNode.node(candidates[i]);
+			float candidateScore = ScoredNode.score(candidates[i]);
+			boolean keep = true;
+			for (int j = 0; j < count && keep; j++) {
+				keep = vectors.similarity(slots[candidate], slots[selected[j]]) < candidateScore;
+			}
+			if (keep) {
+				selected[count++] = candidate;
+			} else {
+				pruned[i] = true;
+			}
+		}
+		for (int i = 0; i < candidates.length && count < selected.length; i++) {
+			if (pruned[i]) {
+				selected[count++] = ScoredNode.node(candidates[i]);
+			}
+		}
+		return selected;
+	}
+	
+	private void connect(int node, int neighbor, int level) {
+		int[] neighbors = links[node][level];
+		int count = neighbors[0];
+		if (count < neighbors.length - 1) {
+			neighbors[count + 1] = neighbor;
+			neighbors[0] = count + 1;
+			return;
+		}
+		// Full: pick the best links among the current ones and the new one
+		long[] candidates = new long[count + 1];
+		for (int i = 0; i < count; i++) {
+			candidates[i] = ScoredNode.of(vectors.similarity(slots[node], slots[neighbors[i + 1]]), neighbors[i + 1]);
+		}
+		candidates[count] = ScoredNode.of(vectors.similarity(slots[node], slots[neighbor]), neighbor);
+		Arrays.sort(candidates);
+		for (int i = 0, j = candidates.length - 1; i < j; i++, j--) {
+			long swap = candidates[i];
+			candidates[i] = candidates[j];
+			candidates[j] = swap;
+		}
+		int[] selected = selectNeighbors(candidates, count);
+		System.arraycopy(selected, 0, neighbors, 1, selected.length);
+		neighbors[0] = selected.length;
+	}
+	
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(size);
+		out.writeInt(entryPoint);
+		out.writeInt(maxLevel);
+		for (int node = 0; node < size; node++) {
+			out.writeInt(slots[node]);
+			out.writeBoolean(deleted.get(node));
+			out.writeInt(links[node].length);
+			for (int[] level : links[node]) {
+				out.writeInt(level.length - 1);
+				out.writeInt(level[0]);
+				for (int i = 1; i <= level[0]; i++) {
+					out.writeInt(level[i]);
+				}
+			}
+		}
+	}
+	
+	static HnswIndex read(DataInputStream in, MappedVectorFile vectors, int m, int efConstruction, long seed)
+		throws IOException {
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported HNSW snapshot version " + version);
+		}
+		HnswIndex index = new HnswIndex(vectors, m, efConstruction, seed);
+		int size = in.readInt();
+		index.entryPoint = in.readInt();
+		index.maxLevel = in.readInt();
+		index.size = size;
+		index.slots = new int[Math.max(16, size)];
+		index.links = new int[Math.max(16, size)][][];
+		for (int node = 0; node < size; node++) {
+			index.slots[node] = in.readInt();
+			index.nodeBySlot.put(index.slots[node], node);
+			if (in.readBoolean()) {
+				index.deleted.set(node);
+				index.deletedCount++;
+			}
+			int levels = in.readInt();
+			index.links[node] = new int[levels][];
+			for (int l = 0; l < levels; l++) {
+				// Capacity as written, so a graph built with another m still loads
+				int[] level = new int[1 + in.readInt()];
+				level[0] = in.readInt();
+				for (int i = 1; i <= level[0]; i++) {
+					level[i] = in.readInt();
+				}
+				index.links[node][l] = level;
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * A node and its score packed into a long that sorts by score, then node: the score's
+	 * bits in an order-preserving int form in the high half, the node id in the low half.
+	 */
+	private static final class ScoredNode {
+		
+		static long of(float score, int node) {
+			int bits = Float.floatToIntBits(score);
+			bits ^= (bits >> 31) & 0x7fffffff;
+			return ((long) bits << 32) | (node & 0xffffffffL);
+		}
+		
+		static float score(long scoredNode) {
+			int bits = (int) (scoredNode >> 32);
+			bits ^= (bits >> 31) & 0x7fffffff;
+			return Float.intBitsToFloat(bits);
+		}
+		
+		static int node(long scoredNode) {
+			return (int) scoredNode;
+		}
+		
+		/**
+		 * The same node with the order reversed, to use the min-heap as a max-heap.
+		 */
+		static long reversed(long scoredNode) {
+			return ~scoredNode;
+		}
+	}
+	
+	/**
+	 * Binary min-heap of longs.
+	 */
+	private static final class LongHeap {
+		
+		private long[] heap;
+		private int size;
+		
+		LongHeap(int capacity) {
+			this.heap = new long[Math.max(capacity, 2)];
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		boolean isEmpty() {
+			return size == 0;
+		}
+		
+		long peek() {
+			return heap[0];
+		}
+		
+		void push(long value) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heap[parent] <= value) {
+					break;
+				}
+				heap[i] = heap[parent];
+				i = parent;
+			}
+			heap[i] = value;
+		}
+		
+		long pop() {
+			long top = heap[0];
+			long last = heap[--size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (last <= heap[child]) {
+					break;
+				}
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+			return top;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.burak.openai.rag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.retrieval.search.DocumentRetriever;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Document retriever for the shared corpus (the seed documents such as the HR policy),
+ * without a user filter. The vector search is limited to the shared corpus by the filter
+ * expression, see {@link SeedCorpusLoader#sharedCorpusFilter()}, so chunks of user
+ * documents never reach a conversation. Like the {@link UserDocumentRetriever} it runs
+ * the BM25 search of the {@link LexicalIndex} over the chunks without users in parallel
+ * with the vector search and merges both rankings by reciprocal rank fusion, so article
+ * numbers and acronyms of the policy are found even when their embeddings are not close.
+ */
+public class HybridDocumentRetriever implements DocumentRetriever {
+	
+	private static final Logger logger = LoggerFactory.getLogger(HybridDocumentRetriever.class);
+	
+	private static final int CANDIDATE_FACTOR = 2;
+	
+	private final VectorStore vectorStore;
+	private final int topK;
+	private final double similarityThreshold;
+	private final Filter.Expression filterExpression;
+	private final LexicalIndex lexicalIndex;
+	
+	private HybridDocumentRetriever(VectorStore vectorStore, int topK, double similarityThreshold,
+	                                Filter.Expression filterExpression, LexicalIndex lexicalIndex) {
+		this.vectorStore = vectorStore;
+		this.topK = topK;
+		this.similarityThreshold = similarityThreshold;
+		this.filterExpression = filterExpression;
+		this.lexicalIndex = lexicalIndex != null && lexicalIndex.isEnabled() ? lexicalIndex : null;
+	}
+	
+	@Override
+	public List<Document> retrieve(Query query) {
+		Assert.notNull(query, "query cannot be null");
+		Assert.hasText(query.text(), "query text cannot be empty");
+		
+		CompletableFuture<List<Document>> lexicalSearch = null;
+		if (lexicalIndex != null) {
+			lexicalSearch = lexicalIndex.searchSharedAsync(query.text(), topK * CANDIDATE_FACTOR)
+				.exceptionally(e -> {
+					logger.warn("Lexical search failed, using vector results only", e);
+					return List.of();
+				});
+		}
+		
+		SearchRequest searchRequest = SearchRequest.builder()
+			.query(query.text())
+			.topK(lexicalSearch != null ? topK * CANDIDATE_FACTOR : topK)
+			.similarityThreshold(similarityThreshold)
+			.filterExpression(filterExpression)
+			.build();
+		List<Document> documents = vectorStore.similaritySearch(searchRequest);
+		if (lexicalSearch != null) {
+			documents = UserDocumentRetriever.fuse(List.of(documents, lexicalSearch.join()), topK);
+		}
+		return documents;
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	public static class Builder {
+		private VectorStore vectorStore;
+		private int topK = 5;
+		private double similarityThreshold = 0.6;
+		private Filter.Expression filterExpression;
+		private LexicalIndex lexicalIndex;
+		
+		private Builder() {}
+		
+		public Builder vectorStore(VectorStore vectorStore) {
+			this.vectorStore = vectorStore;
+			return this;
+		}
+		
+		public Builder topK(int topK) {
+			if (topK <= 0) {
+				throw new IllegalArgumentException("topK must be greater than 0");
+			}
+			this.topK = topK;
+			return this;
+		}
+		
+		public Builder similarityThreshold(double threshold) {
+			if (threshold < 0.0 || threshold > 1.0) {
+				throw new IllegalArgumentException("similarityThreshold must be between 0.0 and 1.0");
+			}
+			this.similarityThreshold = threshold;
+			return this;
+		}
+		
+		/**
+		 * Filter limiting the vector search to the shared corpus.
+		 */
+		public Builder filterExpression(Filter.Expression filterExpression) {
+			this.filterExpression = filterExpression;
+			return this;
+		}
+		
+		public Builder lexicalIndex(LexicalIndex lexicalIndex) {
+			this.lexicalIndex = lexicalIndex;
+			return this;
+		}
+		
+		public HybridDocumentRetriever build() {
+			Assert.notNull(vectorStore, "vectorStore must be set");
+			Assert.notNull(filterExpression, "filterExpression must be set");
+			return new HybridDocumentRetriever(vectorStore, topK, similarityThreshold, filterExpression, lexicalIndex);
+		}
+	}
+}
\ No newline at end of file
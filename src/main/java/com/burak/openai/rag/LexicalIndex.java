@@ -0,0 +1,426 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory BM25 index over the chunks in the vector store, for the exact terms vector
+ * search is weak on: acronyms, formula names, article and section numbers. Like the
+ * vector store it is fed by the {@link QdrantChunkWriter}, so chunks are indexed, moved
+ * and removed together with their points, and it keeps one index per collection so a
+ * re-index switches over with the vector collection. Within a collection every user has
+ * an index of their own, keyed by the entries of the chunk's {@code users} field; chunks
+ * without users (the seed corpus) share one index.
+ * <p>
+ * Terms are accent-folded and lower-cased; numbers keep their inner dots and dashes, so
+ * "4.2" stays one term. English and Turkish stop words are not indexed. A hit has to score
+ * at least {@code min-score-ratio} of the summed idf of the query terms found in the
+ * index, the lexical counterpart of the similarity threshold: a chunk sharing only a
+ * common word with the query is not a hit. Hits carry the payload fields and are completed
+ * from the {@link ChunkTextStore} like vector search results.
+ * <p>
+ * The index is kept in memory only. After a restart the {@link QdrantChunkWriter} rebuilds
+ * it from the live collection, and the {@link SeedCorpusLoader} re-indexes the seed corpus
+ * once its texts are back in the chunk store.
+ */
+@Component
+@Slf4j
+public class LexicalIndex {
+	
+	private static final Pattern TOKEN = Pattern.compile("\\p{N}+(?:[.,:/-]\\p{N}+)*|[\\p{L}\\p{N}]+");
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	// Index of the chunks without users; never a username
+	private static final String SHARED = "";
+	private static final Set<String> STOP_WORDS = Set.of(
+		"a", "an", "and", "are", "as", "at", "be", "by", "can", "do", "does", "for", "from", "has", "have", "how",
+		"i", "if", "in", "is", "it", "its", "me", "my", "not", "of", "on", "or", "our", "so", "that", "the",
+		"their", "there", "these", "they", "this", "to", "was", "we", "were", "what", "when", "where", "which",
+		"who", "why", "will", "with", "you", "your",
+		"acaba", "ama", "bir", "bu", "da", "daha", "de", "en", "gibi", "hangi", "icin", "ile", "ise", "ki", "mi",
+		"mu", "nasil", "ne", "neden", "nedir", "o", "olan", "sey", "ve", "veya", "ya");
+	
+	private final CollectionRouter collectionRouter;
+	private final ChunkTextStore chunkTextStore;
+	private final MeterRegistry meterRegistry;
+	private final boolean enabled;
+	private final double minScoreRatio;
+	private final ExecutorService executor;
+	private final Timer searchLatency;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	// collection -> point id -> chunk
+	private final Map<String, Map<String, Chunk>> chunks = new HashMap<>();
+	// collection -> user -> index
+	private final Map<String, Map<String, UserIndex>> userIndexes = new HashMap<>();
+	
+	/**
+	 * An indexed chunk: its distinct terms with their frequencies, and the payload fields
+	 * (plus the text when it is not kept in the chunk store). A chunk is identified by its
+	 * point id alone; the payload changes while it is indexed.
+	 */
+	private record Chunk(String pointId, String text, Map<String, Object> payload, String[] terms, int[] frequencies,
+	                     int length) {
+		
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Chunk chunk && pointId.equals(chunk.pointId);
+		}
+		
+		@Override
+		public int hashCode() {
+			return pointId.hashCode();
+		}
+	}
+	
+	private static final class UserIndex {
+		
+		// term -> point id -> chunk
+		private final Map<String, Map<String, Chunk>> postings = new HashMap<>();
+		private int size;
+		private long totalLength;
+		
+		void add(Chunk chunk) {
+			for (String term : chunk.terms()) {
+				postings.computeIfAbsent(term, key -> new HashMap<>()).put(chunk.pointId(), chunk);
+			}
+			size++;
+			totalLength += chunk.length();
+		}
+		
+		void remove(Chunk chunk) {
+			for (String term : chunk.terms()) {
+				Map<String, Chunk> posting = postings.get(term);
+				if (posting != null) {
+					posting.remove(chunk.pointId());
+					if (posting.isEmpty()) {
+						postings.remove(term);
+					}
+				}
+			}
+			size--;
+			totalLength -= chunk.length();
+		}
+	}
+	
+	public LexicalIndex(CollectionRouter collectionRouter,
+	                    ChunkTextStore chunkTextStore,
+	                    MeterRegistry meterRegistry,
+	                    @Value("${document.retrieval.hybrid.enabled:true}") boolean enabled,
+	                    @Value("${document.retrieval.hybrid.search-threads:2}") int searchThreads,
+	                    @Value("${document.retrieval.hybrid.min-score-ratio:0.3}") double minScoreRatio) {
+		if (searchThreads <= 0) {
+			throw new IllegalArgumentException("Lexical search threads must be greater than 0");
+		}
+		if (minScoreRatio < 0.0 || minScoreRatio > 1.0) {
+			throw new IllegalArgumentException("Lexical min score ratio must be between 0.0 and 1.0");
+		}
+		this.collectionRouter = collectionRouter;
+		this.chunkTextStore = chunkTextStore;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.minScoreRatio = minScoreRatio;
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(searchThreads, runnable -> {
+			Thread thread = new Thread(runnable, "lexical-search-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.searchLatency = meterRegistry.timer("lexical.search");
+	}
+	
+	@PostConstruct
+	public void registerGauges() {
+		meterRegistry.gauge("lexical.index.chunks", this, LexicalIndex::size);
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Index or re-index chunks. Collections no longer written are dropped.
+	 *
+	 * @param documents chunks with their text and payload fields as metadata
+	 * @param keepText  keep the text with the chunk, when it is not in the chunk store
+	 */
+	public void add(String collectionName, List<Document> documents, boolean keepText) {
+		add(collectionName, documents, keepText, true);
+	}
+	
+	/**
+	 * Index chunks read back from the vector store, leaving chunks that are already
+	 * indexed alone: those were written since and are newer.
+	 */
+	public void restore(String collectionName, List<Document> documents, boolean keepText) {
+		add(collectionName, documents, keepText, false);
+	}
+	
+	private void add(String collectionName, List<Document> documents, boolean keepText, boolean replace) {
+		if (!enabled) {
+			return;
+		}
+		List<Chunk> indexed = documents.stream().map(document -> toChunk(document, keepText)).toList();
+		lock.writeLock().lock();
+		try {
+			chunks.keySet().retainAll(collectionRouter.getWriteCollections());
+			userIndexes.keySet().retainAll(collectionRouter.getWriteCollections());
+			Map<String, Chunk> collection = chunks.computeIfAbsent(collectionName, key -> new HashMap<>());
+			for (Chunk chunk : indexed) {
+				Chunk previous = collection.get(chunk.pointId());
+				if (previous != null) {
+					if (!replace) {
+						continue;
+					}
+					unindex(collectionName, previous);
+				}
+				collection.put(chunk.pointId(), chunk);
+				index(collectionName, chunk);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public void remove(String collectionName, Collection<String> pointIds) {
+		removeIf(collectionName, pointIds::contains, null);
+	}
+	
+	/**
+	 * Remove every chunk whose payload matches.
+	 */
+	public void removeIf(String collectionName, Predicate<Map<String, Object>> payloadFilter) {
+		removeIf(collectionName, null, payloadFilter);
+	}
+	
+	private void removeIf(String collectionName, Predicate<String> pointIdFilter,
+	                      Predicate<Map<String, Object>> payloadFilter) {
+		if (!enabled) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			Map<String, Chunk> collection = chunks.getOrDefault(collectionName, Map.of());
+			List<Chunk> matching = collection.values().stream()
+				.filter(chunk -> pointIdFilter != null
+					? pointIdFilter.test(chunk.pointId())
+					: payloadFilter.test(chunk.payload()))
+				.toList();
+			for (Chunk chunk : matching) {
+				collection.remove(chunk.pointId());
+				unindex(collectionName, chunk);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Overwrite payload fields of every chunk whose payload matches. A changed
+	 * {@code users} field moves the chunks between user indexes.
+	 */
+	public void updatePayload(String collectionName, Predicate<Map<String, Object>> payloadFilter,
+	                          Map<String, Object> fields) {
+		if (!enabled) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			for (Chunk chunk : chunks.getOrDefault(collectionName, Map.of()).values()) {
+				if (payloadFilter.test(chunk.payload())) {
+					unindex(collectionName, chunk);
+					chunk.payload().putAll(fields);
+					index(collectionName, chunk);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public CompletableFuture<List<Document>> searchAsync(String username, String query, int topK,
+	                                                     Predicate<Map<String, Object>> payloadFilter) {
+		return CompletableFuture.supplyAsync(() -> search(username, query, topK, payloadFilter), executor);
+	}
+	
+	public CompletableFuture<List<Document>> searchSharedAsync(String query, int topK) {
+		return CompletableFuture.supplyAsync(() -> searchShared(query, topK), executor);
+	}
+	
+	/**
+	 * The {@code topK} chunks of the user's index in the live collection with the highest
+	 * BM25 score, best first, among those whose payload matches.
+	 */
+	public List<Document> search(String username, String query, int topK, Predicate<Map<String, Object>> payloadFilter) {
+		return searchIndex(username, query, topK, payloadFilter);
+	}
+	
+	/**
+	 * The {@code topK} chunks without users (the seed corpus) in the live collection with
+	 * the highest BM25 score, best first.
+	 */
+	public List<Document> searchShared(String query, int topK) {
+		return searchIndex(SHARED, query, topK, null);
+	}
+	
+	private List<Document> searchIndex(String name, String query, int topK,
+	                                   Predicate<Map<String, Object>> payloadFilter) {
+		if (!enabled) {
+			return List.of();
+		}
+		long startNanos = System.nanoTime();
+		Set<String> queryTerms = new LinkedHashSet<>(terms(query));
+		List<Document> hits;
+		lock.readLock().lock();
+		try {
+			UserIndex index = userIndexes.getOrDefault(collectionRouter.getLiveCollection(), Map.of()).get(name);
+			if (index == null || queryTerms.isEmpty()) {
+				return List.of();
+			}
+			double averageLength = Math.max(1.0, (double) index.totalLength / index.size);
+			double totalIdf = 0;
+			Map<Chunk, Double> scores = new HashMap<>();
+			for (String term : queryTerms) {
+				Map<String, Chunk> posting = index.postings.get(term);
+				if (posting == null) {
+					continue;
+				}
+				double idf = Math.log(1 + (index.size - posting.size() + 0.5) / (posting.size() + 0.5));
+				totalIdf += idf;
+				for (Chunk chunk : posting.values()) {
+					int frequency = chunk.frequencies()[Arrays.binarySearch(chunk.terms(), term)];
+					double norm = K1 * (1 - B + B * chunk.length() / averageLength);
+					scores.merge(chunk, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+				}
+			}
+			// A single occurrence in a chunk of average length scores the term's idf
+			double minScore = minScoreRatio * totalIdf;
+			hits = scores.entrySet().stream()
+				.filter(entry -> entry.getValue() >= minScore)
+				.filter(entry -> payloadFilter == null || payloadFilter.test(entry.getKey().payload()))
+				.sorted(Map.Entry.<Chunk, Double>comparingByValue().reversed())
+				.limit(topK)
+				.map(entry -> Document.builder()
+					.id(entry.getKey().pointId())
+					.text(entry.getKey().text())
+					.metadata(new HashMap<>(entry.getKey().payload()))
+					.score(entry.getValue())
+					.build())
+				.toList();
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<Document> results = chunkTextStore.hydrate(hits);
+		searchLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+		return results;
+	}
+	
+	/**
+	 * Number of indexed chunks over all collections.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return chunks.values().stream().mapToInt(Map::size).sum();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	private void index(String collectionName, Chunk chunk) {
+		Map<String, UserIndex> indexes = userIndexes.computeIfAbsent(collectionName, key -> new HashMap<>());
+		for (String user : indexNames(chunk.payload())) {
+			indexes.computeIfAbsent(user, key -> new UserIndex()).add(chunk);
+		}
+	}
+	
+	private void unindex(String collectionName, Chunk chunk) {
+		Map<String, UserIndex> indexes = userIndexes.getOrDefault(collectionName, Map.of());
+		for (String user : indexNames(chunk.payload())) {
+			UserIndex index = indexes.get(user);
+			if (index != null) {
+				index.remove(chunk);
+				if (index.size == 0) {
+					indexes.remove(user);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * The users of a chunk, or the shared index for a chunk without users.
+	 */
+	private static Set<String> indexNames(Map<String, Object> payload) {
+		Set<String> users = new LinkedHashSet<>();
+		if (payload.get("users") instanceof Collection<?> values) {
+			values.forEach(user -> users.add(String.valueOf(user)));
+		}
+		return users.isEmpty() ? Set.of(SHARED) : users;
+	}
+	
+	private static Chunk toChunk(Document document, boolean keepText) {
+		String text = document.getText() != null ? document.getText() : "";
+		List<String> tokens = terms(text);
+		Map<String, Integer> frequencies = new HashMap<>();
+		tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+		// Sorted, so a term's frequency is found by binary search
+		String[] terms = frequencies.keySet().stream().sorted().toArray(String[]::new);
+		int[] counts = new int[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			counts[i] = frequencies.get(terms[i]);
+		}
+		return new Chunk(document.getId(), keepText ? text : "", new HashMap<>(document.getMetadata()), terms, counts,
+			tokens.size());
+	}
+	
+	/**
+	 * The tokens of a text that are indexed and searched: all but the stop words.
+	 */
+	static List<String> terms(String text) {
+		return tokenize(text).stream().filter(token -> !STOP_WORDS.contains(token)).toList();
+	}
+	
+	static List<String> tokenize(String text) {
+		String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+			.toLowerCase(Locale.ROOT)
+			.replace('ı', 'i');
+		List<String> tokens = new ArrayList<>();
+		Matcher matcher = TOKEN.matcher(folded);
+		while (matcher.find()) {
+			tokens.add(matcher.group());
+		}
+		return tokens;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the {@link LexicalIndex}, which is kept in memory only, from the live
+ * collection after a restart. Runs after the {@link AccessListBackfill}, so migrated
+ * points land in their owners' indexes. Points whose text is no longer in the chunk store
+ * are left out, as vector search drops them too; the seed corpus is indexed again by the
+ * {@link SeedCorpusLoader} once its texts are stored.
+ */
+@Component
+@Slf4j
+public class LexicalIndexRebuilder {
+	
+	private final CollectionRouter collectionRouter;
+	private final ChunkPointStore pointStore;
+	private final ChunkTextStore chunkTextStore;
+	private final LexicalIndex lexicalIndex;
+	private final int pageSize;
+	
+	public LexicalIndexRebuilder(CollectionRouter collectionRouter,
+	                             ChunkPointStore pointStore,
+	                             ChunkTextStore chunkTextStore,
+	                             LexicalIndex lexicalIndex,
+	                             @Value("${document.ingestion.qdrant.delete-batch-size:1000}") int pageSize) {
+		this.collectionRouter = collectionRouter;
+		this.pointStore = pointStore;
+		this.chunkTextStore = chunkTextStore;
+		this.lexicalIndex = lexicalIndex;
+		this.pageSize = pageSize;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(2)
+	public void rebuildLexicalIndex() {
+		if (!lexicalIndex.isEnabled()) {
+			return;
+		}
+		String collectionName = collectionRouter.getLiveCollection();
+		try {
+			AtomicLong indexed = new AtomicLong();
+			pointStore.scanPoints(collectionName, pageSize,
+				page -> indexed.addAndGet(restoreTerms(collectionName, page)));
+			log.info("Rebuilt the lexical index of {} with {} chunks", collectionName, indexed.get());
+		} catch (RuntimeException e) {
+			log.warn("Could not rebuild the lexical index of {}: {}", collectionName, e.getMessage());
+		}
+	}
+	
+	/**
+	 * Index a page of points read back from the store, with their texts from the payload
+	 * or the chunk store.
+	 *
+	 * @return number of chunks indexed
+	 */
+	private int restoreTerms(String collectionName, List<Document> points) {
+		List<Document> withText = new ArrayList<>();
+		List<Document> slim = new ArrayList<>();
+		for (Document point : points) {
+			(point.getText() != null && !point.getText().isEmpty() ? withText : slim).add(point);
+		}
+		Set<String> chunkHashes = new HashSet<>();
+		slim.forEach(point -> {
+			if (point.getMetadata().get(ChunkTextStore.CHUNK_HASH_METADATA) instanceof String chunkHash) {
+				chunkHashes.add(chunkHash);
+			}
+		});
+		Map<String, String> texts = chunkHashes.isEmpty() ? Map.of() : chunkTextStore.getAll(chunkHashes);
+		List<Document> hydrated = new ArrayList<>(slim.size());
+		for (Document point : slim) {
+			String text = texts.get(point.getMetadata().get(ChunkTextStore.CHUNK_HASH_METADATA));
+			if (text != null) {
+				hydrated.add(point.mutate().text(text).build());
+			}
+		}
+		lexicalIndex.restore(collectionName, withText, true);
+		lexicalIndex.restore(collectionName, hydrated, false);
+		return withText.size() + hydrated.size();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.burak.openai.rag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size vectors kept off-heap in memory-mapped files, one slot per vector. Vectors
+ * are stored L2-normalized, so the inner product of two slots is their cosine similarity.
+ * The float32 values live in {@code vectors.f32}; with quantization an int8 copy with one
+ * scale per vector is kept in {@code vectors.i8} for the graph traversal. Both files grow
+ * in segments, since a single mapping is limited to 2 GB.
+ * <p>
+ * Not synchronized: writes and the mapping of new segments must not run concurrently with
+ * anything else, reads may run concurrently with each other.
+ */
+final class MappedVectorFile implements Closeable {
+	
+	static final String VECTORS_FILE = "vectors.f32";
+	static final String CODES_FILE = "vectors.i8";
+	
+	private static final int SLOTS_PER_SEGMENT = 8192;
+	
+	private final int dimensions;
+	private final boolean quantized;
+	private final FileChannel vectorChannel;
+	private final FileChannel codeChannel;
+	private final List<FloatBuffer> vectorSegments = new ArrayList<>();
+	private final List<MappedByteBuffer> mappedVectorSegments = new ArrayList<>();
+	private final List<MappedByteBuffer> codeSegments = new ArrayList<>();
+	
+	/**
+	 * Query prepared for scoring: the normalized vector and, with quantization, its codes.
+	 */
+	record Query(float[] vector, byte[] codes, float scale) {}
+	
+	MappedVectorFile(Path directory, int dimensions, boolean quantized) throws IOException {
+		if (dimensions <= 0) {
+			throw new IllegalArgumentException("dimensions must be greater than 0");
+		}
+		Files.createDirectories(directory);
+		this.dimensions = dimensions;
+		this.quantized = quantized;
+		this.vectorChannel = FileChannel.open(directory.resolve(VECTORS_FILE),
+			StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.codeChannel = quantized
+			? FileChannel.open(directory.resolve(CODES_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+			: null;
+		// Map what an earlier run left, so vectors are readable again without copying them
+		long slots = vectorChannel.size() / ((long) dimensions * Float.BYTES);
+		if (slots > 0) {
+			ensureCapacity((int) Math.min(Integer.MAX_VALUE, slots) - 1);
+		}
+	}
+	
+	int dimensions() {
+		return dimensions;
+	}
+	
+	boolean quantized() {
+		return quantized;
+	}
+	
+	/**
+	 * Store a vector in a slot, normalizing it first.
+	 */
+	void put(int slot, float[] vector) throws IOException {
+		if (vector.length != dimensions) {
+			throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+		}
+		ensureCapacity(slot);
+		float[] normalized = normalize(vector);
+		vectorSegments.get(slot / SLOTS_PER_SEGMENT).put(vectorOffset(slot), normalized);
+		if (quantized) {
+			Query codes = quantize(normalized);
+			ByteBuffer segment = codeSegments.get(slot / SLOTS_PER_SEGMENT);
+			int offset = codeOffset(slot);
+			segment.putFloat(offset, codes.scale());
+			segment.put(offset + Float.BYTES, codes.codes());
+		}
+	}
+	
+	float[] get(int slot) {
+		float[] vector = new float[dimensions];
+		vectorSegments.get(slot / SLOTS_PER_SEGMENT).get(vectorOffset(slot), vector);
+		return vector;
+	}
+	
+	/**
+	 * Query for a vector that is not stored.
+	 */
+	Query query(float[] vector) {
+		float[] normalized = normalize(vector);
+		return quantized ? quantize(normalized) : new Query(normalized, null, 0);
+	}
+	
+	/**
+	 * Exact cosine similarity of a stored vector and a query.
+	 */
+	float score(int slot, Query query) {
+		FloatBuffer segment = vectorSegments.get(slot / SLOTS_PER_SEGMENT);
+		int offset = vectorOffset(slot);
+		float[] vector = query.vector();
+		float sum = 0;
+		for (int i = 0; i < dimensions; i++) {
+			sum += segment.get(offset + i) * vector[i];
+		}
+		return sum;
+	}
+	
+	/**
+	 * Exact cosine similarity of two stored vectors.
+	 */
+	float similarity(int slotA, int slotB) {
+		FloatBuffer segmentA = vectorSegments.get(slotA / SLOTS_PER_SEGMENT);
+		FloatBuffer segmentB = vectorSegments.get(slotB / SLOTS_PER_SEGMENT);
+		int offsetA = vectorOffset(slotA);
+		int offsetB = vectorOffset(slotB);
+		float sum = 0;
+		for (int i = 0; i < dimensions; i++) {
+			sum += segmentA.get(offsetA + i) * segmentB.get(offsetB + i);
+		}
+		return sum;
+	}
+	
+	/**
+	 * Approximate cosine similarity from the int8 codes, or the exact one without
+	 * quantization.
+	 */
+	float approximateScore(int slot, Query query) {
+		if (!quantized) {
+			return score(slot, query);
+		}
+		ByteBuffer segment = codeSegments.get(slot / SLOTS_PER_SEGMENT);
+		int offset = codeOffset(slot);
+		float scale = segment.getFloat(offset);
+		offset += Float.BYTES;
+		byte[] codes = query.codes();
+		int sum = 0;
+		for (int i = 0; i < dimensions; i++) {
+			sum += segment.get(offset + i) * codes[i];
+		}
+		return sum * scale * query.scale();
+	}
+	
+	/**
+	 * Flush written vectors to disk.
+	 */
+	void force() {
+		mappedVectorSegments.forEach(MappedByteBuffer::force);
+		codeSegments.forEach(MappedByteBuffer::force);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		force();
+		vectorChannel.close();
+		if (codeChannel != null) {
+			codeChannel.close();
+		}
+	}
+	
+	private void ensureCapacity(int slot) throws IOException {
+		while (slot >= vectorSegments.size() * SLOTS_PER_SEGMENT) {
+			int segment = vectorSegments.size();
+			long vectorBytes = (long) SLOTS_PER_SEGMENT * dimensions * Float.BYTES;
+			MappedByteBuffer vectors = vectorChannel.map(FileChannel.MapMode.READ_WRITE, segment * vectorBytes, vectorBytes);
+			vectors.order(ByteOrder.LITTLE_ENDIAN);
+			mappedVectorSegments.add(vectors);
+			vectorSegments.add(vectors.asFloatBuffer());
+			if (quantized) {
+				long codeBytes = (long) SLOTS_PER_SEGMENT * codeSize();
+				MappedByteBuffer codes = codeChannel.map(FileChannel.MapMode.READ_WRITE, segment * codeBytes, codeBytes);
+				codes.order(ByteOrder.LITTLE_ENDIAN);
+				codeSegments.add(codes);
+			}
+		}
+	}
+	
+	private int vectorOffset(int slot) {
+		return (slot % SLOTS_PER_SEGMENT) * dimensions;
+	}
+	
+	private int codeOffset(int slot) {
+		return (slot % SLOTS_PER_SEGMENT) * codeSize();
+	}
+	
+	private int codeSize() {
+		return Float.BYTES + dimensions;
+	}
+	
+	private static float[] normalize(float[] vector) {
+		double norm = 0;
+		for (float value : vector) {
+			norm += value * value;
+		}
+		norm = Math.sqrt(norm);
+		float[] normalized = new float[vector.length];
+		if (norm == 0) {
+			return normalized;
+		}
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = (float) (vector[i] / norm);
+		}
+		return normalized;
+	}
+	
+	/**
+	 * Symmetric int8 quantization with one scale per vector: code = round(value / scale),
+	 * scale = max |value| / 127.
+	 */
+	private static Query quantize(float[] normalized) {
+		float max = 0;
+		for (float value : normalized) {
+			max = Math.max(max, Math.abs(value));
+		}
+		float scale = max == 0 ? 0 : max / 127f;
+		byte[] codes = new byte[normalized.length];
+		for (int i = 0; i < normalized.length; i++) {
+			codes[i] = scale == 0 ? 0 : (byte) Math.round(normalized[i] / scale);
+		}
+		return new Query(normalized, codes, scale);
+	}
+}
\ No newline at end of file
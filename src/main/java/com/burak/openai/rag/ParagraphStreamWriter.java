@@ -0,0 +1,101 @@
+package com.burak.openai.rag;
+
+import org.springframework.util.Assert;
+
+import java.io.Writer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writer that buffers text written by a parser and hands it on in pieces that end on a
+ * paragraph break, so every piece can be split on its own. Once the buffer holds
+ * {@code flushChars} characters, everything up to the last paragraph break is passed to
+ * the consumer. Text without any paragraph break is cut at the last whitespace once the
+ * buffer reaches four times that size.
+ */
+public class ParagraphStreamWriter extends Writer {
+	
+	private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n[ \\t]*\\n\\s*(?=\\S)");
+	
+	private final int flushChars;
+	private final int maxChars;
+	private final Consumer<String> pieceConsumer;
+	private final StringBuilder buffer;
+	private int nextDrainAt;
+	private boolean closed;
+	
+	public ParagraphStreamWriter(int flushChars, Consumer<String> pieceConsumer) {
+		Assert.isTrue(flushChars > 0, "flushChars must be greater than 0");
+		Assert.notNull(pieceConsumer, "pieceConsumer cannot be null");
+		this.flushChars = flushChars;
+		this.maxChars = flushChars * 4;
+		this.pieceConsumer = pieceConsumer;
+		this.buffer = new StringBuilder(flushChars * 2);
+		this.nextDrainAt = flushChars;
+	}
+	
+	@Override
+	public void write(char[] chars, int offset, int length) {
+		if (closed) {
+			throw new IllegalStateException("Writer is closed");
+		}
+		buffer.append(chars, offset, length);
+		if (buffer.length() >= nextDrainAt) {
+			drain();
+		}
+	}
+	
+	private void drain() {
+		int cut = lastParagraphBreak();
+		if (cut < 0 && buffer.length() >= maxChars) {
+			cut = lastWhitespace();
+		}
+		if (cut <= 0) {
+			// Parsers write in small runs; don't rescan the buffer on every one of them
+			nextDrainAt = buffer.length() + flushChars / 4;
+			return;
+		}
+		String piece = buffer.substring(0, cut);
+		buffer.delete(0, cut);
+		nextDrainAt = flushChars;
+		pieceConsumer.accept(piece);
+	}
+	
+	private int lastParagraphBreak() {
+		Matcher matcher = PARAGRAPH_BREAK.matcher(buffer);
+		int cut = -1;
+		while (matcher.find()) {
+			cut = matcher.end();
+		}
+		return cut;
+	}
+	
+	private int lastWhitespace() {
+		for (int i = buffer.length() - 1; i > 0; i--) {
+			if (Character.isWhitespace(buffer.charAt(i))) {
+				return i + 1;
+			}
+		}
+		return buffer.length();
+	}
+	
+	@Override
+	public void flush() {
+	}
+	
+	/**
+	 * Hand on whatever is left in the buffer.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (!buffer.isEmpty()) {
+			pieceConsumer.accept(buffer.toString());
+			buffer.setLength(0);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.burak.openai.rag;
+
+import io.qdrant.client.grpc.Points.Condition;
+import io.qdrant.client.grpc.Points.FieldCondition;
+import io.qdrant.client.grpc.Points.Filter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Qdrant filters evaluated against in-memory payloads, for the embedded store and the
+ * {@link LexicalIndex}: keyword, integer and boolean matches, is-empty conditions and
+ * nested filters.
+ */
+public final class PayloadFilters {
+	
+	private PayloadFilters() {
+	}
+	
+	public static Predicate<Map<String, Object>> matcher(Filter filter) {
+		Predicate<Map<String, Object>> matcher = payload -> true;
+		for (Condition condition : filter.getMustList()) {
+			matcher = matcher.and(conditionMatcher(condition));
+		}
+		for (Condition condition : filter.getMustNotList()) {
+			matcher = matcher.and(conditionMatcher(condition).negate());
+		}
+		if (filter.getShouldCount() > 0) {
+			Predicate<Map<String, Object>> any = payload -> false;
+			for (Condition condition : filter.getShouldList()) {
+				any = any.or(conditionMatcher(condition));
+			}
+			matcher = matcher.and(any);
+		}
+		return matcher;
+	}
+	
+	private static Predicate<Map<String, Object>> conditionMatcher(Condition condition) {
+		if (condition.hasFilter()) {
+			return matcher(condition.getFilter());
+		}
+		if (condition.hasIsEmpty()) {
+			String key = condition.getIsEmpty().getKey();
+			return payload -> payload.get(key) == null
+				|| payload.get(key) instanceof Collection<?> values && values.isEmpty();
+		}
+		if (condition.hasField() && condition.getField().hasMatch()) {
+			FieldCondition field = condition.getField();
+			Predicate<Object> match = switch (field.getMatch().getMatchValueCase()) {
+				case KEYWORD -> fieldValue -> field.getMatch().getKeyword().equals(fieldValue);
+				case INTEGER -> fieldValue -> fieldValue instanceof Number number
+					&& number.longValue() == field.getMatch().getInteger();
+				case BOOLEAN -> fieldValue -> Boolean.valueOf(field.getMatch().getBoolean()).equals(fieldValue);
+				default -> throw new IllegalArgumentException("Unsupported match on " + field.getKey());
+			};
+			return payload -> payload.get(field.getKey()) instanceof Collection<?> values
+				? values.stream().anyMatch(match)
+				: match.test(payload.get(field.getKey()));
+		}
+		throw new IllegalArgumentException("Unsupported filter condition: " + condition);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,346 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.qdrant.client.grpc.Points.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static io.qdrant.client.ConditionFactory.isEmpty;
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+
+/**
+ * Writes and deletes chunk points through the {@link ChunkPointStore}: the Qdrant
+ * collections, or the in-process {@link EmbeddedVectorStore} with
+ * {@code document.vector-store.type=embedded}. Unless a collection is given, writes and
+ * deletes go to every collection the {@link CollectionRouter} currently writes to.
+ * <p>
+ * Upserts are sent in batches without waiting for the results; callers get a
+ * {@link PendingWrite} and call {@link PendingWrite#await()} as the barrier before they
+ * depend on the points.
+ * <p>
+ * Every write, delete and payload update is mirrored into the {@link LexicalIndex}.
+ */
+@Component
+@Slf4j
+public class QdrantChunkWriter {
+	
+	// Document-level fields restored from user_documents after a search instead of repeated in every payload
+	private static final Set<String> DOCUMENT_FIELDS = Set.of("username", "originalFilename", "uploadDate",
+		"contentType", DocumentTextExtractor.SOURCE_METADATA);
+	
+	// Fields we filter by
+	private static final List<String> INDEXED_FIELDS = List.of("documentId", "users", "documentIds",
+		SeedCorpusLoader.RESOURCE_FIELD);
+	
+	private final CollectionRouter collectionRouter;
+	private final ChunkPointStore pointStore;
+	private final ChunkTextStore chunkTextStore;
+	private final LexicalIndex lexicalIndex;
+	private final boolean externalizeText;
+	private final int batchSize;
+	private final boolean waitForIndexing;
+	private final Counter pointsWritten;
+	private final AtomicLong lastPointsPerSecond = new AtomicLong();
+	
+	public QdrantChunkWriter(CollectionRouter collectionRouter,
+	                         ChunkPointStore pointStore,
+	                         ChunkTextStore chunkTextStore,
+	                         LexicalIndex lexicalIndex,
+	                         MeterRegistry meterRegistry,
+	                         @Value("${document.chunk-store.enabled:true}") boolean externalizeText,
+	                         @Value("${document.ingestion.qdrant.upsert-batch-size:256}") int batchSize,
+	                         @Value("${document.ingestion.qdrant.wait-for-indexing:false}") boolean waitForIndexing) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Qdrant upsert batch size must be greater than 0");
+		}
+		this.collectionRouter = collectionRouter;
+		this.pointStore = pointStore;
+		this.chunkTextStore = chunkTextStore;
+		this.lexicalIndex = lexicalIndex;
+		this.externalizeText = externalizeText;
+		this.batchSize = batchSize;
+		this.waitForIndexing = waitForIndexing;
+		this.pointsWritten = meterRegistry.counter("qdrant.upsert.points");
+		meterRegistry.gauge("qdrant.upsert.points-per-second", lastPointsPerSecond);
+	}
+	
+	/**
+	 * Outstanding upserts of one write. {@link #await()} is the completion barrier: it
+	 * returns once the store has accepted every batch and fails if any batch failed.
+	 */
+	public final class PendingWrite {
+		
+		private final List<ListenableFuture<?>> batches;
+		private final List<String> collectionNames;
+		private final int points;
+		private final long startNanos;
+		
+		private PendingWrite(List<ListenableFuture<?>> batches, List<String> collectionNames, int points,
+		                     long startNanos) {
+			this.batches = batches;
+			this.collectionNames = collectionNames;
+			this.points = points;
+			this.startNanos = startNanos;
+		}
+		
+		/**
+		 * @return number of points written
+		 */
+		public int await() {
+			for (ListenableFuture<?> batch : batches) {
+				QdrantChunkWriter.await(batch, "writing chunks to Qdrant");
+			}
+			long elapsedNanos = System.nanoTime() - startNanos;
+			if (points > 0) {
+				long pointsPerSecond = Math.round(points / Math.max(elapsedNanos / 1_000_000_000.0, 1e-3));
+				pointsWritten.increment(points);
+				lastPointsPerSecond.set(pointsPerSecond);
+				log.info("Upserted {} points into {} in {} ms ({} points/s, wait={})", points, collectionNames,
+					TimeUnit.NANOSECONDS.toMillis(elapsedNanos), pointsPerSecond, waitForIndexing);
+			}
+			return points;
+		}
+	}
+	
+	public void write(List<EmbeddedChunk> chunks) {
+		writeAsync(chunks).await();
+	}
+	
+	public void write(List<EmbeddedChunk> chunks, String collectionName) {
+		writeAsync(chunks, List.of(collectionName)).await();
+	}
+	
+	/**
+	 * Write the chunks to every collection currently written. A collection whose model the
+	 * chunks were not embedded with, a re-index target that started after they were
+	 * embedded, is left to the re-index.
+	 */
+	public PendingWrite writeAsync(List<EmbeddedChunk> chunks) {
+		List<String> collectionNames = collectionRouter.getWriteCollections().stream()
+			.filter(collectionName -> chunks.isEmpty()
+				|| chunks.get(0).embeddings().containsKey(collectionRouter.getModel(collectionName)))
+			.toList();
+		return writeAsync(chunks, collectionNames);
+	}
+	
+	/**
+	 * Send the chunks in batches without waiting for the results. Blocks only while the
+	 * maximum number of batches is already in flight.
+	 */
+	public PendingWrite writeAsync(List<EmbeddedChunk> chunks, List<String> collectionNames) {
+		long startNanos = System.nanoTime();
+		List<Document> documents = chunks.stream().map(EmbeddedChunk::document).toList();
+		List<String> chunkHashes = storeTexts(documents);
+		indexTerms(documents, chunkHashes, collectionNames);
+		List<ListenableFuture<?>> batches = new ArrayList<>();
+		for (int start = 0; start < chunks.size(); start += batchSize) {
+			List<EmbeddedChunk> batch = chunks.subList(start, Math.min(start + batchSize, chunks.size()));
+			List<Document> points = new ArrayList<>(batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				Document document = batch.get(i).document();
+				points.add(Document.builder()
+					.id(document.getId())
+					.text(externalizeText ? "" : document.getText())
+					.metadata(payloadFields(document, chunkHashes.get(start + i), externalizeText))
+					.build());
+			}
+			// Collections of the same model share the vectors
+			Map<String, List<float[]>> vectorsByModel = new HashMap<>();
+			for (String collectionName : collectionNames) {
+				List<float[]> vectors = vectorsByModel.computeIfAbsent(collectionRouter.getModel(collectionName),
+					model -> batch.stream().map(chunk -> chunk.embedding(model)).toList());
+				batches.add(pointStore.upsert(collectionName, points, vectors));
+			}
+		}
+		return new PendingWrite(batches, collectionNames, chunks.size(), startNanos);
+	}
+	
+	/**
+	 * Put chunks whose points already exist, such as seed points that outlived the
+	 * process, back into the chunk store and the lexical index.
+	 */
+	public void restore(List<Document> chunks, List<String> collectionNames) {
+		indexTerms(chunks, storeTexts(chunks), collectionNames);
+	}
+	
+	private void indexTerms(List<Document> chunks, List<String> chunkHashes, List<String> collectionNames) {
+		if (!lexicalIndex.isEnabled()) {
+			return;
+		}
+		List<Document> documents = new ArrayList<>(chunks.size());
+		for (int i = 0; i < chunks.size(); i++) {
+			Document document = chunks.get(i);
+			documents.add(Document.builder()
+				.id(document.getId())
+				.text(document.getText())
+				.metadata(payloadFields(document, chunkHashes.get(i), externalizeText))
+				.build());
+		}
+		for (String collectionName : collectionNames) {
+			lexicalIndex.add(collectionName, documents, !externalizeText);
+		}
+	}
+	
+	/**
+	 * Put the text of the chunks into the {@link ChunkTextStore} (when texts are kept out of
+	 * the payloads).
+	 *
+	 * @return the chunk hash of every chunk, in input order
+	 */
+	private List<String> storeTexts(List<Document> chunks) {
+		List<String> chunkHashes = new ArrayList<>(chunks.size());
+		Map<String, String> texts = new LinkedHashMap<>();
+		Map<String, String> seedTexts = new LinkedHashMap<>();
+		for (Document chunk : chunks) {
+			String chunkHash = ContentHash.sha256(chunk.getText());
+			chunkHashes.add(chunkHash);
+			boolean seed = chunk.getMetadata().containsKey(SeedCorpusLoader.RESOURCE_FIELD);
+			(seed ? seedTexts : texts).putIfAbsent(chunkHash, chunk.getText());
+		}
+		if (externalizeText) {
+			// Texts go in before the points, so a search never finds a point without its text
+			chunkTextStore.putAll(texts, false);
+			chunkTextStore.putAll(seedTexts, true);
+		}
+		return chunkHashes;
+	}
+	
+	/**
+	 * Delete every point of a document. The store removes them in batches, so a large
+	 * document never turns into a single huge delete request.
+	 *
+	 * @return number of deleted points
+	 */
+	public long deleteByDocumentId(String documentId) {
+		long deleted = 0;
+		for (String collectionName : collectionRouter.getWriteCollections()) {
+			deleted += deleteByDocumentId(documentId, collectionName);
+		}
+		return deleted;
+	}
+	
+	public long deleteByDocumentId(String documentId, String collectionName) {
+		lexicalIndex.removeIf(collectionName, payload -> documentId.equals(payload.get("documentId")));
+		long deleted = pointStore.delete(collectionName, documentFilter(documentId));
+		log.info("Deleted {} points of document {} from collection {}", deleted, documentId, collectionName);
+		return deleted;
+	}
+	
+	/**
+	 * Delete points by id, in batches of the delete batch size.
+	 */
+	public void deletePoints(List<String> pointIds) {
+		for (String collectionName : collectionRouter.getWriteCollections()) {
+			deletePoints(pointIds, collectionName);
+		}
+	}
+	
+	public void deletePoints(List<String> pointIds, String collectionName) {
+		lexicalIndex.remove(collectionName, Set.copyOf(pointIds));
+		pointStore.delete(collectionName, pointIds);
+		log.info("Deleted {} points from collection {}", pointIds.size(), collectionName);
+	}
+	
+	/**
+	 * Overwrite payload fields, such as the access list, on every point of a document.
+	 * Fields not given are left as they are.
+	 */
+	public void updatePayload(String documentId, Map<String, Object> fields) {
+		for (String collectionName : collectionRouter.getWriteCollections()) {
+			lexicalIndex.updatePayload(collectionName, point -> documentId.equals(point.get("documentId")), fields);
+			pointStore.setPayload(collectionName, documentFilter(documentId), fields);
+		}
+	}
+	
+	private static Filter documentFilter(String documentId) {
+		return Filter.newBuilder()
+			.addMust(matchKeyword("documentId", documentId))
+			.build();
+	}
+	
+	/**
+	 * Scroll through every point that has a document id and hand the document ids of each
+	 * page (one entry per point) to the consumer. Only the {@code documentId} payload field
+	 * is fetched, so a page stays small whatever the chunk size.
+	 *
+	 * @return number of points scanned
+	 */
+	public long scanDocumentIds(String collectionName, int pageSize, Consumer<List<String>> pageConsumer) {
+		Filter filter = Filter.newBuilder()
+			.addMustNot(isEmpty("documentId"))
+			.build();
+		return pointStore.scan(collectionName, filter, List.of("documentId"), pageSize,
+			page -> pageConsumer.accept(page.stream().map(payload -> (String) payload.get("documentId")).toList()));
+	}
+	
+	public long count(String collectionName, Filter filter) {
+		return pointStore.count(collectionName, filter);
+	}
+	
+	/**
+	 * Delete every point matching the filter.
+	 */
+	public void delete(String collectionName, Filter filter) {
+		lexicalIndex.removeIf(collectionName, PayloadFilters.matcher(filter));
+		pointStore.delete(collectionName, filter);
+	}
+	
+	/**
+	 * Keyword indexes on the fields we filter by, so filtered search and filtered delete
+	 * don't have to scan every payload.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void ensurePayloadIndexes() {
+		ensurePayloadIndexes(collectionRouter.getLiveCollection());
+	}
+	
+	public void ensurePayloadIndexes(String collectionName) {
+		pointStore.ensurePayloadIndexes(collectionName, INDEXED_FIELDS);
+	}
+	
+	static <T> T await(ListenableFuture<T> future, String action) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while " + action, e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error " + action + ": " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+	
+	/**
+	 * Payload fields of a chunk apart from the text: the metadata, plus the chunk hash. With
+	 * {@code externalizeText} the document-level fields of user documents are dropped, as
+	 * they are restored after a search.
+	 */
+	private static Map<String, Object> payloadFields(Document document, String chunkHash, boolean externalizeText) {
+		boolean userDocument = document.getMetadata().containsKey("documentId");
+		Map<String, Object> fields = new HashMap<>();
+		document.getMetadata().forEach((key, metadataValue) -> {
+			if (!(externalizeText && userDocument && DOCUMENT_FIELDS.contains(key))) {
+				fields.put(key, metadataValue);
+			}
+		});
+		fields.put(ChunkTextStore.CHUNK_HASH_METADATA, chunkHash);
+		return fields;
+	}
+}
\ No newline at end of file
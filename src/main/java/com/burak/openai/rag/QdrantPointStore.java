@@ -0,0 +1,277 @@
+package com.burak.openai.rag;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.WithVectorsSelectorFactory;
+import io.qdrant.client.grpc.Collections.PayloadSchemaType;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points.Filter;
+import io.qdrant.client.grpc.Points.PointId;
+import io.qdrant.client.grpc.Points.PointStruct;
+import io.qdrant.client.grpc.Points.RetrievedPoint;
+import io.qdrant.client.grpc.Points.ScrollPoints;
+import io.qdrant.client.grpc.Points.ScrollResponse;
+import io.qdrant.client.grpc.Points.UpdateResult;
+import io.qdrant.client.grpc.Points.UpsertPoints;
+import io.qdrant.client.grpc.Points.WithPayloadSelector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.burak.openai.rag.QdrantChunkWriter.await;
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.list;
+import static io.qdrant.client.ValueFactory.nullValue;
+import static io.qdrant.client.ValueFactory.value;
+import static io.qdrant.client.VectorsFactory.vectors;
+
+/**
+ * {@link ChunkPointStore} on Qdrant, in the same layout as Spring AI's QdrantVectorStore
+ * (text under {@code doc_content}, metadata as top level payload fields) so the regular
+ * similarity search can read the points.
+ * <p>
+ * Upserts are sent asynchronously, at most {@code max-in-flight-batches} at a time across
+ * all jobs. By default Qdrant acknowledges a batch once it is in its write-ahead log
+ * ({@code wait=false}) instead of after indexing. Filtered deletes collect the point ids
+ * page by page through a filtered scroll and remove them in batches, so a large document
+ * never turns into a single huge delete request.
+ */
+@Slf4j
+public class QdrantPointStore implements ChunkPointStore {
+	
+	static final String CONTENT_FIELD_NAME = "doc_content";
+	
+	private final QdrantClient qdrantClient;
+	private final int deleteBatchSize;
+	private final boolean waitForIndexing;
+	private final Semaphore inFlightBatches;
+	private final Timer batchLatency;
+	
+	public QdrantPointStore(QdrantClient qdrantClient, MeterRegistry meterRegistry, int deleteBatchSize,
+	                        int maxInFlightBatches, boolean waitForIndexing) {
+		if (deleteBatchSize <= 0 || maxInFlightBatches <= 0) {
+			throw new IllegalArgumentException("Qdrant batch sizes and in-flight batches must be greater than 0");
+		}
+		this.qdrantClient = qdrantClient;
+		this.deleteBatchSize = deleteBatchSize;
+		this.waitForIndexing = waitForIndexing;
+		this.inFlightBatches = new Semaphore(maxInFlightBatches);
+		this.batchLatency = meterRegistry.timer("qdrant.upsert.batch");
+	}
+	
+	@Override
+	public ListenableFuture<UpdateResult> upsert(String collectionName, List<Document> points, List<float[]> vectors) {
+		Assert.isTrue(points.size() == vectors.size(), "Every point needs a vector");
+		List<PointStruct> structs = new ArrayList<>(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			structs.add(toPoint(points.get(i), vectors.get(i)));
+		}
+		UpsertPoints request = UpsertPoints.newBuilder()
+			.setCollectionName(collectionName)
+			.addAllPoints(structs)
+			.setWait(waitForIndexing)
+			.build();
+		try {
+			inFlightBatches.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while writing chunks to Qdrant", e);
+		}
+		long batchStartNanos = System.nanoTime();
+		ListenableFuture<UpdateResult> future;
+		try {
+			future = qdrantClient.upsertAsync(request);
+		} catch (RuntimeException e) {
+			inFlightBatches.release();
+			throw e;
+		}
+		future.addListener(() -> {
+			inFlightBatches.release();
+			batchLatency.record(System.nanoTime() - batchStartNanos, TimeUnit.NANOSECONDS);
+		}, MoreExecutors.directExecutor());
+		return future;
+	}
+	
+	/**
+	 * Delete points by id, in batches of the delete batch size.
+	 */
+	@Override
+	public void delete(String collectionName, List<String> pointIds) {
+		for (int start = 0; start < pointIds.size(); start += deleteBatchSize) {
+			List<PointId> ids = pointIds.subList(start, Math.min(start + deleteBatchSize, pointIds.size())).stream()
+				.map(pointId -> id(UUID.fromString(pointId)))
+				.toList();
+			await(qdrantClient.deleteAsync(collectionName, ids), "deleting points");
+		}
+	}
+	
+	@Override
+	public long delete(String collectionName, Filter filter) {
+		long deleted = 0;
+		while (true) {
+			ScrollResponse page = await(qdrantClient.scrollAsync(ScrollPoints.newBuilder()
+				.setCollectionName(collectionName)
+				.setFilter(filter)
+				.setLimit(deleteBatchSize)
+				.setWithPayload(WithPayloadSelectorFactory.enable(false))
+				.setWithVectors(WithVectorsSelectorFactory.enable(false))
+				.build()), "scrolling points to delete");
+			List<PointId> ids = page.getResultList().stream().map(RetrievedPoint::getId).toList();
+			if (ids.isEmpty()) {
+				return deleted;
+			}
+			await(qdrantClient.deleteAsync(collectionName, ids), "deleting points");
+			deleted += ids.size();
+		}
+	}
+	
+	@Override
+	public void setPayload(String collectionName, Filter filter, Map<String, Object> fields) {
+		Map<String, JsonWithInt.Value> payload = new HashMap<>();
+		fields.forEach((key, fieldValue) -> payload.put(key, toValue(fieldValue)));
+		await(qdrantClient.setPayloadAsync(collectionName, payload, filter, true, null, null), "updating payload");
+	}
+	
+	@Override
+	public long count(String collectionName, Filter filter) {
+		return await(qdrantClient.countAsync(collectionName, filter, true), "counting points");
+	}
+	
+	/**
+	 * Only the requested payload fields are fetched, so a page stays small whatever the
+	 * chunk size.
+	 */
+	@Override
+	public long scan(String collectionName, Filter filter, List<String> fields, int pageSize,
+	                 Consumer<List<Map<String, Object>>> pageConsumer) {
+		return scroll(collectionName, filter, WithPayloadSelectorFactory.include(fields), pageSize,
+			page -> pageConsumer.accept(page.stream().map(point -> payload(point.getPayloadMap())).toList()));
+	}
+	
+	@Override
+	public long scanPoints(String collectionName, int pageSize, Consumer<List<Document>> pageConsumer) {
+		return scroll(collectionName, null, WithPayloadSelectorFactory.enable(true), pageSize,
+			page -> pageConsumer.accept(page.stream().map(QdrantPointStore::toDocument).toList()));
+	}
+	
+	private long scroll(String collectionName, Filter filter, WithPayloadSelector withPayload, int pageSize,
+	                    Consumer<List<RetrievedPoint>> pageConsumer) {
+		long scanned = 0;
+		PointId offset = null;
+		do {
+			ScrollPoints.Builder request = ScrollPoints.newBuilder()
+				.setCollectionName(collectionName)
+				.setLimit(pageSize)
+				.setWithPayload(withPayload)
+				.setWithVectors(WithVectorsSelectorFactory.enable(false));
+			if (filter != null) {
+				request.setFilter(filter);
+			}
+			if (offset != null) {
+				request.setOffset(offset);
+			}
+			ScrollResponse page = await(qdrantClient.scrollAsync(request.build()), "scrolling points");
+			scanned += page.getResultCount();
+			pageConsumer.accept(page.getResultList());
+			offset = page.hasNextPageOffset() ? page.getNextPageOffset() : null;
+		} while (offset != null);
+		return scanned;
+	}
+	
+	@Override
+	public void ensurePayloadIndexes(String collectionName, List<String> fields) {
+		for (String field : fields) {
+			try {
+				await(qdrantClient.createPayloadIndexAsync(collectionName, field, PayloadSchemaType.Keyword,
+					null, true, null, null), "creating payload index on " + field);
+			} catch (RuntimeException e) {
+				log.warn("Could not create payload index on {} in {}: {}", field, collectionName, e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Point of a chunk: the text under {@code doc_content} (left empty rather than absent
+	 * when it is kept in the chunk store, as Spring AI's store needs the field) and the
+	 * metadata as payload.
+	 */
+	private static PointStruct toPoint(Document point, float[] vector) {
+		Map<String, JsonWithInt.Value> payload = new HashMap<>();
+		point.getMetadata().forEach((key, fieldValue) -> payload.put(key, toValue(fieldValue)));
+		payload.put(CONTENT_FIELD_NAME, value(point.getText() != null ? point.getText() : ""));
+		return PointStruct.newBuilder()
+			.setId(id(UUID.fromString(point.getId())))
+			.setVectors(vectors(vector))
+			.putAllPayload(payload)
+			.build();
+	}
+	
+	private static Document toDocument(RetrievedPoint point) {
+		return Document.builder()
+			.id(point.getId().getUuid())
+			.text(point.getPayloadOrDefault(CONTENT_FIELD_NAME, value("")).getStringValue())
+			.metadata(payload(point.getPayloadMap()))
+			.build();
+	}
+	
+	private static Map<String, Object> payload(Map<String, JsonWithInt.Value> payloadValues) {
+		Map<String, Object> payload = new HashMap<>();
+		payloadValues.forEach((key, payloadValue) -> {
+			Object metadataValue = fromValue(payloadValue);
+			if (!CONTENT_FIELD_NAME.equals(key) && metadataValue != null) {
+				payload.put(key, metadataValue);
+			}
+		});
+		return payload;
+	}
+	
+	private static Object fromValue(JsonWithInt.Value payloadValue) {
+		return switch (payloadValue.getKindCase()) {
+			case STRING_VALUE -> payloadValue.getStringValue();
+			case INTEGER_VALUE -> payloadValue.getIntegerValue();
+			case DOUBLE_VALUE -> payloadValue.getDoubleValue();
+			case BOOL_VALUE -> payloadValue.getBoolValue();
+			case LIST_VALUE -> payloadValue.getListValue().getValuesList().stream()
+				.map(QdrantPointStore::fromValue)
+				.toList();
+			default -> null;
+		};
+	}
+	
+	private static JsonWithInt.Value toValue(Object metadataValue) {
+		if (metadataValue == null) {
+			return nullValue();
+		}
+		if (metadataValue instanceof String text) {
+			return value(text);
+		}
+		if (metadataValue instanceof Integer || metadataValue instanceof Long) {
+			return value(((Number) metadataValue).longValue());
+		}
+		if (metadataValue instanceof Number number) {
+			return value(number.doubleValue());
+		}
+		if (metadataValue instanceof Boolean flag) {
+			return value(flag);
+		}
+		if (metadataValue instanceof List<?> values) {
+			List<JsonWithInt.Value> converted = new ArrayList<>(values.size());
+			values.forEach(item -> converted.add(toValue(item)));
+			return list(converted);
+		}
+		return value(metadataValue.toString());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.burak.openai.rag;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of retrieval results, so regenerating a quiz or reopening flashcards
+ * doesn't run the same filtered search again. Entries are keyed by user, query, topK,
+ * similarity threshold and the user's corpus version. {@code DocumentService} bumps the
+ * version whenever a document of the user is added, shared, deleted or handed over, so a
+ * result computed against an older corpus can never be read again. The live collection
+ * is part of the key as well, which covers a reindex switching collections.
+ */
+@Component
+public class RetrievalResultCache {
+	
+	private final boolean enabled;
+	private final int maxEntries;
+	private final long ttlNanos;
+	private final CollectionRouter collectionRouter;
+	private final MeterRegistry meterRegistry;
+	private final Map<String, AtomicLong> corpusVersions = new ConcurrentHashMap<>();
+	private final Map<Key, Entry> results;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+	
+	public record Key(String username, String query, int topK, double similarityThreshold, String collection,
+	                  long corpusVersion) {}
+	
+	private record Entry(List<Document> documents, long expiresAtNanos) {}
+	
+	public RetrievalResultCache(CollectionRouter collectionRouter,
+	                            MeterRegistry meterRegistry,
+	                            @Value("${document.retrieval.result-cache.enabled:true}") boolean enabled,
+	                            @Value("${document.retrieval.result-cache.max-entries:2000}") int maxEntries,
+	                            @Value("${document.retrieval.result-cache.ttl:PT5M}") Duration ttl) {
+		this.collectionRouter = collectionRouter;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.maxEntries = maxEntries;
+		this.ttlNanos = ttl.toNanos();
+		this.hits = meterRegistry.counter("retrieval.cache.hits");
+		this.misses = meterRegistry.counter("retrieval.cache.misses");
+		this.evictions = meterRegistry.counter("retrieval.cache.evictions");
+		this.results = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				if (size() > RetrievalResultCache.this.maxEntries) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	@PostConstruct
+	public void registerGauges() {
+		meterRegistry.gauge("retrieval.cache.size", this, RetrievalResultCache::size);
+	}
+	
+	public Key key(String username, String query, int topK, double similarityThreshold) {
+		return new Key(username, query, topK, similarityThreshold, collectionRouter.getLiveCollection(),
+			getCorpusVersion(username));
+	}
+	
+	public Optional<List<Document>> get(Key key) {
+		if (!enabled) {
+			return Optional.empty();
+		}
+		Entry entry;
+		synchronized (results) {
+			entry = results.get(key);
+			if (entry != null && System.nanoTime() - entry.expiresAtNanos() > 0) {
+				results.remove(key);
+				entry = null;
+			}
+		}
+		(entry != null ? hits : misses).increment();
+		return Optional.ofNullable(entry).map(Entry::documents);
+	}
+	
+	public void put(Key key, List<Document> documents) {
+		if (!enabled) {
+			return;
+		}
+		synchronized (results) {
+			results.put(key, new Entry(List.copyOf(documents), System.nanoTime() + ttlNanos));
+		}
+	}
+	
+	/**
+	 * Make every cached result of the user stale. Called after the set of documents the
+	 * user can read has changed.
+	 */
+	public void bumpCorpusVersion(String username) {
+		corpusVersions.computeIfAbsent(username, key -> new AtomicLong()).incrementAndGet();
+		// The old entries can't be hit any more; drop them instead of waiting for eviction
+		synchronized (results) {
+			results.keySet().removeIf(key -> key.username().equals(username));
+		}
+	}
+	
+	public long getCorpusVersion(String username) {
+		AtomicLong version = corpusVersions.get(username);
+		return version != null ? version.get() : 0;
+	}
+	
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import io.micrometer.observation.ObservationRegistry;
+import io.qdrant.client.QdrantClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.qdrant.QdrantVectorStore;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * {@link VectorStore} that follows the {@link CollectionRouter}: similarity searches go to
+ * the live collection, adds and deletes go to every collection currently written. Each
+ * collection is served by its own Spring AI {@link QdrantVectorStore}, which embeds with
+ * the model the router records for the collection. Search results are completed from the
+ * {@link ChunkTextStore} when the points only carry a chunk hash.
+ */
+public class RoutingVectorStore implements VectorStore {
+	
+	private final QdrantClient qdrantClient;
+	private final Function<String, EmbeddingModel> embeddingModels;
+	private final ObservationRegistry observationRegistry;
+	private final CollectionRouter collectionRouter;
+	private final ChunkTextStore chunkTextStore;
+	// By collection and model: a failed run's collection name is reused by the next run
+	private final Map<List<String>, VectorStore> stores = new ConcurrentHashMap<>();
+	private final Map<String, EmbeddingModel> modelsById = new ConcurrentHashMap<>();
+	
+	private RoutingVectorStore(QdrantClient qdrantClient, Function<String, EmbeddingModel> embeddingModels,
+	                           ObservationRegistry observationRegistry, CollectionRouter collectionRouter,
+	                           ChunkTextStore chunkTextStore) {
+		this.qdrantClient = qdrantClient;
+		this.embeddingModels = embeddingModels;
+		this.observationRegistry = observationRegistry;
+		this.collectionRouter = collectionRouter;
+		this.chunkTextStore = chunkTextStore;
+	}
+	
+	@Override
+	public void add(List<Document> documents) {
+		for (String collection : collectionRouter.getWriteCollections()) {
+			store(collection).add(documents);
+		}
+	}
+	
+	@Override
+	public void delete(List<String> idList) {
+		for (String collection : collectionRouter.getWriteCollections()) {
+			store(collection).delete(idList);
+		}
+	}
+	
+	@Override
+	public void delete(Filter.Expression filterExpression) {
+		for (String collection : collectionRouter.getWriteCollections()) {
+			store(collection).delete(filterExpression);
+		}
+	}
+	
+	@Override
+	public List<Document> similaritySearch(SearchRequest request) {
+		List<Document> results = store(collectionRouter.getLiveCollection()).similaritySearch(request);
+		return chunkTextStore != null ? chunkTextStore.hydrate(results) : results;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Optional<T> getNativeClient() {
+		return Optional.of((T) qdrantClient);
+	}
+	
+	private VectorStore store(String collection) {
+		String model = collectionRouter.getModel(collection);
+		return stores.computeIfAbsent(List.of(collection, model), key -> QdrantVectorStore.builder(qdrantClient,
+				modelsById.computeIfAbsent(model, embeddingModels))
+			.collectionName(collection)
+			.initializeSchema(false)
+			.observationRegistry(observationRegistry)
+			.build());
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	public static class Builder {
+		private QdrantClient qdrantClient;
+		private Function<String, EmbeddingModel> embeddingModels;
+		private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+		private CollectionRouter collectionRouter;
+		private ChunkTextStore chunkTextStore;
+		
+		private Builder() {}
+		
+		public Builder qdrantClient(QdrantClient qdrantClient) {
+			this.qdrantClient = qdrantClient;
+			return this;
+		}
+		
+		/**
+		 * Embedding model for a model id; called once per model.
+		 */
+		public Builder embeddingModels(Function<String, EmbeddingModel> embeddingModels) {
+			this.embeddingModels = embeddingModels;
+			return this;
+		}
+		
+		public Builder observationRegistry(ObservationRegistry observationRegistry) {
+			this.observationRegistry = observationRegistry;
+			return this;
+		}
+		
+		public Builder collectionRouter(CollectionRouter collectionRouter) {
+			this.collectionRouter = collectionRouter;
+			return this;
+		}
+		
+		public Builder chunkTextStore(ChunkTextStore chunkTextStore) {
+			this.chunkTextStore = chunkTextStore;
+			return this;
+		}
+		
+		public RoutingVectorStore build() {
+			Assert.notNull(qdrantClient, "qdrantClient must be set");
+			Assert.notNull(embeddingModels, "embeddingModels must be set");
+			Assert.notNull(collectionRouter, "collectionRouter must be set");
+			return new RoutingVectorStore(qdrantClient, embeddingModels, observationRegistry, collectionRouter,
+				chunkTextStore);
+		}
+	}
+}
\ No newline at end of file
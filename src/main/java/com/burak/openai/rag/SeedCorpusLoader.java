@@ -0,0 +1,228 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.FairIngestionScheduler;
+import io.qdrant.client.grpc.Points.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.Tika;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.qdrant.client.ConditionFactory.match;
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+
+/**
+ * Seeds the vector store with the classpath corpus listed in the seed manifest (HR
+ * policies, sample sentences). Every point records the resource it came from, the
+ * resource checksum and the resource's chunk count, so the state lives in Qdrant itself:
+ * a resource is only embedded again when its checksum changed or its points are
+ * incomplete. Point ids are derived from resource and chunk, so a reload never
+ * duplicates points.
+ * <p>
+ * Seeding runs on the ingestion scheduler after the application is ready, never during
+ * context startup.
+ */
+@Component
+@Slf4j
+public class SeedCorpusLoader {
+	
+	static final String RESOURCE_FIELD = "seedResource";
+	static final String CHECKSUM_FIELD = "seedChecksum";
+	static final String CHUNK_COUNT_FIELD = "seedChunkCount";
+	
+	private static final String SEED_QUEUE = "seed-corpus";
+	private static final String LINES_MODE = "lines";
+	private static final String DOCUMENT_MODE = "document";
+	
+	private final FairIngestionScheduler ingestionScheduler;
+	private final ChunkEmbeddingStage chunkEmbeddingStage;
+	private final QdrantChunkWriter qdrantChunkWriter;
+	private final CollectionRouter collectionRouter;
+	private final TextSplitterSelector textSplitterSelector;
+	private final TextCleanupTransformer textCleanupTransformer;
+	private final DocumentTextExtractor documentTextExtractor;
+	private final Tika tika = new Tika();
+	private final boolean enabled;
+	private final Resource manifest;
+	
+	public SeedCorpusLoader(FairIngestionScheduler ingestionScheduler,
+	                        ChunkEmbeddingStage chunkEmbeddingStage,
+	                        QdrantChunkWriter qdrantChunkWriter,
+	                        CollectionRouter collectionRouter,
+	                        TextSplitterSelector textSplitterSelector,
+	                        TextCleanupTransformer textCleanupTransformer,
+	                        DocumentTextExtractor documentTextExtractor,
+	                        @Value("${document.seed.enabled:true}") boolean enabled,
+	                        @Value("${document.seed.manifest:classpath:seed/manifest.properties}") Resource manifest) {
+		this.ingestionScheduler = ingestionScheduler;
+		this.chunkEmbeddingStage = chunkEmbeddingStage;
+		this.qdrantChunkWriter = qdrantChunkWriter;
+		this.collectionRouter = collectionRouter;
+		this.textSplitterSelector = textSplitterSelector;
+		this.textCleanupTransformer = textCleanupTransformer;
+		this.documentTextExtractor = documentTextExtractor;
+		this.enabled = enabled;
+		this.manifest = manifest;
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void seedOnStartup() {
+		if (!enabled) {
+			log.info("Seed corpus loading is disabled");
+			return;
+		}
+		ingestionScheduler.submit(SEED_QUEUE, () -> seed(collectionRouter.getWriteCollections()));
+	}
+	
+	/**
+	 * Bring every manifest resource up to date in the given collections. A resource that
+	 * fails is logged and skipped, so one broken file doesn't block the rest.
+	 */
+	public void seed(List<String> collectionNames) {
+		Map<String, String> resources;
+		try {
+			resources = readManifest();
+		} catch (IOException e) {
+			log.error("Could not read seed manifest {}", manifest, e);
+			return;
+		}
+		for (Map.Entry<String, String> entry : resources.entrySet()) {
+			try {
+				seedResource(entry.getKey(), entry.getValue(), collectionNames);
+			} catch (IOException | RuntimeException e) {
+				log.error("Could not seed {}", entry.getKey(), e);
+			}
+		}
+	}
+	
+	private void seedResource(String location, String mode, List<String> collectionNames) throws IOException {
+		byte[] content = new ClassPathResource(location).getContentAsByteArray();
+		String checksum = ContentHash.sha256(content);
+		
+		List<Document> chunks = split(location, mode, content);
+		List<Document> seedChunks = new ArrayList<>(chunks.size());
+		for (int i = 0; i < chunks.size(); i++) {
+			Document chunk = chunks.get(i);
+			seedChunks.add(chunk.mutate()
+				.id(UUID.nameUUIDFromBytes((location + ":" + i + ":" + ContentHash.sha256(chunk.getText()))
+					.getBytes(StandardCharsets.UTF_8)).toString())
+				.metadata("source", location)
+				.metadata(RESOURCE_FIELD, location)
+				.metadata(CHECKSUM_FIELD, checksum)
+				.metadata(CHUNK_COUNT_FIELD, chunks.size())
+				.build());
+		}
+		
+		List<String> upToDate = collectionNames.stream()
+			.filter(collectionName -> isUpToDate(collectionName, location, checksum))
+			.toList();
+		List<String> outdated = collectionNames.stream()
+			.filter(collectionName -> !upToDate.contains(collectionName))
+			.toList();
+		if (!upToDate.isEmpty()) {
+			// The points outlive the process, their texts and terms have to be put back
+			qdrantChunkWriter.restore(seedChunks, upToDate);
+		}
+		if (outdated.isEmpty()) {
+			log.info("Seed resource {} is up to date", location);
+			return;
+		}
+		
+		// Drop the previous version first; embeddings of unchanged text come from the cache
+		Filter resourceFilter = Filter.newBuilder()
+			.addMust(matchKeyword(RESOURCE_FIELD, location))
+			.build();
+		outdated.forEach(collectionName -> qdrantChunkWriter.delete(collectionName, resourceFilter));
+		List<EmbeddedChunk> embeddedChunks = chunkEmbeddingStage.embed(seedChunks, outdated, null);
+		qdrantChunkWriter.writeAsync(embeddedChunks, outdated).await();
+		log.info("Seeded {} chunks of {} into {}", seedChunks.size(), location, outdated);
+	}
+	
+	/**
+	 * Vector store filter matching the chunks of the manifest resources, the shared corpus
+	 * every user may retrieve.
+	 */
+	public org.springframework.ai.vectorstore.filter.Filter.Expression sharedCorpusFilter() {
+		try {
+			return new FilterExpressionBuilder()
+				.in(RESOURCE_FIELD, readManifest().keySet().toArray())
+				.build();
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read seed manifest " + manifest, e);
+		}
+	}
+	
+	/**
+	 * A resource is up to date when every one of its chunks is stored with the current
+	 * checksum; a run that stopped half way leaves fewer points than the recorded count.
+	 */
+	private boolean isUpToDate(String collectionName, String location, String checksum) {
+		Filter current = Filter.newBuilder()
+			.addMust(matchKeyword(RESOURCE_FIELD, location))
+			.addMust(matchKeyword(CHECKSUM_FIELD, checksum))
+			.build();
+		long stored = qdrantChunkWriter.count(collectionName, current);
+		if (stored == 0) {
+			return false;
+		}
+		Filter complete = current.toBuilder()
+			.addMust(match(CHUNK_COUNT_FIELD, stored))
+			.build();
+		return qdrantChunkWriter.count(collectionName, complete) == stored;
+	}
+	
+	private List<Document> split(String location, String mode, byte[] content) throws IOException {
+		if (LINES_MODE.equals(mode)) {
+			return new String(content, StandardCharsets.UTF_8).lines()
+				.filter(line -> !line.isBlank())
+				.map(line -> new Document(line.strip()))
+				.toList();
+		}
+		if (!DOCUMENT_MODE.equals(mode)) {
+			throw new RuntimeException("Unknown seed mode '" + mode + "' for " + location);
+		}
+		ByteArrayResource resource = new ByteArrayResource(content) {
+			@Override
+			public String getFilename() {
+				return location;
+			}
+		};
+		String contentType = tika.detect(location);
+		List<Document> documents = textCleanupTransformer.apply(documentTextExtractor.extract(resource, contentType, location));
+		return textSplitterSelector.forDocument(contentType, location).split(documents);
+	}
+	
+	/**
+	 * Manifest entries in file order, as {@code resource=mode}.
+	 */
+	private Map<String, String> readManifest() throws IOException {
+		Map<String, String> resources = new LinkedHashMap<>();
+		for (String line : manifest.getContentAsString(StandardCharsets.UTF_8).lines().toList()) {
+			String entry = line.strip();
+			if (entry.isEmpty() || entry.startsWith("#")) {
+				continue;
+			}
+			int separator = entry.indexOf('=');
+			if (separator < 0) {
+				resources.put(entry, DOCUMENT_MODE);
+			} else {
+				resources.put(entry.substring(0, separator).strip(), entry.substring(separator + 1).strip());
+			}
+		}
+		return resources;
+	}
+}
\ No newline at end of file
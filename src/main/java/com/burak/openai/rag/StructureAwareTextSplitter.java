@@ -0,0 +1,318 @@
+package com.burak.openai.rag;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.util.Assert;
+
+import java.text.BreakIterator;
+import java.text.StringCharacterIterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text on paragraph and sentence boundaries (and Markdown headings when enabled)
+ * and packs whole sentences into chunks of at most {@code chunkSize} tokens. List items
+ * and table rows count as sentences of their own, so a chunk never ends inside one
+ * unless the item alone is longer than a chunk. Consecutive
+ * chunks inside a section share up to {@code overlapTokens} tokens of trailing sentences;
+ * a heading always starts a fresh chunk without overlap.
+ * <p>
+ * Every sentence is encoded exactly once. Chunk sizes are computed from the per-sentence
+ * token counts, and only sentences longer than a whole chunk are decoded back from their
+ * tokens to be cut into windows.
+ */
+public class StructureAwareTextSplitter extends TextSplitter {
+	
+	private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n[ \\t]*\\n\\s*");
+	private static final Pattern MARKDOWN_HEADING = Pattern.compile("^#{1,6}\\s", Pattern.MULTILINE);
+	private static final Pattern ITEM_LINE = Pattern.compile("^[ \\t]*(?:[-*+\u2022][ \\t]|\\d{1,3}[.)][ \\t]|\\|)",
+		Pattern.MULTILINE);
+	private static final int MIN_CHUNK_CHARS = 5;
+	
+	private final Encoding encoding;
+	private final int chunkSize;
+	private final int overlapTokens;
+	private final boolean markdownHeadings;
+	private final int maxNumChunks;
+	private final Locale locale;
+	
+	private StructureAwareTextSplitter(Encoding encoding, int chunkSize, int overlapTokens, boolean markdownHeadings,
+	                                   int maxNumChunks, Locale locale) {
+		Assert.notNull(encoding, "encoding cannot be null");
+		Assert.isTrue(chunkSize > 0, "chunkSize must be greater than 0");
+		Assert.isTrue(overlapTokens >= 0 && overlapTokens < chunkSize, "overlapTokens must be between 0 and chunkSize");
+		Assert.isTrue(maxNumChunks > 0, "maxNumChunks must be greater than 0");
+		this.encoding = encoding;
+		this.chunkSize = chunkSize;
+		this.overlapTokens = overlapTokens;
+		this.markdownHeadings = markdownHeadings;
+		this.maxNumChunks = maxNumChunks;
+		this.locale = locale;
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	private record Segment(String text, IntArrayList tokens, boolean sectionStart) {
+		
+		int tokenCount() {
+			return tokens.size();
+		}
+	}
+	
+	@Override
+	protected List<String> splitText(String text) {
+		List<String> chunks = new ArrayList<>();
+		if (text == null || text.isBlank()) {
+			return chunks;
+		}
+		ChunkStream stream = stream(chunks::add);
+		stream.add(text);
+		stream.finish();
+		return chunks;
+	}
+	
+	/**
+	 * Incremental splitting for text that is produced piece by piece, such as a document
+	 * being parsed. Chunks are handed to the consumer as soon as they are complete, so only
+	 * the sentences of the open chunk are held in memory. Splitting a text in pieces that
+	 * end on paragraph breaks yields the same chunks as splitting it in one go.
+	 */
+	public ChunkStream stream(Consumer<String> chunkConsumer) {
+		return new ChunkStream(chunkConsumer);
+	}
+	
+	public final class ChunkStream {
+		
+		private final Consumer<String> chunkConsumer;
+		private final BreakIterator sentences = BreakIterator.getSentenceInstance(locale);
+		private Deque<Segment> current = new ArrayDeque<>();
+		private int currentTokens;
+		private int chunkCount;
+		
+		private ChunkStream(Consumer<String> chunkConsumer) {
+			this.chunkConsumer = chunkConsumer;
+		}
+		
+		/**
+		 * Add text made of whole paragraphs, i.e. ending on a paragraph break or at the end
+		 * of the document.
+		 */
+		public void add(String text) {
+			for (int[] block : blocks(text)) {
+				int blockStart = block[0];
+				int blockEnd = block[1];
+				boolean sectionStart = block[2] == 1;
+				List<Integer> unitStarts = itemStarts(text, blockStart, blockEnd);
+				for (int unit = 0; unit < unitStarts.size(); unit++) {
+					int unitStart = unitStarts.get(unit);
+					int unitEnd = unit + 1 < unitStarts.size() ? unitStarts.get(unit + 1) : blockEnd;
+					sentences.setText(new StringCharacterIterator(text, unitStart, unitEnd, unitStart));
+					int start = sentences.first();
+					for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+						if (isFull()) {
+							return;
+						}
+						String sentence = text.substring(start, end);
+						if (sentence.isBlank()) {
+							continue;
+						}
+						accept(new Segment(sentence, encoding.encode(sentence), sectionStart));
+						sectionStart = false;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Emit the last open chunk.
+		 */
+		public void finish() {
+			if (!current.isEmpty() && !isFull()) {
+				emit();
+			}
+			current.clear();
+			currentTokens = 0;
+		}
+		
+		public boolean isFull() {
+			return chunkCount >= maxNumChunks;
+		}
+		
+		private void accept(Segment segment) {
+			if (segment.sectionStart() && !current.isEmpty()) {
+				emit();
+				current.clear();
+				currentTokens = 0;
+			}
+			
+			if (segment.tokenCount() > chunkSize) {
+				// A single sentence longer than a chunk: close the open chunk and cut it by tokens
+				if (!current.isEmpty()) {
+					emit();
+					current.clear();
+					currentTokens = 0;
+				}
+				splitByTokens(segment.tokens());
+				return;
+			}
+			
+			if (currentTokens + segment.tokenCount() > chunkSize && !current.isEmpty()) {
+				emit();
+				// Carry trailing sentences into the next chunk as overlap, as long as the new sentence still fits
+				int carried = 0;
+				Deque<Segment> overlap = new ArrayDeque<>();
+				for (var it = current.descendingIterator(); it.hasNext(); ) {
+					Segment previous = it.next();
+					if (carried + previous.tokenCount() > overlapTokens
+						|| carried + previous.tokenCount() + segment.tokenCount() > chunkSize) {
+						break;
+					}
+					overlap.addFirst(previous);
+					carried += previous.tokenCount();
+				}
+				current = overlap;
+				currentTokens = carried;
+			}
+			current.addLast(segment);
+			currentTokens += segment.tokenCount();
+		}
+		
+		private void splitByTokens(IntArrayList tokens) {
+			int step = chunkSize - overlapTokens;
+			for (int start = 0; start < tokens.size() && !isFull(); start += step) {
+				int end = Math.min(start + chunkSize, tokens.size());
+				IntArrayList window = new IntArrayList(end - start);
+				for (int i = start; i < end; i++) {
+					window.add(tokens.get(i));
+				}
+				addChunk(encoding.decode(window));
+				if (end == tokens.size()) {
+					break;
+				}
+			}
+		}
+		
+		private void emit() {
+			StringBuilder chunk = new StringBuilder();
+			current.forEach(segment -> chunk.append(segment.text()));
+			addChunk(chunk.toString());
+		}
+		
+		private void addChunk(String chunk) {
+			String trimmed = chunk.strip();
+			if (trimmed.length() >= MIN_CHUNK_CHARS) {
+				chunkConsumer.accept(trimmed);
+				chunkCount++;
+			}
+		}
+	}
+	
+	/**
+	 * Start of the block followed by the starts of the list items and table rows in it.
+	 */
+	private static List<Integer> itemStarts(String text, int blockStart, int blockEnd) {
+		List<Integer> starts = new ArrayList<>();
+		starts.add(blockStart);
+		Matcher items = ITEM_LINE.matcher(text).region(blockStart, blockEnd);
+		while (items.find()) {
+			if (items.start() > blockStart) {
+				starts.add(items.start());
+			}
+		}
+		return starts;
+	}
+	
+	/**
+	 * Paragraph (and heading) boundaries as {@code [start, end, startsSection]} ranges.
+	 */
+	private List<int[]> blocks(String text) {
+		List<Integer> boundaries = new ArrayList<>();
+		Matcher paragraphs = PARAGRAPH_BREAK.matcher(text);
+		while (paragraphs.find()) {
+			boundaries.add(paragraphs.end());
+		}
+		Set<Integer> headings = new HashSet<>();
+		if (markdownHeadings) {
+			Matcher matcher = MARKDOWN_HEADING.matcher(text);
+			while (matcher.find()) {
+				headings.add(matcher.start());
+			}
+			boundaries.addAll(headings);
+		}
+		boundaries.add(text.length());
+		boundaries.sort(null);
+		
+		List<int[]> blocks = new ArrayList<>();
+		int start = 0;
+		for (int end : boundaries) {
+			if (end > start) {
+				blocks.add(new int[] { start, end, headings.contains(start) ? 1 : 0 });
+				start = end;
+			}
+		}
+		return blocks;
+	}
+	
+	public static final class Builder {
+		
+		private Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+		private int chunkSize = 300;
+		private int overlapTokens = 50;
+		private boolean markdownHeadings = false;
+		private int maxNumChunks = 10000;
+		private Locale locale = Locale.ROOT;
+		
+		private Builder() {
+		}
+		
+		public Builder encoding(Encoding encoding) {
+			this.encoding = encoding;
+			return this;
+		}
+		
+		public Builder chunkSize(int chunkSize) {
+			this.chunkSize = chunkSize;
+			return this;
+		}
+		
+		public Builder overlapTokens(int overlapTokens) {
+			this.overlapTokens = overlapTokens;
+			return this;
+		}
+		
+		/**
+		 * Start a new chunk at every Markdown heading ({@code #} to {@code ######}).
+		 */
+		public Builder markdownHeadings(boolean markdownHeadings) {
+			this.markdownHeadings = markdownHeadings;
+			return this;
+		}
+		
+		public Builder maxNumChunks(int maxNumChunks) {
+			this.maxNumChunks = maxNumChunks;
+			return this;
+		}
+		
+		public Builder locale(Locale locale) {
+			this.locale = locale;
+			return this;
+		}
+		
+		public StructureAwareTextSplitter build() {
+			return new StructureAwareTextSplitter(encoding, chunkSize, overlapTokens, markdownHeadings, maxNumChunks, locale);
+		}
+	}
+}
\ No newline at end of file
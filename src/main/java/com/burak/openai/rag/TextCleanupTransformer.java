@@ -0,0 +1,297 @@
+package com.burak.openai.rag;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentTransformer;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cleans extracted text before chunking, so page furniture isn't embedded over and over:
+ * <ul>
+ *     <li>lines repeated on many pages (running headers and footers, slide template text)
+ *     are dropped, and so are page numbers on the first or last line of a page; pages are
+ *     the extracted documents, or the form-feed separated sections of a document</li>
+ *     <li>words hyphenated across a line break are joined; the hyphen is kept when both
+ *     halves also occur as words of their own and the joined word does not, as in
+ *     "well-known"</li>
+ *     <li>runs of spaces and blank lines are collapsed</li>
+ * </ul>
+ * Repeated lines are matched with digits ignored, so "Page 3 of 40" style footers count
+ * as the same line on every page. Lines without letters are never taken for repeated
+ * lines, so numbers in tables and lists are kept.
+ */
+public class TextCleanupTransformer implements DocumentTransformer {
+	
+	private static final Logger logger = LoggerFactory.getLogger(TextCleanupTransformer.class);
+	
+	private static final char PAGE_SEPARATOR = '\f';
+	private static final Pattern PAGE_NUMBER = Pattern.compile(
+		"(?i)(page|slide|seite|sayfa)?\\s*[-–]?\\s*\\d{1,4}\\s*((/|of|von)\\s*\\d{1,4})?\\s*[-–]?");
+	private static final Pattern HYPHENATED_BREAK = Pattern.compile("(\\p{L}+)-[ \\t]*\\n[ \\t]*(\\p{Ll}\\p{L}*)");
+	private static final Pattern WORD = Pattern.compile("\\p{L}+");
+	private static final Pattern LETTER = Pattern.compile("\\p{L}");
+	private static final Pattern HORIZONTAL_SPACE = Pattern.compile("[ \\t\\u00A0\\u200B]+");
+	private static final Pattern SPACE_AROUND_NEWLINE = Pattern.compile(" ?\\n ?");
+	private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+	private static final Pattern DIGITS = Pattern.compile("\\d+");
+	
+	private final int minRepeatedPages;
+	private final double repeatedPageRatio;
+	private final int maxBoilerplateLineLength;
+	private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+	
+	/**
+	 * Cleaned documents with the token counts before and after cleanup.
+	 */
+	public record CleanupResult(List<Document> documents, int tokensBefore, int tokensAfter, int linesRemoved) {
+		
+		public int tokensSaved() {
+			return tokensBefore - tokensAfter;
+		}
+	}
+	
+	private TextCleanupTransformer(int minRepeatedPages, double repeatedPageRatio, int maxBoilerplateLineLength) {
+		this.minRepeatedPages = minRepeatedPages;
+		this.repeatedPageRatio = repeatedPageRatio;
+		this.maxBoilerplateLineLength = maxBoilerplateLineLength;
+	}
+	
+	@Override
+	public List<Document> apply(List<Document> documents) {
+		return clean(documents).documents();
+	}
+	
+	public CleanupResult clean(List<Document> documents) {
+		Assert.notNull(documents, "documents cannot be null");
+		
+		List<List<List<String>>> pagesByDocument = new ArrayList<>(documents.size());
+		int pageCount = 0;
+		int tokensBefore = 0;
+		for (Document document : documents) {
+			String text = document.getText() != null ? document.getText() : "";
+			tokensBefore += tokenCountEstimator.estimate(text);
+			List<List<String>> pages = new ArrayList<>();
+			for (String page : text.split(String.valueOf(PAGE_SEPARATOR), -1)) {
+				pages.add(page.lines().toList());
+			}
+			pagesByDocument.add(pages);
+			pageCount += pages.size();
+		}
+		
+		boolean multiPage = pageCount >= minRepeatedPages;
+		Set<String> boilerplate = multiPage ? findRepeatedLines(pagesByDocument, pageCount) : Set.of();
+		
+		List<Document> cleaned = new ArrayList<>(documents.size());
+		int tokensAfter = 0;
+		int linesRemoved = 0;
+		for (int i = 0; i < documents.size(); i++) {
+			StringBuilder text = new StringBuilder();
+			for (List<String> page : pagesByDocument.get(i)) {
+				List<String> kept = new ArrayList<>(page.size());
+				for (String line : page) {
+					if (multiPage && isRepeated(line, boilerplate)) {
+						linesRemoved++;
+						continue;
+					}
+					kept.add(line);
+				}
+				if (multiPage) {
+					linesRemoved += removePageNumbers(kept);
+				}
+				kept.forEach(line -> text.append(line).append('\n'));
+				text.append('\n');
+			}
+			String cleanedText = normalizeWhitespace(text.toString());
+			if (cleanedText.isEmpty()) {
+				continue;
+			}
+			tokensAfter += tokenCountEstimator.estimate(cleanedText);
+			cleaned.add(documents.get(i).mutate().text(cleanedText).build());
+		}
+		
+		logger.debug("Cleaned {} documents: {} boilerplate lines removed, {} -> {} tokens",
+			documents.size(), linesRemoved, tokensBefore, tokensAfter);
+		return new CleanupResult(cleaned, tokensBefore, tokensAfter, linesRemoved);
+	}
+	
+	/**
+	 * Normalized lines that appear on at least {@code minRepeatedPages} pages and on at
+	 * least {@code repeatedPageRatio} of all pages.
+	 */
+	private Set<String> findRepeatedLines(List<List<List<String>>> pagesByDocument, int pageCount) {
+		Map<String, Integer> pagesPerLine = new HashMap<>();
+		for (List<List<String>> pages : pagesByDocument) {
+			for (List<String> page : pages) {
+				Set<String> seenOnPage = new HashSet<>();
+				for (String line : page) {
+					String key = normalizeLine(line);
+					if (key != null && seenOnPage.add(key)) {
+						pagesPerLine.merge(key, 1, Integer::sum);
+					}
+				}
+			}
+		}
+		int threshold = Math.max(minRepeatedPages, (int) Math.ceil(repeatedPageRatio * pageCount));
+		Set<String> repeated = new HashSet<>();
+		pagesPerLine.forEach((line, pages) -> {
+			if (pages >= threshold) {
+				repeated.add(line);
+			}
+		});
+		return repeated;
+	}
+	
+	private boolean isRepeated(String line, Set<String> repeatedLines) {
+		String key = normalizeLine(line);
+		return key != null && repeatedLines.contains(key);
+	}
+	
+	/**
+	 * Remove a page number from the first and the last non-blank line of a page. A number
+	 * anywhere else on the page is content, such as a year in a table.
+	 *
+	 * @return number of lines removed
+	 */
+	private static int removePageNumbers(List<String> page) {
+		int removed = 0;
+		int last = lastNonBlank(page);
+		if (last >= 0 && PAGE_NUMBER.matcher(page.get(last).strip()).matches()) {
+			page.remove(last);
+			removed++;
+		}
+		int first = firstNonBlank(page);
+		if (first >= 0 && PAGE_NUMBER.matcher(page.get(first).strip()).matches()) {
+			page.remove(first);
+			removed++;
+		}
+		return removed;
+	}
+	
+	private static int firstNonBlank(List<String> lines) {
+		for (int i = 0; i < lines.size(); i++) {
+			if (!lines.get(i).isBlank()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static int lastNonBlank(List<String> lines) {
+		for (int i = lines.size() - 1; i >= 0; i--) {
+			if (!lines.get(i).isBlank()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Comparison key of a line, or {@code null} if the line can't be boilerplate.
+	 */
+	private String normalizeLine(String line) {
+		String stripped = HORIZONTAL_SPACE.matcher(line.strip()).replaceAll(" ");
+		if (stripped.isEmpty() || stripped.length() > maxBoilerplateLineLength || !LETTER.matcher(stripped).find()) {
+			return null;
+		}
+		return DIGITS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll("#");
+	}
+	
+	/**
+	 * Whitespace and hyphenation cleanup of a piece of text on its own. Used when text is
+	 * streamed into the splitter: repeated lines need statistics over the whole document
+	 * and are not removed then.
+	 */
+	public String normalizeText(String text) {
+		return normalizeWhitespace(text);
+	}
+	
+	private static String normalizeWhitespace(String text) {
+		String result = HORIZONTAL_SPACE.matcher(text).replaceAll(" ");
+		result = SPACE_AROUND_NEWLINE.matcher(result).replaceAll("\n");
+		result = joinHyphenatedWords(result);
+		result = BLANK_LINES.matcher(result).replaceAll("\n\n");
+		return result.strip();
+	}
+	
+	/**
+	 * Join words hyphenated across a line break. Whether the hyphen is part of the word is
+	 * decided from the rest of the text: halves that are words of their own elsewhere make
+	 * a compound ("well-known"), unless the joined word occurs as well.
+	 */
+	private static String joinHyphenatedWords(String text) {
+		Matcher matcher = HYPHENATED_BREAK.matcher(text);
+		if (!matcher.find()) {
+			return text;
+		}
+		Map<String, Integer> wordCounts = new HashMap<>();
+		Matcher words = WORD.matcher(text);
+		while (words.find()) {
+			wordCounts.merge(words.group().toLowerCase(Locale.ROOT), 1, Integer::sum);
+		}
+		StringBuilder result = new StringBuilder(text.length());
+		do {
+			String head = matcher.group(1);
+			String tail = matcher.group(2);
+			// The halves are counted once at the break itself
+			boolean compound = !wordCounts.containsKey((head + tail).toLowerCase(Locale.ROOT))
+				&& wordCounts.getOrDefault(head.toLowerCase(Locale.ROOT), 0) > 1
+				&& wordCounts.getOrDefault(tail.toLowerCase(Locale.ROOT), 0) > 1;
+			matcher.appendReplacement(result, Matcher.quoteReplacement(compound ? head + "-" + tail : head + tail));
+		} while (matcher.find());
+		matcher.appendTail(result);
+		return result.toString();
+	}
+	
+	public static Builder builder() {
+		return new Builder();
+	}
+	
+	public static class Builder {
+		private int minRepeatedPages = 3;
+		private double repeatedPageRatio = 0.5;
+		private int maxBoilerplateLineLength = 120;
+		
+		private Builder() {}
+		
+		public Builder minRepeatedPages(int minRepeatedPages) {
+			if (minRepeatedPages < 2) {
+				throw new IllegalArgumentException("minRepeatedPages must be at least 2");
+			}
+			this.minRepeatedPages = minRepeatedPages;
+			return this;
+		}
+		
+		public Builder repeatedPageRatio(double repeatedPageRatio) {
+			if (repeatedPageRatio <= 0.0 || repeatedPageRatio > 1.0) {
+				throw new IllegalArgumentException("repeatedPageRatio must be greater than 0.0 and at most 1.0");
+			}
+			this.repeatedPageRatio = repeatedPageRatio;
+			return this;
+		}
+		
+		public Builder maxBoilerplateLineLength(int maxBoilerplateLineLength) {
+			if (maxBoilerplateLineLength <= 0) {
+				throw new IllegalArgumentException("maxBoilerplateLineLength must be greater than 0");
+			}
+			this.maxBoilerplateLineLength = maxBoilerplateLineLength;
+			return this;
+		}
+		
+		public TextCleanupTransformer build() {
+			return new TextCleanupTransformer(minRepeatedPages, repeatedPageRatio, maxBoilerplateLineLength);
+		}
+	}
+}
\ No newline at end of file
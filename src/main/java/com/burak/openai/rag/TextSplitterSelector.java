@@ -0,0 +1,86 @@
+package com.burak.openai.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Picks the chunking strategy for an upload from its content type or file extension.
+ * Strategies are configured as {@code key=strategy} pairs, where the key is a content
+ * type, a file extension such as {@code .md}, or {@code *} for the default:
+ * <ul>
+ *     <li>{@code structure} - paragraph and sentence boundaries with token overlap</li>
+ *     <li>{@code markdown} - as {@code structure}, and every heading starts a new chunk</li>
+ *     <li>{@code token} - Spring AI's fixed-size {@link TokenTextSplitter}</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class TextSplitterSelector {
+	
+	private static final String DEFAULT_KEY = "*";
+	
+	private final Map<String, TextSplitter> splittersByStrategy = new HashMap<>();
+	private final Map<String, String> strategiesByKey = new HashMap<>();
+	
+	public TextSplitterSelector(@Value("${document.ingestion.chunking.chunk-size:300}") int chunkSize,
+	                            @Value("${document.ingestion.chunking.overlap-tokens:50}") int overlapTokens,
+	                            @Value("${document.ingestion.chunking.max-chunks:5000}") int maxChunks,
+	                            @Value("${document.ingestion.chunking.strategies:text/markdown=markdown,.md=markdown,*=structure}") List<String> strategies) {
+		splittersByStrategy.put("structure", StructureAwareTextSplitter.builder()
+			.chunkSize(chunkSize)
+			.overlapTokens(overlapTokens)
+			.maxNumChunks(maxChunks)
+			.build());
+		splittersByStrategy.put("markdown", StructureAwareTextSplitter.builder()
+			.chunkSize(chunkSize)
+			.overlapTokens(overlapTokens)
+			.maxNumChunks(maxChunks)
+			.markdownHeadings(true)
+			.build());
+		splittersByStrategy.put("token", TokenTextSplitter.builder()
+			.withChunkSize(chunkSize)
+			.withMaxNumChunks(maxChunks)
+			.withKeepSeparator(true)
+			.build());
+		
+		for (String entry : strategies) {
+			String[] parts = entry.split("=", 2);
+			if (parts.length != 2 || !splittersByStrategy.containsKey(parts[1].trim())) {
+				throw new IllegalArgumentException("Invalid chunking strategy mapping: " + entry);
+			}
+			strategiesByKey.put(parts[0].trim().toLowerCase(Locale.ROOT), parts[1].trim());
+		}
+		strategiesByKey.putIfAbsent(DEFAULT_KEY, "structure");
+	}
+	
+	public TextSplitter forDocument(String contentType, String filename) {
+		String strategy = strategyFor(contentType, filename);
+		log.debug("Using {} chunking for {} ({})", strategy, filename, contentType);
+		return splittersByStrategy.get(strategy);
+	}
+	
+	String strategyFor(String contentType, String filename) {
+		if (contentType != null) {
+			// Drop parameters such as "; charset=UTF-8"
+			String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+			if (strategiesByKey.containsKey(mediaType)) {
+				return strategiesByKey.get(mediaType);
+			}
+		}
+		if (filename != null && filename.lastIndexOf('.') >= 0) {
+			String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+			if (strategiesByKey.containsKey(extension)) {
+				return strategiesByKey.get(extension);
+			}
+		}
+		return strategiesByKey.get(DEFAULT_KEY);
+	}
+}
\ No newline at end of file
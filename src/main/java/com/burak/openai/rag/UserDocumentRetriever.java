@@ -1,4 +1,5 @@
 package com.burak.openai.rag;
+import com.burak.openai.service.ChunkTextStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
@@ -9,42 +10,63 @@ import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.util.Assert;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Custom document retriever that filters documents by username to ensure
- * users can only access their own uploaded documents.
+ * users can only access their own uploaded documents. Chunks of content uploaded by
+ * several users are stored once and carry the list of users allowed to read them; with a
+ * {@link ChunkTextStore} they are cited as the reader's own copy.
+ * Results are served from the {@link RetrievalResultCache} when one is set.
+ * <p>
+ * With a {@link LexicalIndex} the retrieval is hybrid: the BM25 search runs in parallel
+ * with the vector search, each returns twice {@code topK} candidates, and the two rankings
+ * are merged by reciprocal rank fusion. Exact terms such as acronyms and article numbers
+ * then rank well even when their embeddings do not; the scores of the results are the
+ * fused scores.
+ * <p>
+ * The username travels with the request: callers pass it as the {@link #USERNAME}
+ * advisor parameter, which the retrieval advisor copies into the {@link Query} context,
+ * so retrieval may run on any thread.
  */
 public class UserDocumentRetriever implements DocumentRetriever {
 	
+	/**
+	 * Advisor parameter holding the user whose documents are searched.
+	 */
+	public static final String USERNAME = "user_document_retriever_username";
+	
 	private static final Logger logger = LoggerFactory.getLogger(UserDocumentRetriever.class);
 	
+	// Rank offset of reciprocal rank fusion, damping the weight of the top ranks
+	static final int RRF_K = 60;
+	private static final int CANDIDATE_FACTOR = 2;
+	
 	private final VectorStore vectorStore;
 	private final int topK;
 	private final double similarityThreshold;
+	private final DocumentTombstoneRegistry tombstoneRegistry;
+	private final RetrievalResultCache resultCache;
+	private final LexicalIndex lexicalIndex;
+	private final ChunkTextStore chunkTextStore;
 	
-	// ThreadLocal to store current user context
-	private static final ThreadLocal<String> currentUsername = new ThreadLocal<>();
-	
-	private UserDocumentRetriever(VectorStore vectorStore, int topK, double similarityThreshold) {
+	private UserDocumentRetriever(VectorStore vectorStore, int topK, double similarityThreshold,
+	                              DocumentTombstoneRegistry tombstoneRegistry, RetrievalResultCache resultCache,
+	                              LexicalIndex lexicalIndex, ChunkTextStore chunkTextStore) {
 		Assert.notNull(vectorStore, "vectorStore cannot be null");
 		this.vectorStore = vectorStore;
 		this.topK = topK;
 		this.similarityThreshold = similarityThreshold;
-	}
-	
-	/**
-	 * Set username for current thread
-	 */
-	public static void setCurrentUsername(String username) {
-		currentUsername.set(username);
-	}
-	
-	/**
-	 * Clear username for current thread
-	 */
-	public static void clearCurrentUsername() {
-		currentUsername.remove();
+		this.tombstoneRegistry = tombstoneRegistry;
+		this.resultCache = resultCache;
+		this.lexicalIndex = lexicalIndex != null && lexicalIndex.isEnabled() ? lexicalIndex : null;
+		this.chunkTextStore = chunkTextStore;
 	}
 	
 	@Override
@@ -52,33 +74,68 @@ public class UserDocumentRetriever implements DocumentRetriever {
 		Assert.notNull(query, "query cannot be null");
 		
 		String queryText = query.text();
-		String username = currentUsername.get();
-		if(username == null) {
-			username = "burak";
-		}
+		// No fallback user: a request without one must not search anybody's documents
+		String username = query.context().get(USERNAME) instanceof String name ? name : null;
 		
 		Assert.hasText(queryText, "query text cannot be empty");
-		Assert.hasText(username, "username must be provided via setCurrentUsername()");
+		Assert.hasText(username, "username must be provided as the " + USERNAME + " advisor parameter");
 		
 		logger.info("Retrieving documents for user: {} with query: {}", username, queryText);
 		
+		RetrievalResultCache.Key cacheKey = resultCache != null
+			? resultCache.key(username, queryText, topK, similarityThreshold)
+			: null;
+		if (cacheKey != null) {
+			Optional<List<Document>> cached = resultCache.get(cacheKey);
+			if (cached.isPresent()) {
+				logger.info("Found {} cached documents for user: {}", cached.get().size(), username);
+				return cached.get();
+			}
+		}
+		
 		try {
-			// Create filter to only search user's documents
-			var filterExpression = new FilterExpressionBuilder()
-				.eq("username", username)
-				.build();
+			// Only chunks the user may read (their own and shared copies), skipping documents being deleted.
+			// Both fields are lists: a keyword match succeeds if any element matches.
+			var filterBuilder = new FilterExpressionBuilder();
+			var filterExpression = filterBuilder.eq("users", username).build();
+			Set<String> tombstones = tombstoneRegistry != null ? tombstoneRegistry.getTombstones(username) : Set.of();
+			if (!tombstones.isEmpty()) {
+				filterExpression = filterBuilder.and(
+					filterBuilder.eq("users", username),
+					filterBuilder.not(filterBuilder.in("documentIds", tombstones.toArray()))).build();
+			}
+			
+			CompletableFuture<List<Document>> lexicalSearch = null;
+			if (lexicalIndex != null) {
+				lexicalSearch = lexicalIndex.searchAsync(username, queryText, topK * CANDIDATE_FACTOR,
+						payload -> !(payload.get("documentIds") instanceof Collection<?> ids
+							&& ids.stream().anyMatch(tombstones::contains)))
+					.exceptionally(e -> {
+						logger.warn("Lexical search failed for user: {}, using vector results only", username, e);
+						return List.of();
+					});
+			}
 			
 			SearchRequest searchRequest = SearchRequest.builder()
 				.query(queryText)
-				.topK(topK)
+				.topK(lexicalSearch != null ? topK * CANDIDATE_FACTOR : topK)
 				.similarityThreshold(similarityThreshold)
 				.filterExpression(filterExpression)
 				.build();
 			
 			List<Document> documents = vectorStore.similaritySearch(searchRequest);
+			if (lexicalSearch != null) {
+				documents = fuse(List.of(documents, lexicalSearch.join()), topK);
+			}
+			if (chunkTextStore != null) {
+				documents = chunkTextStore.attributeToReader(username, documents);
+			}
 			
 			logger.info("Found {} documents for user: {}", documents.size(), username);
 			
+			if (cacheKey != null) {
+				resultCache.put(cacheKey, documents);
+			}
 			return documents;
 			
 		} catch (Exception e) {
@@ -87,6 +144,28 @@ public class UserDocumentRetriever implements DocumentRetriever {
 		}
 	}
 	
+	/**
+	 * Reciprocal rank fusion: a document scores the sum of {@code 1 / (RRF_K + rank)} over
+	 * the rankings it appears in. Of a document found by several rankings the one from the
+	 * first ranking is kept.
+	 */
+	static List<Document> fuse(List<List<Document>> rankings, int topK) {
+		Map<String, Double> scores = new LinkedHashMap<>();
+		Map<String, Document> documents = new LinkedHashMap<>();
+		for (List<Document> ranking : rankings) {
+			for (int rank = 0; rank < ranking.size(); rank++) {
+				Document document = ranking.get(rank);
+				scores.merge(document.getId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+				documents.putIfAbsent(document.getId(), document);
+			}
+		}
+		return scores.entrySet().stream()
+			.sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+			.limit(topK)
+			.map(entry -> documents.get(entry.getKey()).mutate().score(entry.getValue()).build())
+			.toList();
+	}
+	
 	public static Builder builder() {
 		return new Builder();
 	}
@@ -95,6 +174,10 @@ public class UserDocumentRetriever implements DocumentRetriever {
 		private VectorStore vectorStore;
 		private int topK = 5;
 		private double similarityThreshold = 0.6;
+		private DocumentTombstoneRegistry tombstoneRegistry;
+		private RetrievalResultCache resultCache;
+		private LexicalIndex lexicalIndex;
+		private ChunkTextStore chunkTextStore;
 		
 		private Builder() {}
 		
@@ -119,9 +202,33 @@ public class UserDocumentRetriever implements DocumentRetriever {
 			return this;
 		}
 		
+		public Builder tombstoneRegistry(DocumentTombstoneRegistry tombstoneRegistry) {
+			this.tombstoneRegistry = tombstoneRegistry;
+			return this;
+		}
+		
+		public Builder resultCache(RetrievalResultCache resultCache) {
+			this.resultCache = resultCache;
+			return this;
+		}
+		
+		public Builder lexicalIndex(LexicalIndex lexicalIndex) {
+			this.lexicalIndex = lexicalIndex;
+			return this;
+		}
+		
+		/**
+		 * Store used to cite chunks shared between users as the reader's own document.
+		 */
+		public Builder chunkTextStore(ChunkTextStore chunkTextStore) {
+			this.chunkTextStore = chunkTextStore;
+			return this;
+		}
+		
 		public UserDocumentRetriever build() {
 			Assert.notNull(vectorStore, "vectorStore must be set");
-			return new UserDocumentRetriever(vectorStore, topK, similarityThreshold);
+			return new UserDocumentRetriever(vectorStore, topK, similarityThreshold, tombstoneRegistry, resultCache,
+				lexicalIndex, chunkTextStore);
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.burak.openai.repository;
+
+import com.burak.openai.entity.ChunkText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ChunkTextRepository extends JpaRepository<ChunkText, Long> {
+	
+	List<ChunkText> findByChunkHashIn(Collection<String> chunkHashes);
+	
+	@Modifying
+	@Transactional
+	@Query("UPDATE ChunkText t SET t.seed = true WHERE t.chunkHash IN :chunkHashes")
+	int markSeed(@Param("chunkHashes") Collection<String> chunkHashes);
+	
+	@Modifying
+	@Transactional
+	@Query("UPDATE ChunkText t SET t.lastReferencedAt = :referencedAt WHERE t.chunkHash IN :chunkHashes")
+	int markReferenced(@Param("chunkHashes") Collection<String> chunkHashes,
+	                   @Param("referencedAt") LocalDateTime referencedAt);
+	
+	@Query("SELECT COUNT(t) FROM ChunkText t WHERE t.seed = false AND t.lastReferencedAt < :referencedBefore"
+		+ " AND NOT EXISTS (SELECT c.id FROM DocumentChunk c WHERE c.chunkHash = t.chunkHash)")
+	long countUnreferenced(@Param("referencedBefore") LocalDateTime referencedBefore);
+	
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM ChunkText t WHERE t.seed = false AND t.lastReferencedAt < :referencedBefore"
+		+ " AND NOT EXISTS (SELECT c.id FROM DocumentChunk c WHERE c.chunkHash = t.chunkHash)")
+	int deleteUnreferenced(@Param("referencedBefore") LocalDateTime referencedBefore);
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.burak.openai.repository;
+
+import com.burak.openai.entity.DocumentChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Long> {
+	
+	List<DocumentChunk> findByDocumentId(String documentId);
+	
+	long countByDocumentId(String documentId);
+	
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM DocumentChunk c WHERE c.documentId = :documentId")
+	int deleteByDocumentId(@Param("documentId") String documentId);
+	
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM DocumentChunk c WHERE c.documentId = :documentId AND c.chunkHash IN :chunkHashes")
+	int deleteByDocumentIdAndChunkHashIn(@Param("documentId") String documentId,
+	                                     @Param("chunkHashes") Collection<String> chunkHashes);
+	
+	@Modifying
+	@Transactional
+	@Query("UPDATE DocumentChunk c SET c.documentId = :newDocumentId WHERE c.documentId = :documentId")
+	int reassignDocumentId(@Param("documentId") String documentId, @Param("newDocumentId") String newDocumentId);
+	
+	/**
+	 * Replace the chunk manifests of several documents in one transaction.
+	 */
+	@Transactional
+	default void replaceByDocumentId(Map<String, List<DocumentChunk>> chunksByDocumentId) {
+		chunksByDocumentId.forEach((documentId, chunks) -> {
+			deleteByDocumentId(documentId);
+			saveAll(chunks);
+		});
+	}
+}
\ No newline at end of file
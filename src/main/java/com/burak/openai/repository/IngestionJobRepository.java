@@ -0,0 +1,20 @@
+package com.burak.openai.repository;
+
+import com.burak.openai.entity.IngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+	
+	Optional<IngestionJob> findByJobId(String jobId);
+	
+	Optional<IngestionJob> findByUsernameAndJobId(String username, String jobId);
+	
+	List<IngestionJob> findByUsernameOrderByCreatedAtDesc(String username);
+	
+	Optional<IngestionJob> findFirstByDocumentIdOrderByCreatedAtDesc(String documentId);
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.burak.openai.repository;
+
+import com.burak.openai.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+	
+	Optional<UploadSession> findByUsernameAndUploadId(String username, String uploadId);
+	
+	/**
+	 * Move a session from one status to another, only if it still has the first one.
+	 *
+	 * @return 1 if the status was changed, 0 if the session had another status
+	 */
+	@Modifying
+	@Transactional
+	@Query("UPDATE UploadSession s SET s.status = :newStatus WHERE s.uploadId = :uploadId AND s.status = :expectedStatus")
+	int compareAndSetStatus(@Param("uploadId") String uploadId, @Param("expectedStatus") String expectedStatus,
+	                        @Param("newStatus") String newStatus);
+}
\ No newline at end of file
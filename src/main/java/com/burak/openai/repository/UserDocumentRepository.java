@@ -2,8 +2,11 @@ package com.burak.openai.repository;
 
 import com.burak.openai.entity.UserDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,9 +15,34 @@ public interface UserDocumentRepository extends JpaRepository<UserDocument, Long
 	
 	List<UserDocument> findByUsernameOrderByUploadDateDesc(String username);
 	
+	List<UserDocument> findByUsernameAndStatusNotOrderByUploadDateDesc(String username, String status);
+	
 	Optional<UserDocument> findByUsernameAndDocumentId(String username, String documentId);
 	
 	List<UserDocument> findByDocumentId(String documentId);
 	
+	List<UserDocument> findByDocumentIdIn(Collection<String> documentIds);
+	
+	List<UserDocument> findByStatus(String status);
+	
+	List<UserDocument> findByStatusIn(Collection<String> statuses);
+	
+	List<UserDocument> findBySharedFromDocumentId(String documentId);
+	
+	boolean existsByContentHash(String contentHash);
+	
+	@Query("SELECT d.documentId FROM UserDocument d WHERE d.documentId IN :documentIds")
+	List<String> findExistingDocumentIds(@Param("documentIds") Collection<String> documentIds);
+	
+	Optional<UserDocument> findFirstByContentHashAndStatusAndSharedFromDocumentIdIsNull(String contentHash,
+	                                                                                   String status);
+	
+	Optional<UserDocument> findFirstByUsernameAndOriginalFilenameAndStatusOrderByUploadDateDesc(String username,
+	                                                                                           String originalFilename,
+	                                                                                           String status);
+	
+	Optional<UserDocument> findFirstByUsernameAndContentHashAndStatusIn(String username, String contentHash,
+	                                                                    Collection<String> statuses);
+	
 	void deleteByDocumentId(String documentId);
 }
\ No newline at end of file
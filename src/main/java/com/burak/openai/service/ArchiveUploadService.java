@@ -0,0 +1,137 @@
+package com.burak.openai.service;
+
+import com.burak.openai.entity.IngestionJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.tika.Tika;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Bulk upload of a ZIP or TAR archive. The archive is staged once and its entries are
+ * streamed one at a time into their own staged files, so nothing is unpacked in memory.
+ * Every entry becomes its own {@code UserDocument} and ingestion job; the jobs run in
+ * parallel on the bounded {@link FairIngestionScheduler} pool.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveUploadService {
+	
+	public static final String SKIPPED = "SKIPPED";
+	public static final String FAILED = "FAILED";
+	
+	private final UploadStagingService uploadStagingService;
+	private final DocumentService documentService;
+	private final Tika tika = new Tika();
+	
+	@Value("${document.ingestion.archive.max-entries:500}")
+	private int maxEntries;
+	
+	@Value("${document.ingestion.archive.max-entry-size:209715200}")
+	private long maxEntrySize;
+	
+	public record EntryResult(String filename, String status, String documentId, String jobId, String message) {}
+	
+	public List<EntryResult> uploadArchive(String username, MultipartFile archive, boolean replaceExisting) {
+		String archiveName = archive.getOriginalFilename();
+		log.info("Uploading archive {} for user {} ({} bytes)", archiveName, username, archive.getSize());
+		
+		Path stagedArchive = null;
+		try {
+			stagedArchive = uploadStagingService.stage(archive, UUID.randomUUID().toString()).path();
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(stagedArchive));
+			     ArchiveInputStream<? extends ArchiveEntry> entries = openArchive(archiveName, in)) {
+				return ingestEntries(username, entries, replaceExisting);
+			}
+		} catch (IOException e) {
+			log.error("Error reading archive {} for user: {}", archiveName, username, e);
+			throw new RuntimeException("Error processing archive: " + e.getMessage());
+		} finally {
+			uploadStagingService.discard(stagedArchive);
+		}
+	}
+	
+	private List<EntryResult> ingestEntries(String username, ArchiveInputStream<? extends ArchiveEntry> entries,
+	                                        boolean replaceExisting) throws IOException {
+		List<EntryResult> results = new ArrayList<>();
+		int accepted = 0;
+		ArchiveEntry entry;
+		while ((entry = entries.getNextEntry()) != null) {
+			String filename = entry.getName();
+			if (entry.isDirectory() || isMetadataEntry(filename)) {
+				continue;
+			}
+			if (!entries.canReadEntryData(entry)) {
+				results.add(new EntryResult(filename, SKIPPED, null, null, "Unsupported entry encoding or encryption"));
+				continue;
+			}
+			if (accepted >= maxEntries) {
+				results.add(new EntryResult(filename, SKIPPED, null, null, "Archive has more than " + maxEntries + " files"));
+				continue;
+			}
+			accepted++;
+			results.add(ingestEntry(username, filename, entries, replaceExisting));
+		}
+		log.info("Queued {} of {} archive entries for user {}",
+			results.stream().filter(result -> result.jobId() != null).count(), results.size(), username);
+		return results;
+	}
+	
+	private EntryResult ingestEntry(String username, String filename, InputStream entryData, boolean replaceExisting) {
+		UploadStagingService.StagedUpload staged = null;
+		try {
+			// The archive stream must stay open for the next entry
+			staged = uploadStagingService.stage(StreamUtils.nonClosing(entryData), UUID.randomUUID().toString(),
+				maxEntrySize);
+			IngestionJob job = documentService.ingestStagedUpload(username, staged, filename, tika.detect(filename),
+				replaceExisting);
+			return new EntryResult(filename, job.getStatus(), job.getDocumentId(), job.getJobId(), null);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not ingest archive entry {} for user {}: {}", filename, username, e.getMessage());
+			if (staged != null) {
+				uploadStagingService.discard(staged.path());
+			}
+			return new EntryResult(filename, FAILED, null, null, e.getMessage());
+		}
+	}
+	
+	private ArchiveInputStream<? extends ArchiveEntry> openArchive(String archiveName, InputStream in) throws IOException {
+		String name = archiveName == null ? "" : archiveName.toLowerCase(Locale.ROOT);
+		if (name.endsWith(".zip")) {
+			return new ZipArchiveInputStream(in);
+		}
+		if (name.endsWith(".tar")) {
+			return new TarArchiveInputStream(in);
+		}
+		if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+			return new TarArchiveInputStream(new GzipCompressorInputStream(in));
+		}
+		throw new RuntimeException("Unsupported archive format: " + archiveName + " (expected .zip, .tar, .tar.gz or .tgz)");
+	}
+	
+	/**
+	 * Files added by archivers and operating systems rather than by the user.
+	 */
+	private static boolean isMetadataEntry(String entryName) {
+		String baseName = entryName.substring(entryName.lastIndexOf('/') + 1);
+		return entryName.startsWith("__MACOSX/") || baseName.startsWith(".") || baseName.equals("Thumbs.db");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.burak.openai.service;
+
+import com.burak.openai.entity.ChunkText;
+import com.burak.openai.entity.UserDocument;
+import com.burak.openai.repository.ChunkTextRepository;
+import com.burak.openai.repository.UserDocumentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk text kept in H2 instead of in the Qdrant payload. Points only carry the vector,
+ * the filter keys and the chunk hash; the text is looked up by hash after a search,
+ * together with the document-level metadata (filename, upload date, content type, owner)
+ * from {@code user_documents}. Texts are content-addressed, so shared copies and
+ * re-indexed collections reuse the same rows.
+ * <p>
+ * Rows no chunk manifest refers to any more are removed by the orphan collector once
+ * they haven't been written for {@code document.chunk-store.orphan-grace}. Every write
+ * of a text, new or reused, restarts that period, which leaves running ingestions (whose
+ * manifest is saved last) alone. Seed corpus texts are never removed.
+ */
+@Service
+@Slf4j
+public class ChunkTextStore {
+	
+	public static final String CHUNK_HASH_METADATA = "chunkHash";
+	
+	private static final int LOOKUP_BATCH_SIZE = 500;
+	
+	private final ChunkTextRepository chunkTextRepository;
+	private final UserDocumentRepository userDocumentRepository;
+	private final Duration orphanGrace;
+	private final Timer hydrationLatency;
+	
+	public ChunkTextStore(ChunkTextRepository chunkTextRepository,
+	                      UserDocumentRepository userDocumentRepository,
+	                      MeterRegistry meterRegistry,
+	                      @Value("${document.chunk-store.orphan-grace:PT6H}") Duration orphanGrace) {
+		this.chunkTextRepository = chunkTextRepository;
+		this.userDocumentRepository = userDocumentRepository;
+		this.orphanGrace = orphanGrace;
+		this.hydrationLatency = meterRegistry.timer("chunk.store.hydrate");
+	}
+	
+	/**
+	 * Store texts that are not stored yet, and mark the ones already stored as referenced
+	 * now so the orphan collector leaves them alone until the manifest is saved.
+	 * Serialized, so two jobs writing the same text can't both insert it.
+	 *
+	 * @param textsByHash chunk texts keyed by their SHA-256
+	 * @param seed        the texts belong to the seed corpus and are kept for good
+	 */
+	public synchronized void putAll(Map<String, String> textsByHash, boolean seed) {
+		if (textsByHash.isEmpty()) {
+			return;
+		}
+		Map<String, String> missing = new LinkedHashMap<>(textsByHash);
+		List<String> toMarkSeed = new ArrayList<>();
+		List<String> reused = new ArrayList<>();
+		List<String> hashes = new ArrayList<>(textsByHash.keySet());
+		for (int start = 0; start < hashes.size(); start += LOOKUP_BATCH_SIZE) {
+			for (ChunkText existing : chunkTextRepository.findByChunkHashIn(
+				hashes.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, hashes.size())))) {
+				missing.remove(existing.getChunkHash());
+				reused.add(existing.getChunkHash());
+				if (seed && !existing.isSeed()) {
+					toMarkSeed.add(existing.getChunkHash());
+				}
+			}
+		}
+		
+		LocalDateTime now = LocalDateTime.now();
+		chunkTextRepository.saveAll(missing.entrySet().stream()
+			.map(entry -> ChunkText.builder()
+				.chunkHash(entry.getKey())
+				.text(entry.getValue())
+				.seed(seed)
+				.createdAt(now)
+				.lastReferencedAt(now)
+				.build())
+			.toList());
+		for (int start = 0; start < reused.size(); start += LOOKUP_BATCH_SIZE) {
+			chunkTextRepository.markReferenced(reused.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, reused.size())),
+				now);
+		}
+		if (!toMarkSeed.isEmpty()) {
+			chunkTextRepository.markSeed(toMarkSeed);
+		}
+	}
+	
+	/**
+	 * Texts of the given chunk hashes; unknown hashes are absent.
+	 */
+	public Map<String, String> getAll(Set<String> chunkHashes) {
+		Map<String, String> texts = new HashMap<>();
+		List<String> hashes = new ArrayList<>(chunkHashes);
+		for (int start = 0; start < hashes.size(); start += LOOKUP_BATCH_SIZE) {
+			chunkTextRepository.findByChunkHashIn(hashes.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, hashes.size())))
+				.forEach(chunkText -> texts.put(chunkText.getChunkHash(), chunkText.getText()));
+		}
+		return texts;
+	}
+	
+	/**
+	 * Fill in the text and document metadata of search results read from slim payloads,
+	 * with one query for the texts and one for the documents. Results that already carry
+	 * their text (points written before the text moved out) are passed through; results
+	 * whose text can't be found are dropped.
+	 */
+	public List<Document> hydrate(List<Document> results) {
+		long startNanos = System.nanoTime();
+		Set<String> chunkHashes = new HashSet<>();
+		Set<String> documentIds = new HashSet<>();
+		for (Document result : results) {
+			if (!hasText(result) && result.getMetadata().get(CHUNK_HASH_METADATA) instanceof String chunkHash) {
+				chunkHashes.add(chunkHash);
+			}
+			if (result.getMetadata().get("documentId") instanceof String documentId
+				&& !result.getMetadata().containsKey("originalFilename")) {
+				documentIds.add(documentId);
+			}
+		}
+		if (chunkHashes.isEmpty() && documentIds.isEmpty()) {
+			return results;
+		}
+		
+		Map<String, String> texts = chunkHashes.isEmpty() ? Map.of() : getAll(chunkHashes);
+		Map<String, UserDocument> documents = new HashMap<>();
+		if (!documentIds.isEmpty()) {
+			userDocumentRepository.findByDocumentIdIn(documentIds)
+				.forEach(document -> documents.put(document.getDocumentId(), document));
+		}
+		
+		List<Document> hydrated = new ArrayList<>(results.size());
+		for (Document result : results) {
+			String text = hasText(result) ? result.getText() : texts.get(result.getMetadata().get(CHUNK_HASH_METADATA));
+			if (text == null) {
+				log.warn("No stored text for chunk {} of point {}, dropping it from the results",
+					result.getMetadata().get(CHUNK_HASH_METADATA), result.getId());
+				continue;
+			}
+			Map<String, Object> metadata = new HashMap<>(result.getMetadata());
+			UserDocument document = documents.get(metadata.get("documentId"));
+			if (document != null) {
+				documentFields(document).forEach(metadata::putIfAbsent);
+			}
+			hydrated.add(result.mutate().text(text).metadata(metadata).build());
+		}
+		hydrationLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+		return hydrated;
+	}
+	
+	/**
+	 * Cite shared chunks as the reader's own copy. A chunk read by several documents carries
+	 * the metadata of the document that ingested it; results the user reads through a copy
+	 * get the id, filename, upload date and owner of that copy instead.
+	 */
+	public List<Document> attributeToReader(String username, List<Document> results) {
+		Set<String> sharedDocumentIds = new HashSet<>();
+		for (Document result : results) {
+			if (result.getMetadata().get("documentIds") instanceof Collection<?> ids && ids.size() > 1) {
+				ids.forEach(id -> sharedDocumentIds.add(String.valueOf(id)));
+			}
+		}
+		if (sharedDocumentIds.isEmpty()) {
+			return results;
+		}
+		
+		Map<String, UserDocument> readerDocuments = new HashMap<>();
+		for (UserDocument document : userDocumentRepository.findByDocumentIdIn(sharedDocumentIds)) {
+			if (username.equals(document.getUsername())) {
+				readerDocuments.put(document.getDocumentId(), document);
+			}
+		}
+		
+		List<Document> attributed = new ArrayList<>(results.size());
+		for (Document result : results) {
+			UserDocument own = result.getMetadata().get("documentIds") instanceof Collection<?> ids
+				? ids.stream().map(id -> readerDocuments.get(String.valueOf(id))).filter(Objects::nonNull).findFirst()
+				.orElse(null)
+				: null;
+			if (own == null || own.getDocumentId().equals(result.getMetadata().get("documentId"))) {
+				attributed.add(result);
+				continue;
+			}
+			Map<String, Object> metadata = new HashMap<>(result.getMetadata());
+			metadata.put("documentId", own.getDocumentId());
+			metadata.putAll(documentFields(own));
+			attributed.add(result.mutate().metadata(metadata).build());
+		}
+		return attributed;
+	}
+	
+	private static Map<String, Object> documentFields(UserDocument document) {
+		Map<String, Object> fields = new HashMap<>();
+		fields.put("username", document.getUsername());
+		fields.put("originalFilename", document.getOriginalFilename());
+		fields.put("source", document.getOriginalFilename());
+		fields.put("uploadDate", document.getUploadDate().toString());
+		if (document.getContentType() != null) {
+			fields.put("contentType", document.getContentType());
+		}
+		return fields;
+	}
+	
+	/**
+	 * Number of texts no chunk manifest refers to, or with {@code delete} the number removed.
+	 */
+	public long collectUnreferenced(boolean delete) {
+		LocalDateTime referencedBefore = LocalDateTime.now().minus(orphanGrace);
+		return delete
+			? chunkTextRepository.deleteUnreferenced(referencedBefore)
+			: chunkTextRepository.countUnreferenced(referencedBefore);
+	}
+	
+	private static boolean hasText(Document document) {
+		return document.getText() != null && !document.getText().isEmpty();
+	}
+}
\ No newline at end of file
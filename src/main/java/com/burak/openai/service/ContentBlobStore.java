@@ -0,0 +1,242 @@
+package com.burak.openai.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Local content-addressable store for original uploads and their extracted text. Blobs
+ * are keyed by the SHA-256 of the upload (the document's {@code contentHash}) and sharded
+ * two levels deep, {@code ab/cd/abcd...}, so no directory grows unbounded. The extracted
+ * text sits next to the raw bytes as {@code abcd....txt}, one extracted document per
+ * form-feed separated section.
+ * <p>
+ * Blobs are immutable once written, so they are read through memory-mapped I/O.
+ */
+@Service
+@Slf4j
+public class ContentBlobStore {
+	
+	public static final char DOCUMENT_SEPARATOR = '\f';
+	
+	private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+	private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+	private static final String TEXT_SUFFIX = ".txt";
+	
+	private final Path rootDirectory;
+	
+	public ContentBlobStore(@Value("${document.ingestion.blob-store.dir:./data/blobs}") Path rootDirectory) {
+		this.rootDirectory = rootDirectory;
+	}
+	
+	/**
+	 * Move a fully written file into the store under its hash. If the blob already exists
+	 * the source is simply deleted, since it holds the same bytes.
+	 *
+	 * @return the path of the stored blob
+	 */
+	public Path put(Path source, String sha256) throws IOException {
+		Path blob = path(sha256);
+		if (Files.exists(blob)) {
+			Files.deleteIfExists(source);
+			return blob;
+		}
+		Files.createDirectories(blob.getParent());
+		try {
+			try {
+				Files.move(source, blob, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				// Staging directory is on another file system: copy next to the blob, then rename
+				Path partial = blob.resolveSibling(blob.getFileName() + "." + UUID.randomUUID() + ".partial");
+				try {
+					Files.copy(source, partial);
+					Files.move(partial, blob, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					Files.deleteIfExists(partial);
+				}
+				Files.deleteIfExists(source);
+			}
+		} catch (FileAlreadyExistsException e) {
+			// Stored concurrently by another upload of the same content
+			Files.deleteIfExists(source);
+		}
+		return blob;
+	}
+	
+	public boolean exists(String sha256) {
+		return Files.exists(path(sha256));
+	}
+	
+	public Path path(String sha256) {
+		if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+			throw new IllegalArgumentException("Not a SHA-256 hex digest: " + sha256);
+		}
+		return rootDirectory.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+	}
+	
+	/**
+	 * Memory-mapped resource over a stored blob that reports the original filename.
+	 */
+	public Resource asResource(String sha256, String originalFilename) {
+		Path blob = path(sha256);
+		return new AbstractResource() {
+			@Override
+			public String getFilename() {
+				return originalFilename;
+			}
+			
+			@Override
+			public boolean exists() {
+				return Files.exists(blob);
+			}
+			
+			@Override
+			public long contentLength() throws IOException {
+				return Files.size(blob);
+			}
+			
+			@Override
+			public String getDescription() {
+				return "blob [" + sha256 + "] of " + originalFilename;
+			}
+			
+			@Override
+			public InputStream getInputStream() throws IOException {
+				return new MappedInputStream(FileChannel.open(blob, StandardOpenOption.READ));
+			}
+		};
+	}
+	
+	/**
+	 * Store the text extracted from the blob, one entry per extracted document (page).
+	 */
+	public void putText(String sha256, List<String> texts) throws IOException {
+		Path textFile = textPath(sha256);
+		Files.createDirectories(textFile.getParent());
+		Path partial = textFile.resolveSibling(textFile.getFileName() + "." + UUID.randomUUID() + ".partial");
+		try {
+			Files.writeString(partial, String.join(String.valueOf(DOCUMENT_SEPARATOR), texts), StandardCharsets.UTF_8);
+			Files.move(partial, textFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(partial);
+		}
+	}
+	
+	public boolean hasText(String sha256) {
+		return Files.exists(textPath(sha256));
+	}
+	
+	/**
+	 * Extracted text previously stored with {@link #putText}, one entry per document.
+	 */
+	public Optional<List<String>> readText(String sha256) throws IOException {
+		Path textFile = textPath(sha256);
+		if (!Files.exists(textFile)) {
+			return Optional.empty();
+		}
+		try (FileChannel channel = FileChannel.open(textFile, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			String text = StandardCharsets.UTF_8.decode(buffer).toString();
+			return Optional.of(Arrays.asList(text.split(String.valueOf(DOCUMENT_SEPARATOR), -1)));
+		}
+	}
+	
+	/**
+	 * Remove the blob and its extracted text. Callers must make sure no document still
+	 * references the hash.
+	 */
+	public void delete(String sha256) {
+		try {
+			Files.deleteIfExists(path(sha256));
+			Files.deleteIfExists(textPath(sha256));
+			log.info("Deleted blob {}", sha256);
+		} catch (IOException e) {
+			log.warn("Could not delete blob {}: {}", sha256, e.getMessage());
+		}
+	}
+	
+	private Path textPath(String sha256) {
+		Path blob = path(sha256);
+		return blob.resolveSibling(blob.getFileName() + TEXT_SUFFIX);
+	}
+	
+	/**
+	 * Sequential stream over a file mapped in fixed-size windows, so files larger than a
+	 * single mapping can still be read.
+	 */
+	private static final class MappedInputStream extends InputStream {
+		
+		private final FileChannel channel;
+		private final long size;
+		private long windowStart;
+		private MappedByteBuffer window;
+		
+		private MappedInputStream(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+		
+		@Override
+		public int read() throws IOException {
+			return nextWindow() ? window.get() & 0xFF : -1;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (!nextWindow()) {
+				return -1;
+			}
+			int count = Math.min(length, window.remaining());
+			window.get(bytes, offset, count);
+			return count;
+		}
+		
+		@Override
+		public int available() {
+			return window == null ? 0 : window.remaining();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+		
+		/**
+		 * Make sure the current window has bytes left, mapping the next one if needed.
+		 */
+		private boolean nextWindow() throws IOException {
+			if (window != null && window.hasRemaining()) {
+				return true;
+			}
+			long position = window == null ? 0 : windowStart + window.capacity();
+			if (position >= size) {
+				return false;
+			}
+			windowStart = position;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW_BYTES, size - position));
+			return true;
+		}
+	}
+}
\ No newline at end of file
@@ -1,90 +1,372 @@
 package com.burak.openai.service;
 
+import com.burak.openai.entity.DocumentChunk;
+import com.burak.openai.entity.IngestionJob;
 import com.burak.openai.entity.UserDocument;
+import com.burak.openai.rag.ChunkEmbeddingStage;
+import com.burak.openai.rag.ContentHash;
+import com.burak.openai.rag.DocumentTextExtractor;
+import com.burak.openai.rag.DocumentTombstoneRegistry;
+import com.burak.openai.rag.EmbeddedChunk;
+import com.burak.openai.rag.ParagraphStreamWriter;
+import com.burak.openai.rag.ParallelPdfExtractor;
+import com.burak.openai.rag.QdrantChunkWriter;
+import com.burak.openai.rag.RetrievalResultCache;
+import com.burak.openai.rag.StructureAwareTextSplitter;
+import com.burak.openai.rag.TextCleanupTransformer;
+import com.burak.openai.rag.TextSplitterSelector;
+import com.burak.openai.repository.DocumentChunkRepository;
 import com.burak.openai.repository.UserDocumentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TextSplitter;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DocumentService {
 	
-	private final VectorStore vectorStore;
+	private static final String DELETING = "DELETING";
+	
+	// Serializes sharing content with a new copy against deleting the last reader of that content
+	private final Object sharedContentLock = new Object();
+	
 	private final UserDocumentRepository userDocumentRepository;
+	private final DocumentChunkRepository documentChunkRepository;
+	private final IngestionJobService ingestionJobService;
+	private final FairIngestionScheduler ingestionScheduler;
+	private final ChunkEmbeddingStage chunkEmbeddingStage;
+	private final QdrantChunkWriter qdrantChunkWriter;
+	private final UploadStagingService uploadStagingService;
+	private final ContentBlobStore contentBlobStore;
+	private final DocumentTombstoneRegistry tombstoneRegistry;
+	private final RetrievalResultCache retrievalResultCache;
+	private final ParallelPdfExtractor pdfExtractor;
+	private final DocumentTextExtractor documentTextExtractor;
+	private final TextSplitterSelector textSplitterSelector;
+	private final TextCleanupTransformer textCleanupTransformer;
+	
+	@Value("${document.ingestion.pdf.parallel-extraction:true}")
+	private boolean parallelPdfExtraction;
+	
+	@Value("${document.ingestion.shared-content.enabled:true}")
+	private boolean sharedContentEnabled;
+	
+	@Value("${document.ingestion.streaming.enabled:true}")
+	private boolean streamingEnabled;
 	
-	public String uploadDocument(String username, MultipartFile file) {
+	@Value("${document.ingestion.streaming.threshold-bytes:20971520}")
+	private long streamingThresholdBytes;
+	
+	@Value("${document.ingestion.streaming.batch-chunks:256}")
+	private int streamingBatchChunks;
+	
+	@Value("${document.ingestion.streaming.flush-chars:16384}")
+	private int streamingFlushChars;
+	
+	public IngestionJob uploadDocument(String username, MultipartFile file) {
+		return uploadDocument(username, file, false);
+	}
+	
+	/**
+	 * @param replaceExisting treat an upload with the same filename as a new version of
+	 *                        the user's existing document and only re-embed changed chunks
+	 */
+	public IngestionJob uploadDocument(String username, MultipartFile file, boolean replaceExisting) {
+		Path stagedFile = null;
 		try {
 			log.info("Uploading document for user: {}, filename: {}, size: {} bytes",
 				username, file.getOriginalFilename(), file.getSize());
 			
-			// Generate unique document ID
-			String documentId = UUID.randomUUID().toString();
+			// The multipart temp file is removed when the request ends, so stage it first
+			UploadStagingService.StagedUpload staged = uploadStagingService.stage(file, UUID.randomUUID().toString());
+			stagedFile = staged.path();
+			return ingestStagedUpload(username, staged, file.getOriginalFilename(), file.getContentType(), replaceExisting);
 			
+		} catch (IOException e) {
+			log.error("Error staging document for user: {}", username, e);
+			uploadStagingService.discard(stagedFile);
+			throw new RuntimeException("Error processing document: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Queues ingestion of a file that is already complete in the staging directory, either
+	 * from a multipart upload or assembled from the parts of a resumable upload. Takes
+	 * ownership of the staged file, which is moved into the {@link ContentBlobStore}.
+	 */
+	public IngestionJob ingestStagedUpload(String username, UploadStagingService.StagedUpload staged,
+	                                       String originalFilename, String contentType, boolean replaceExisting) {
+		Path stagedFile = staged.path();
+		String contentHash = staged.contentHash();
+		
+		// Exact re-upload (or a client retry): hand back the existing job instead of ingesting again
+		Optional<UserDocument> existing = userDocumentRepository.findFirstByUsernameAndContentHashAndStatusIn(
+			username, contentHash, List.of("PROCESSING", "ACTIVE"));
+		if (existing.isPresent()) {
+			Optional<IngestionJob> existingJob = ingestionJobService.findLatestJobForDocument(existing.get().getDocumentId());
+			if (existingJob.isPresent()) {
+				log.info("Document with hash {} already uploaded by {} as {}, skipping ingestion",
+					contentHash, username, existing.get().getDocumentId());
+				uploadStagingService.discard(stagedFile);
+				return existingJob.get();
+			}
+		}
+		
+		// Keep the original so the document can be reprocessed without another upload
+		Path blob;
+		try {
+			blob = contentBlobStore.put(stagedFile, contentHash);
+		} catch (IOException e) {
+			log.error("Error storing blob {} for user: {}", contentHash, username, e);
+			uploadStagingService.discard(stagedFile);
+			throw new RuntimeException("Error storing document: " + e.getMessage());
+		}
+		
+		Optional<UserDocument> previousVersion = replaceExisting
+			? userDocumentRepository.findFirstByUsernameAndOriginalFilenameAndStatusOrderByUploadDateDesc(
+				username, originalFilename, "ACTIVE")
+			: Optional.empty();
+		if (previousVersion.isPresent() && sharesChunks(previousVersion.get())) {
+			// Other documents read the same chunks, so they can't be diffed in place: replace the document instead
+			deleteDocument(username, previousVersion.get().getDocumentId());
+			previousVersion = Optional.empty();
+		}
+		
+		if (previousVersion.isEmpty() && sharedContentEnabled) {
+			Optional<IngestionJob> sharedJob = shareExistingContent(username, staged, originalFilename, contentType, blob);
+			if (sharedJob.isPresent()) {
+				return sharedJob.get();
+			}
+		}
+		
+		UserDocument userDocument;
+		String previousHash = null;
+		if (previousVersion.isPresent()) {
+			// New version of an existing document: keep its id so only changed chunks are re-embedded
+			userDocument = previousVersion.get();
+			previousHash = userDocument.getContentHash();
+			userDocument.setContentType(contentType);
+			userDocument.setFileSize(staged.size());
+			userDocument.setContentHash(contentHash);
+			userDocument.setUploadDate(LocalDateTime.now());
+			userDocument.setStatus("PROCESSING");
+			log.info("Upload is a new version of document {}", userDocument.getDocumentId());
+		} else {
 			// Save document metadata to database
-			UserDocument userDocument = UserDocument.builder()
-				.documentId(documentId)
+			userDocument = UserDocument.builder()
+				.documentId(UUID.randomUUID().toString())
 				.username(username)
-				.originalFilename(file.getOriginalFilename())
-				.contentType(file.getContentType())
-				.fileSize(file.getSize())
+				.originalFilename(originalFilename)
+				.contentType(contentType)
+				.fileSize(staged.size())
+				.contentHash(contentHash)
 				.uploadDate(LocalDateTime.now())
+				.status("PROCESSING")
 				.build();
+		}
+		
+		userDocumentRepository.save(userDocument);
+		String documentId = userDocument.getDocumentId();
+		releaseBlob(previousHash);
+		retrievalResultCache.bumpCorpusVersion(username);
+		
+		IngestionJob job = ingestionJobService.createJob(username, documentId,
+			originalFilename, blob.toString());
+		ingestionScheduler.submit(username, () -> processDocument(job.getJobId()));
+		
+		log.info("Queued ingestion job {} for document {}", job.getJobId(), documentId);
+		return job;
+	}
+	
+	/**
+	 * Register an upload of content that another document has already ingested (typically
+	 * the same course material uploaded by a whole class) as an additional reader of that
+	 * document's chunks: the user is added to the access list in the chunk payloads and
+	 * nothing is parsed or embedded again.
+	 *
+	 * @return the completed job, or empty if the content has not been ingested yet
+	 */
+	private Optional<IngestionJob> shareExistingContent(String username, UploadStagingService.StagedUpload staged,
+	                                                    String originalFilename, String contentType, Path blob) {
+		UserDocument copy;
+		String ownerId;
+		synchronized (sharedContentLock) {
+			Optional<UserDocument> owner = userDocumentRepository.findFirstByContentHashAndStatusAndSharedFromDocumentIdIsNull(
+				staged.contentHash(), "ACTIVE");
+			if (owner.isEmpty()) {
+				return Optional.empty();
+			}
+			ownerId = owner.get().getDocumentId();
+			copy = userDocumentRepository.save(UserDocument.builder()
+				.documentId(UUID.randomUUID().toString())
+				.username(username)
+				.originalFilename(originalFilename)
+				.contentType(contentType)
+				.fileSize(staged.size())
+				.contentHash(staged.contentHash())
+				.sharedFromDocumentId(ownerId)
+				.uploadDate(LocalDateTime.now())
+				.status("ACTIVE")
+				.build());
+			try {
+				updateAccess(ownerId);
+			} catch (RuntimeException e) {
+				log.warn("Could not share chunks of document {} with {}, ingesting separately: {}",
+					ownerId, username, e.getMessage());
+				userDocumentRepository.delete(copy);
+				return Optional.empty();
+			}
+		}
+		retrievalResultCache.bumpCorpusVersion(username);
+		
+		IngestionJob job = ingestionJobService.createJob(username, copy.getDocumentId(), originalFilename, blob.toString());
+		ingestionJobService.markCompleted(job.getJobId(), (int) documentChunkRepository.countByDocumentId(ownerId));
+		log.info("Document {} of {} shares the chunks of document {}", copy.getDocumentId(), username, ownerId);
+		return Optional.of(job);
+	}
+	
+	/**
+	 * Whether the document reads another document's chunks or has copies reading its own.
+	 */
+	private boolean sharesChunks(UserDocument userDocument) {
+		return userDocument.getSharedFromDocumentId() != null
+			|| !userDocumentRepository.findBySharedFromDocumentId(userDocument.getDocumentId()).isEmpty();
+	}
+	
+	/**
+	 * Id of the document whose chunks hold the content of the given document.
+	 */
+	private static String chunkOwnerId(UserDocument userDocument) {
+		return userDocument.getSharedFromDocumentId() != null
+			? userDocument.getSharedFromDocumentId()
+			: userDocument.getDocumentId();
+	}
+	
+	/**
+	 * Documents that read the chunks of {@code ownerId}: the document itself and its copies,
+	 * leaving out documents being deleted.
+	 */
+	private List<UserDocument> readers(String ownerId) {
+		List<UserDocument> readers = new ArrayList<>(userDocumentRepository.findByDocumentId(ownerId));
+		readers.addAll(userDocumentRepository.findBySharedFromDocumentId(ownerId));
+		readers.removeIf(reader -> DELETING.equals(reader.getStatus()) || "FAILED".equals(reader.getStatus()));
+		return readers;
+	}
+	
+	private static Map<String, Object> accessMetadata(List<UserDocument> readers) {
+		Map<String, Object> metadata = new HashMap<>();
+		metadata.put("users", readers.stream().map(UserDocument::getUsername).distinct().toList());
+		metadata.put("documentIds", readers.stream().map(UserDocument::getDocumentId).toList());
+		return metadata;
+	}
+	
+	/**
+	 * Rewrite the access list of a document's chunks from its current readers.
+	 */
+	private void updateAccess(String ownerId) {
+		qdrantChunkWriter.updatePayload(ownerId, accessMetadata(readers(ownerId)));
+	}
+	
+	/**
+	 * Hand the chunks of a deleted document over to the oldest copy still reading them, so
+	 * the other readers keep them without anything being embedded again.
+	 */
+	private void transferChunks(String ownerId, List<UserDocument> readers) {
+		UserDocument newOwner = readers.stream()
+			.min(Comparator.comparing(UserDocument::getUploadDate))
+			.orElseThrow();
+		Map<String, Object> fields = accessMetadata(readers);
+		fields.put("documentId", newOwner.getDocumentId());
+		fields.put("username", newOwner.getUsername());
+		qdrantChunkWriter.updatePayload(ownerId, fields);
+		documentChunkRepository.reassignDocumentId(ownerId, newOwner.getDocumentId());
+		readers.forEach(reader -> reader.setSharedFromDocumentId(
+			reader == newOwner ? null : newOwner.getDocumentId()));
+		userDocumentRepository.saveAll(readers);
+		// The results of the other readers now name a different document
+		readers.forEach(reader -> retrievalResultCache.bumpCorpusVersion(reader.getUsername()));
+		log.info("Chunks of deleted document {} now belong to document {}", ownerId, newOwner.getDocumentId());
+	}
+	
+	/**
+	 * Runs the parse, split, embed and store stages of an ingestion job. Called from
+	 * the {@link FairIngestionScheduler} workers, never on a request thread.
+	 */
+	void processDocument(String jobId) {
+		IngestionJob job = ingestionJobService.getJob(jobId);
+		String username = job.getUsername();
+		String documentId = job.getDocumentId();
+		
+		try {
+			UserDocument userDocument = userDocumentRepository.findByUsernameAndDocumentId(username, documentId)
+				.orElseThrow(() -> new RuntimeException("Document not found: " + documentId));
+			if (DELETING.equals(userDocument.getStatus())) {
+				log.info("Document {} was deleted before ingestion started, skipping", documentId);
+				ingestionJobService.markFailed(jobId, "Document deleted");
+				return;
+			}
 			
-			userDocumentRepository.save(userDocument);
+			ingestionJobService.markStage(jobId, IngestionJobService.PARSING, 10);
 			
-			// Process document with Tika
-			ByteArrayResource resource = new ByteArrayResource(file.getBytes()) {
-				@Override
-				public String getFilename() {
-					return file.getOriginalFilename();
-				}
-			};
+			// Large documents are chunked while they are parsed instead of extracted in one piece
+			Optional<StructureAwareTextSplitter> streamingSplitter = streamingSplitter(userDocument);
+			if (streamingSplitter.isPresent()) {
+				log.info("Streaming document {} ({} bytes) through the splitter", documentId, userDocument.getFileSize());
+				int storedChunks = streamAndStoreChunks(jobId, userDocument, streamingSplitter.get());
+				completeIngestion(jobId, username, documentId, storedChunks);
+				return;
+			}
 			
-			TikaDocumentReader tikaReader = new TikaDocumentReader(resource);
-			List<Document> documents = tikaReader.get();
+			List<Document> documents = extractDocuments(userDocument, false);
 			
-			log.info("Tika extracted {} documents from file", documents.size());
+			log.info("Extracted {} documents from file", documents.size());
+			storeExtractedText(userDocument.getContentHash(), documents);
 			
-			// Log original content
-			for (int i = 0; i < documents.size(); i++) {
+			// Log original content (PDFs come back one document per page, so only the first few)
+			for (int i = 0; i < Math.min(5, documents.size()); i++) {
 				Document doc = documents.get(i);
 				log.info("Original document {}: length={}, preview={}",
 					i, doc.getText().length(),
 					doc.getText().substring(0, Math.min(200, doc.getText().length())));
 			}
 			
-			// Add metadata to each document chunk
-			documents.forEach(doc -> {
-				doc.getMetadata().put("username", username);
-				doc.getMetadata().put("documentId", documentId);
-				doc.getMetadata().put("originalFilename", file.getOriginalFilename());
-				doc.getMetadata().put("uploadDate", LocalDateTime.now().toString());
-				doc.getMetadata().put("contentType", file.getContentType());
-			});
+			ingestionJobService.markStage(jobId, IngestionJobService.SPLITTING, 30);
 			
-			TextSplitter textSplitter = TokenTextSplitter.builder()
-				.withChunkSize(300)
-				// 1000'e)
-				     // Chunk'lar arası overlap ekle
-				.withMaxNumChunks(5000)
-				.withKeepSeparator(true)
-				.build();
+			// Drop repeated headers/footers and page numbers so they aren't embedded in every chunk
+			TextCleanupTransformer.CleanupResult cleanup = textCleanupTransformer.clean(documents);
+			ingestionJobService.recordCleanup(jobId, cleanup.tokensBefore(), cleanup.tokensSaved());
+			log.info("Cleanup of document {} removed {} lines, {} of {} tokens ({}%)", documentId,
+				cleanup.linesRemoved(), cleanup.tokensSaved(), cleanup.tokensBefore(),
+				cleanup.tokensBefore() == 0 ? 0 : Math.round(100.0 * cleanup.tokensSaved() / cleanup.tokensBefore()));
 			
-			List<Document> splitDocuments = textSplitter.split(documents);
+			List<Document> splitDocuments = splitDocuments(userDocument, cleanup.documents());
 			
 			log.info("Text splitting resulted in {} chunks", splitDocuments.size());
 			
@@ -96,37 +378,361 @@ public class DocumentService {
 					chunk.getText().substring(0, Math.min(150, chunk.getText().length())));
 			}
 			
-			// Store in vector database
-			vectorStore.add(splitDocuments);
+			int storedChunks = storeChunks(jobId, documentId, splitDocuments);
+			completeIngestion(jobId, username, documentId, storedChunks);
 			
 			log.info("Document processing completed successfully. DocumentId: {}, Original docs: {}, Final chunks: {}",
-				documentId, documents.size(), splitDocuments.size());
-			
-			return documentId;
+				documentId, documents.size(), storedChunks);
 			
-		} catch (IOException e) {
-			log.error("Error processing document for user: {}", username, e);
-			throw new RuntimeException("Error processing document: " + e.getMessage());
 		} catch (Exception e) {
-			log.error("Unexpected error processing document for user: {}", username, e);
-			throw new RuntimeException("Unexpected error: " + e.getMessage());
+			log.error("Error processing document {} for user: {}", documentId, username, e);
+			ingestionJobService.markFailed(jobId, e.getMessage());
+			userDocumentRepository.findByUsernameAndDocumentId(username, documentId)
+				.filter(document -> !DELETING.equals(document.getStatus()))
+				.ifPresent(document -> {
+					document.setStatus("FAILED");
+					userDocumentRepository.save(document);
+					// Old chunks of a new version and half-written new ones must not be retrieved as if it had worked
+					tombstoneRegistry.add(username, documentId);
+				});
+			retrievalResultCache.bumpCorpusVersion(username);
+		}
+	}
+	
+	private void completeIngestion(String jobId, String username, String documentId, int storedChunks) {
+		// A delete may have been requested while we were embedding; don't resurrect the document
+		UserDocument current = userDocumentRepository.findByUsernameAndDocumentId(username, documentId).orElse(null);
+		if (current != null && !DELETING.equals(current.getStatus())) {
+			current.setStatus("ACTIVE");
+			userDocumentRepository.save(current);
+		} else {
+			qdrantChunkWriter.deleteByDocumentId(documentId);
+			documentChunkRepository.deleteByDocumentId(documentId);
+		}
+		retrievalResultCache.bumpCorpusVersion(username);
+		ingestionJobService.markCompleted(jobId, storedChunks);
+	}
+	
+	/**
+	 * Extract the text of the document's blob: PDFs page by page in parallel, everything
+	 * else through the shared {@link DocumentTextExtractor}.
+	 *
+	 * @param preferStoredText reuse text saved by an earlier ingestion instead of parsing
+	 *                         again; not used for PDFs, whose pages carry page numbers
+	 */
+	List<Document> extractDocuments(UserDocument userDocument, boolean preferStoredText) throws IOException {
+		String contentHash = userDocument.getContentHash();
+		if (parallelPdfExtraction && pdfExtractor.supports(userDocument.getContentType(), userDocument.getOriginalFilename())) {
+			// PDFs are extracted page range by page range in parallel, keeping page numbers
+			return pdfExtractor.extract(contentBlobStore.path(contentHash), userDocument.getOriginalFilename());
+		}
+		if (preferStoredText) {
+			Optional<List<String>> storedText = contentBlobStore.readText(contentHash);
+			if (storedText.isPresent()) {
+				return storedText.get().stream()
+					.filter(text -> !text.isBlank())
+					.map(text -> Document.builder()
+						.text(text)
+						.metadata(DocumentTextExtractor.SOURCE_METADATA, userDocument.getOriginalFilename())
+						.build())
+					.collect(Collectors.toCollection(ArrayList::new));
+			}
+		}
+		// Text formats are decoded directly, the rest is parsed by Tika, streaming from the memory-mapped blob
+		Resource resource = contentBlobStore.asResource(contentHash, userDocument.getOriginalFilename());
+		return documentTextExtractor.extract(resource, userDocument.getContentType(), userDocument.getOriginalFilename());
+	}
+	
+	/**
+	 * Attach the document metadata and split into chunks with the splitter configured
+	 * for the document's content type.
+	 */
+	List<Document> splitDocuments(UserDocument userDocument, List<Document> documents) {
+		// Add metadata to each document chunk
+		Map<String, Object> metadata = documentMetadata(userDocument);
+		documents.forEach(doc -> doc.getMetadata().putAll(metadata));
+		
+		// Sentence/heading-aware chunking with overlap, chosen by content type
+		TextSplitter textSplitter = textSplitterSelector.forDocument(userDocument.getContentType(),
+			userDocument.getOriginalFilename());
+		return textSplitter.split(documents);
+	}
+	
+	private Map<String, Object> documentMetadata(UserDocument userDocument) {
+		List<UserDocument> readers = readers(userDocument.getDocumentId());
+		Map<String, Object> metadata = accessMetadata(readers.isEmpty() ? List.of(userDocument) : readers);
+		metadata.put("username", userDocument.getUsername());
+		metadata.put("documentId", userDocument.getDocumentId());
+		metadata.put("originalFilename", userDocument.getOriginalFilename());
+		metadata.put("uploadDate", userDocument.getUploadDate().toString());
+		metadata.put("contentType", userDocument.getContentType());
+		return metadata;
+	}
+	
+	/**
+	 * Distinct chunks keyed by the SHA-256 of their text, each with a point id derived from
+	 * the document id and that hash.
+	 */
+	static Map<String, Document> chunksByHash(String documentId, List<Document> splitDocuments) {
+		Map<String, Document> chunksByHash = new LinkedHashMap<>();
+		for (Document chunk : splitDocuments) {
+			String chunkHash = ContentHash.sha256(chunk.getText());
+			chunksByHash.putIfAbsent(chunkHash, chunk.mutate()
+				.id(UUID.nameUUIDFromBytes((documentId + ":" + chunkHash).getBytes(StandardCharsets.UTF_8)).toString())
+				.build());
+		}
+		return chunksByHash;
+	}
+	
+	/**
+	 * Keep the extracted text next to the blob so reprocessing can skip parsing. Best effort:
+	 * a failure here never fails the ingestion job.
+	 */
+	private void storeExtractedText(String contentHash, List<Document> documents) {
+		if (contentBlobStore.hasText(contentHash)) {
+			return;
+		}
+		try {
+			contentBlobStore.putText(contentHash, documents.stream().map(Document::getText).toList());
+		} catch (IOException e) {
+			log.warn("Could not store extracted text of blob {}: {}", contentHash, e.getMessage());
+		}
+	}
+	
+	/**
+	 * Delete a blob once no document references its hash any more.
+	 */
+	private void releaseBlob(String contentHash) {
+		if (contentHash != null && !userDocumentRepository.existsByContentHash(contentHash)) {
+			contentBlobStore.delete(contentHash);
 		}
 	}
 	
 	public List<UserDocument> getUserDocuments(String username) {
 		log.info("Fetching documents for user: {}", username);
-		return userDocumentRepository.findByUsernameOrderByUploadDateDesc(username);
+		// Documents being deleted are already gone for retrieval, so they are not listed either
+		return userDocumentRepository.findByUsernameAndStatusNotOrderByUploadDateDesc(username, DELETING);
+	}
+	
+	/**
+	 * Diffs the new chunks against the ones already stored for the document by content
+	 * hash. Point ids are derived from document id and chunk hash, so unchanged chunks
+	 * keep their points; only new chunks are embedded and upserted and only vanished
+	 * chunks are deleted.
+	 *
+	 * @return number of distinct chunks the document has after this run
+	 */
+	private int storeChunks(String jobId, String documentId, List<Document> splitDocuments) {
+		ChunkSync sync = new ChunkSync(documentId);
+		
+		// Embed in token-capped parallel batches, then upsert the finished vectors
+		ingestionJobService.markStage(jobId, IngestionJobService.EMBEDDING, 40);
+		AtomicInteger reportedProgress = new AtomicInteger(40);
+		sync.add(splitDocuments, percent -> {
+			// Map embedding progress onto 40-90% and only persist every 10%
+			int progress = 40 + percent / 2;
+			int previous = reportedProgress.get();
+			if (progress - previous >= 10 && reportedProgress.compareAndSet(previous, progress)) {
+				ingestionJobService.markStage(jobId, IngestionJobService.EMBEDDING, progress);
+			}
+		});
+		
+		ingestionJobService.markStage(jobId, IngestionJobService.STORING, 90);
+		return sync.finish();
+	}
+	
+	/**
+	 * Streaming variant of split and store: chunks are embedded and upserted batch by batch
+	 * while the document is still being parsed.
+	 */
+	private int streamAndStoreChunks(String jobId, UserDocument userDocument, StructureAwareTextSplitter splitter)
+		throws IOException {
+		ChunkSync sync = new ChunkSync(userDocument.getDocumentId());
+		ingestionJobService.markStage(jobId, IngestionJobService.EMBEDDING, 40);
+		int produced = streamChunks(userDocument, splitter, batch -> sync.add(batch, percent -> {}));
+		log.info("Streamed {} chunks from document {}", produced, userDocument.getDocumentId());
+		ingestionJobService.markStage(jobId, IngestionJobService.STORING, 90);
+		return sync.finish();
+	}
+	
+	/**
+	 * The splitter to stream a document through, if it is large enough to be worth it and
+	 * its text can be chunked as it is parsed. PDFs on the parallel page-range path and
+	 * documents whose splitter can't split incrementally are always extracted in full.
+	 */
+	Optional<StructureAwareTextSplitter> streamingSplitter(UserDocument userDocument) {
+		if (!streamingEnabled || userDocument.getFileSize() == null
+			|| userDocument.getFileSize() < streamingThresholdBytes) {
+			return Optional.empty();
+		}
+		if (parallelPdfExtraction && pdfExtractor.supports(userDocument.getContentType(), userDocument.getOriginalFilename())) {
+			return Optional.empty();
+		}
+		TextSplitter textSplitter = textSplitterSelector.forDocument(userDocument.getContentType(),
+			userDocument.getOriginalFilename());
+		return textSplitter instanceof StructureAwareTextSplitter structureAware
+			? Optional.of(structureAware)
+			: Optional.empty();
 	}
 	
+	/**
+	 * Parse the document's blob and split it while parsing: text goes from the SAX handler
+	 * into the splitter a few paragraphs at a time, and finished chunks are handed to
+	 * {@code batchConsumer} in batches, on the calling thread. Only whitespace and
+	 * hyphenation are cleaned up; repeated headers and footers need the whole text to be
+	 * recognized.
+	 *
+	 * @return number of chunks produced
+	 */
+	int streamChunks(UserDocument userDocument, StructureAwareTextSplitter splitter,
+	                 Consumer<List<Document>> batchConsumer) throws IOException {
+		Map<String, Object> metadata = documentMetadata(userDocument);
+		metadata.put(DocumentTextExtractor.SOURCE_METADATA, userDocument.getOriginalFilename());
+		
+		List<Document> batch = new ArrayList<>(streamingBatchChunks);
+		AtomicInteger produced = new AtomicInteger();
+		StructureAwareTextSplitter.ChunkStream chunks = splitter.stream(text -> {
+			batch.add(new Document(text, new HashMap<>(metadata)));
+			produced.incrementAndGet();
+			if (batch.size() >= streamingBatchChunks) {
+				batchConsumer.accept(List.copyOf(batch));
+				batch.clear();
+			}
+		});
+		
+		Resource resource = contentBlobStore.asResource(userDocument.getContentHash(), userDocument.getOriginalFilename());
+		try (ParagraphStreamWriter writer = new ParagraphStreamWriter(streamingFlushChars,
+			piece -> chunks.add(textCleanupTransformer.normalizeText(piece) + "\n\n"))) {
+			documentTextExtractor.stream(resource, userDocument.getContentType(), userDocument.getOriginalFilename(),
+				writer);
+		}
+		chunks.finish();
+		if (!batch.isEmpty()) {
+			batchConsumer.accept(List.copyOf(batch));
+		}
+		return produced.get();
+	}
+	
+	/**
+	 * Incremental diff of a document's chunks against its chunk manifest. Chunks can be
+	 * added in several batches; each batch is embedded and its upsert started right away.
+	 * {@link #finish()} waits for the upserts, and only then deletes the chunks that were
+	 * not seen again and records the new chunks in the manifest, so a failed upsert leaves
+	 * the previous chunks in place.
+	 */
+	private final class ChunkSync {
+		
+		private final String documentId;
+		private final Map<String, DocumentChunk> storedByHash = new HashMap<>();
+		private final Set<String> seenHashes = new HashSet<>();
+		private final List<DocumentChunk> added = new ArrayList<>();
+		private final List<QdrantChunkWriter.PendingWrite> pendingWrites = new ArrayList<>();
+		
+		ChunkSync(String documentId) {
+			this.documentId = documentId;
+			documentChunkRepository.findByDocumentId(documentId)
+				.forEach(stored -> storedByHash.put(stored.getChunkHash(), stored));
+			if (storedByHash.isEmpty()) {
+				// No chunk manifest yet: clear any points written without deterministic ids
+				qdrantChunkWriter.deleteByDocumentId(documentId);
+			}
+		}
+		
+		void add(List<Document> chunks, IntConsumer embeddingProgress) {
+			List<Document> addedChunks = new ArrayList<>();
+			chunksByHash(documentId, chunks).forEach((chunkHash, chunk) -> {
+				if (seenHashes.add(chunkHash) && !storedByHash.containsKey(chunkHash)) {
+					addedChunks.add(chunk);
+					added.add(DocumentChunk.builder()
+						.documentId(documentId)
+						.chunkHash(chunkHash)
+						.pointId(chunk.getId())
+						.build());
+				}
+			});
+			if (addedChunks.isEmpty()) {
+				return;
+			}
+			List<EmbeddedChunk> embeddedChunks = chunkEmbeddingStage.embed(addedChunks, embeddingProgress);
+			pendingWrites.add(qdrantChunkWriter.writeAsync(embeddedChunks));
+		}
+		
+		int finish() {
+			List<DocumentChunk> removed = storedByHash.values().stream()
+				.filter(stored -> !seenHashes.contains(stored.getChunkHash()))
+				.toList();
+			log.info("Document {}: {} chunks unchanged, {} new, {} removed", documentId,
+				seenHashes.size() - added.size(), added.size(), removed.size());
+			
+			// Only drop old chunks and record new ones once Qdrant has accepted the new ones
+			pendingWrites.forEach(QdrantChunkWriter.PendingWrite::await);
+			if (!removed.isEmpty()) {
+				qdrantChunkWriter.deletePoints(removed.stream().map(DocumentChunk::getPointId).toList());
+				documentChunkRepository.deleteByDocumentIdAndChunkHashIn(documentId,
+					removed.stream().map(DocumentChunk::getChunkHash).toList());
+			}
+			documentChunkRepository.saveAll(added);
+			return seenHashes.size();
+		}
+	}
+	
+	/**
+	 * Tombstones the document and removes its vectors in the background. The document is
+	 * excluded from retrieval as soon as this method returns; the row is removed once all
+	 * of its points are gone from the vector store.
+	 */
 	public void deleteDocument(String username, String documentId) {
 		log.info("Deleting document: {} for user: {}", documentId, username);
 		
 		UserDocument document = userDocumentRepository.findByUsernameAndDocumentId(username, documentId)
 			.orElseThrow(() -> new RuntimeException("Document not found or access denied"));
 		
-		userDocumentRepository.delete(document);
+		document.setStatus(DELETING);
+		userDocumentRepository.save(document);
+		tombstoneRegistry.add(username, documentId);
+		retrievalResultCache.bumpCorpusVersion(username);
 		
+		ingestionScheduler.submit(username, () -> purgeDocument(username, documentId));
 		
-		log.info("Document deleted successfully: {}", documentId);
+		log.info("Document tombstoned, vector delete queued: {}", documentId);
+	}
+	
+	/**
+	 * Finish deletes that were still in flight when the application stopped.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumePendingDeletes() {
+		for (UserDocument document : userDocumentRepository.findByStatus(DELETING)) {
+			tombstoneRegistry.add(document.getUsername(), document.getDocumentId());
+			ingestionScheduler.submit(document.getUsername(),
+				() -> purgeDocument(document.getUsername(), document.getDocumentId()));
+		}
+	}
+	
+	void purgeDocument(String username, String documentId) {
+		try {
+			Optional<UserDocument> document = userDocumentRepository.findByUsernameAndDocumentId(username, documentId);
+			String ownerId = document.map(DocumentService::chunkOwnerId).orElse(documentId);
+			synchronized (sharedContentLock) {
+				// The document is DELETING, so it is not among the readers any more
+				List<UserDocument> readers = readers(ownerId);
+				if (readers.isEmpty()) {
+					qdrantChunkWriter.deleteByDocumentId(ownerId);
+					documentChunkRepository.deleteByDocumentId(ownerId);
+				} else if (ownerId.equals(documentId)) {
+					transferChunks(ownerId, readers);
+				} else {
+					updateAccess(ownerId);
+				}
+			}
+			document.ifPresent(userDocumentRepository::delete);
+			document.ifPresent(deleted -> releaseBlob(deleted.getContentHash()));
+			tombstoneRegistry.remove(username, documentId);
+			retrievalResultCache.bumpCorpusVersion(username);
+			log.info("Document deleted successfully: {}", documentId);
+		} catch (Exception e) {
+			// Keep the tombstone so the document stays hidden; the delete is retried on restart
+			log.error("Error deleting vectors of document {} for user: {}", documentId, username, e);
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.burak.openai.service;
+
+import com.burak.openai.rag.ContentHash;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of chunk embeddings on the local disk. Entries are
+ * keyed by SHA-256 of the embedding model id and the chunk text, so the same text is
+ * never sent to the embedding model twice, not even after a restart: the cache lives
+ * outside the database, whose schema is recreated on every start. Like the
+ * {@link ContentBlobStore} every entry is a file, sharded two levels deep by its key.
+ * <p>
+ * The cache is bounded by {@code document.ingestion.embedding-cache.max-entries}; a hit
+ * touches the file's modification time, and the least recently used entries are evicted
+ * first.
+ */
+@Service
+@Slf4j
+public class EmbeddingCacheService {
+	
+	private final Path rootDirectory;
+	private final long maxEntries;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+	// Entries on disk, counted on the first write after a start
+	private final AtomicLong approximateSize = new AtomicLong(-1);
+	
+	public EmbeddingCacheService(MeterRegistry meterRegistry,
+	                             @Value("${document.ingestion.embedding-cache.dir:./data/embedding-cache}") Path rootDirectory,
+	                             @Value("${document.ingestion.embedding-cache.max-entries:200000}") long maxEntries) {
+		this.rootDirectory = rootDirectory;
+		this.maxEntries = maxEntries;
+		this.hits = meterRegistry.counter("embedding.cache.hits");
+		this.misses = meterRegistry.counter("embedding.cache.misses");
+		this.evictions = meterRegistry.counter("embedding.cache.evictions");
+		meterRegistry.gauge("embedding.cache.size", approximateSize);
+	}
+	
+	public String cacheKey(String model, String text) {
+		return ContentHash.sha256(model + "\n" + text);
+	}
+	
+	/**
+	 * Look up cached vectors of the given model for the given texts.
+	 *
+	 * @return vectors keyed by the index of the text in {@code texts}; misses are absent
+	 */
+	public Map<Integer, float[]> getAll(String model, List<String> texts) {
+		Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+		for (int i = 0; i < texts.size(); i++) {
+			indexesByKey.computeIfAbsent(cacheKey(model, texts.get(i)), key -> new ArrayList<>()).add(i);
+		}
+		
+		Map<Integer, float[]> found = new HashMap<>();
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+		indexesByKey.forEach((key, indexes) -> {
+			Path entry = path(key);
+			try {
+				float[] vector = fromBytes(Files.readAllBytes(entry));
+				indexes.forEach(index -> found.put(index, vector));
+				Files.setLastModifiedTime(entry, now);
+			} catch (NoSuchFileException e) {
+				// Miss, or evicted meanwhile
+			} catch (IOException e) {
+				log.warn("Could not read cached embedding {}: {}", key, e.getMessage());
+			}
+		});
+		
+		hits.increment(found.size());
+		misses.increment(texts.size() - found.size());
+		return found;
+	}
+	
+	/**
+	 * Store freshly computed vectors. Failures are logged and swallowed: the cache is an
+	 * optimisation and must never fail an ingestion job.
+	 */
+	public void putAll(String model, List<String> texts, List<float[]> vectors) {
+		try {
+			Map<String, float[]> byKey = new LinkedHashMap<>();
+			for (int i = 0; i < texts.size(); i++) {
+				byKey.putIfAbsent(cacheKey(model, texts.get(i)), vectors.get(i));
+			}
+			int written = 0;
+			for (Map.Entry<String, float[]> entry : byKey.entrySet()) {
+				if (write(entry.getKey(), entry.getValue())) {
+					written++;
+				}
+			}
+			if (approximateSize.get() >= 0) {
+				approximateSize.addAndGet(written);
+			}
+			evictIfNeeded();
+		} catch (Exception e) {
+			log.warn("Could not store {} embeddings in cache: {}", texts.size(), e.getMessage());
+		}
+	}
+	
+	/**
+	 * Write an entry through a partial file and an atomic rename, so a reader never sees
+	 * half a vector.
+	 *
+	 * @return whether the entry was new
+	 */
+	private boolean write(String key, float[] vector) throws IOException {
+		Path entry = path(key);
+		if (Files.exists(entry)) {
+			return false;
+		}
+		Files.createDirectories(entry.getParent());
+		Path partial = entry.resolveSibling(key + "." + UUID.randomUUID() + ".partial");
+		try {
+			Files.write(partial, toBytes(vector));
+			Files.move(partial, entry, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (FileAlreadyExistsException e) {
+			// Written concurrently by another batch with the same text
+			return false;
+		} finally {
+			Files.deleteIfExists(partial);
+		}
+	}
+	
+	private synchronized void evictIfNeeded() throws IOException {
+		if (approximateSize.get() < 0) {
+			approximateSize.set(entries().size());
+		}
+		long size = approximateSize.get();
+		if (size <= maxEntries) {
+			return;
+		}
+		List<Path> entries = entries();
+		if (entries.size() <= maxEntries) {
+			approximateSize.set(entries.size());
+			return;
+		}
+		// Evict a little more than needed so we don't evict on every single put
+		long toEvict = Math.min(entries.size(), entries.size() - maxEntries + maxEntries / 20);
+		Map<Path, FileTime> lastAccess = new HashMap<>();
+		for (Path entry : entries) {
+			lastAccess.put(entry, Files.getLastModifiedTime(entry));
+		}
+		int evicted = 0;
+		for (Path entry : entries.stream().sorted(Comparator.comparing(lastAccess::get)).limit(toEvict).toList()) {
+			if (Files.deleteIfExists(entry)) {
+				evicted++;
+			}
+		}
+		evictions.increment(evicted);
+		approximateSize.set(entries.size() - evicted);
+		log.info("Evicted {} embedding cache entries", evicted);
+	}
+	
+	private List<Path> entries() throws IOException {
+		if (!Files.isDirectory(rootDirectory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.walk(rootDirectory, 3)) {
+			return files.filter(Files::isRegularFile)
+				.filter(file -> !file.getFileName().toString().endsWith(".partial"))
+				.toList();
+		}
+	}
+	
+	private Path path(String key) {
+		return rootDirectory.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+	}
+	
+	static byte[] toBytes(float[] vector) {
+		ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asFloatBuffer().put(vector);
+		return buffer.array();
+	}
+	
+	static float[] fromBytes(byte[] bytes) {
+		float[] vector = new float[bytes.length / Float.BYTES];
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+		return vector;
+	}
+}
\ No newline at end of file
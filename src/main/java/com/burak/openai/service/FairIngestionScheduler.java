@@ -0,0 +1,112 @@
+package com.burak.openai.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Runs ingestion jobs on a fixed pool of background workers. Jobs are queued per user
+ * and workers take them round-robin across users, so a user with a large batch of
+ * uploads cannot starve everyone else.
+ */
+@Component
+@Slf4j
+public class FairIngestionScheduler {
+	
+	private final Map<String, Queue<Runnable>> pendingByUser = new HashMap<>();
+	private final Deque<String> readyUsers = new ArrayDeque<>();
+	private final List<Thread> workers = new ArrayList<>();
+	private final int workerThreads;
+	private boolean running = true;
+	
+	public FairIngestionScheduler(@Value("${document.ingestion.worker-threads:2}") int workerThreads) {
+		if (workerThreads <= 0) {
+			throw new IllegalArgumentException("document.ingestion.worker-threads must be greater than 0");
+		}
+		this.workerThreads = workerThreads;
+	}
+	
+	@PostConstruct
+	public void start() {
+		for (int i = 0; i < workerThreads; i++) {
+			workers.add(Thread.ofPlatform()
+				.name("ingestion-worker-" + i)
+				.daemon(true)
+				.start(this::workerLoop));
+		}
+		log.info("Started {} ingestion workers", workerThreads);
+	}
+	
+	@PreDestroy
+	public void stop() {
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+		workers.forEach(Thread::interrupt);
+	}
+	
+	/**
+	 * Queue a task for the given user. Tasks of the same user are started in submission order.
+	 */
+	public void submit(String username, Runnable task) {
+		synchronized (this) {
+			if (!running) {
+				throw new IllegalStateException("Ingestion scheduler is shut down");
+			}
+			Queue<Runnable> queue = pendingByUser.computeIfAbsent(username, key -> new ArrayDeque<>());
+			queue.add(task);
+			if (queue.size() == 1) {
+				readyUsers.addLast(username);
+				notifyAll();
+			}
+		}
+	}
+	
+	public synchronized int getQueuedTaskCount() {
+		return pendingByUser.values().stream().mapToInt(Queue::size).sum();
+	}
+	
+	private void workerLoop() {
+		while (true) {
+			Runnable task;
+			synchronized (this) {
+				while (running && readyUsers.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (!running) {
+					return;
+				}
+				// Take one task from the user at the head, then move that user to the back
+				String username = readyUsers.pollFirst();
+				Queue<Runnable> queue = pendingByUser.get(username);
+				task = queue.poll();
+				if (queue.isEmpty()) {
+					pendingByUser.remove(username);
+				} else {
+					readyUsers.addLast(username);
+				}
+			}
+			try {
+				task.run();
+			} catch (Exception e) {
+				log.error("Ingestion task failed", e);
+			}
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.burak.openai.service;
+
+import com.burak.openai.entity.IngestionJob;
+import com.burak.openai.repository.IngestionJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionJobService {
+	
+	public static final String QUEUED = "QUEUED";
+	public static final String PARSING = "PARSING";
+	public static final String SPLITTING = "SPLITTING";
+	public static final String EMBEDDING = "EMBEDDING";
+	public static final String STORING = "STORING";
+	public static final String COMPLETED = "COMPLETED";
+	public static final String FAILED = "FAILED";
+	
+	private final IngestionJobRepository ingestionJobRepository;
+	
+	public IngestionJob createJob(String username, String documentId, String originalFilename, String stagedPath) {
+		IngestionJob job = IngestionJob.builder()
+			.jobId(UUID.randomUUID().toString())
+			.documentId(documentId)
+			.username(username)
+			.originalFilename(originalFilename)
+			.stagedPath(stagedPath)
+			.status(QUEUED)
+			.progress(0)
+			.createdAt(LocalDateTime.now())
+			.build();
+		return ingestionJobRepository.save(job);
+	}
+	
+	public IngestionJob getJob(String jobId) {
+		return ingestionJobRepository.findByJobId(jobId)
+			.orElseThrow(() -> new RuntimeException("Ingestion job not found: " + jobId));
+	}
+	
+	public IngestionJob getJob(String username, String jobId) {
+		return ingestionJobRepository.findByUsernameAndJobId(username, jobId)
+			.orElseThrow(() -> new RuntimeException("Ingestion job not found or access denied"));
+	}
+	
+	public Optional<IngestionJob> findLatestJobForDocument(String documentId) {
+		return ingestionJobRepository.findFirstByDocumentIdOrderByCreatedAtDesc(documentId);
+	}
+	
+	public List<IngestionJob> getUserJobs(String username) {
+		return ingestionJobRepository.findByUsernameOrderByCreatedAtDesc(username);
+	}
+	
+	public void markStage(String jobId, String status, int progress) {
+		IngestionJob job = getJob(jobId);
+		if (job.getStartedAt() == null) {
+			job.setStartedAt(LocalDateTime.now());
+		}
+		job.setStatus(status);
+		job.setProgress(progress);
+		ingestionJobRepository.save(job);
+		log.info("Ingestion job {} -> {} ({}%)", jobId, status, progress);
+	}
+	
+	public void recordCleanup(String jobId, int extractedTokens, int tokensSaved) {
+		IngestionJob job = getJob(jobId);
+		job.setExtractedTokens(extractedTokens);
+		job.setCleanupTokensSaved(tokensSaved);
+		ingestionJobRepository.save(job);
+	}
+	
+	public void markCompleted(String jobId, int chunkCount) {
+		IngestionJob job = getJob(jobId);
+		job.setStatus(COMPLETED);
+		job.setProgress(100);
+		job.setChunkCount(chunkCount);
+		job.setCompletedAt(LocalDateTime.now());
+		ingestionJobRepository.save(job);
+	}
+	
+	public void markFailed(String jobId, String errorMessage) {
+		IngestionJob job = getJob(jobId);
+		job.setStatus(FAILED);
+		job.setErrorMessage(errorMessage != null && errorMessage.length() > 2000
+			? errorMessage.substring(0, 2000) : errorMessage);
+		job.setCompletedAt(LocalDateTime.now());
+		ingestionJobRepository.save(job);
+	}
+}
\ No newline at end of file
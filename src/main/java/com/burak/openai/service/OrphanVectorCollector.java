@@ -0,0 +1,137 @@
+package com.burak.openai.service;
+
+import com.burak.openai.rag.CollectionRouter;
+import com.burak.openai.rag.QdrantChunkWriter;
+import com.burak.openai.repository.UserDocumentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes points whose {@code documentId} has no {@link com.burak.openai.entity.UserDocument}
+ * row any more: leftovers of failed uploads, deletes that never finished and H2 restarts
+ * (the schema is create-drop while Qdrant keeps its data). Each write collection is
+ * scrolled page by page, the document ids of a page are checked against the database in
+ * one query, and the orphaned documents are deleted in batches once the scan is done.
+ * Points without a document id (the seed corpus) are never touched. Chunk texts no
+ * manifest refers to any more are removed from the {@link ChunkTextStore} in the same run.
+ * <p>
+ * Runs on a schedule and on demand. A dry run only reports what would be reclaimed.
+ */
+@Service
+@Slf4j
+public class OrphanVectorCollector {
+	
+	private final QdrantChunkWriter qdrantChunkWriter;
+	private final CollectionRouter collectionRouter;
+	private final UserDocumentRepository userDocumentRepository;
+	private final ChunkTextStore chunkTextStore;
+	private final Counter reclaimedPoints;
+	private final boolean scheduledEnabled;
+	private final boolean scheduledDryRun;
+	private final int pageSize;
+	
+	private volatile GcReport lastReport;
+	
+	public record GcReport(boolean dryRun, List<String> collections, long scannedPoints, int orphanDocuments,
+	                       long orphanPoints, long reclaimedPoints, long orphanChunkTexts, LocalDateTime startedAt,
+	                       long durationMillis) {}
+	
+	public OrphanVectorCollector(QdrantChunkWriter qdrantChunkWriter,
+	                             CollectionRouter collectionRouter,
+	                             UserDocumentRepository userDocumentRepository,
+	                             ChunkTextStore chunkTextStore,
+	                             MeterRegistry meterRegistry,
+	                             @Value("${document.gc.enabled:true}") boolean scheduledEnabled,
+	                             @Value("${document.gc.dry-run:false}") boolean scheduledDryRun,
+	                             @Value("${document.gc.page-size:1000}") int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("document.gc.page-size must be greater than 0");
+		}
+		this.qdrantChunkWriter = qdrantChunkWriter;
+		this.collectionRouter = collectionRouter;
+		this.userDocumentRepository = userDocumentRepository;
+		this.chunkTextStore = chunkTextStore;
+		this.reclaimedPoints = meterRegistry.counter("qdrant.gc.reclaimed-points");
+		this.scheduledEnabled = scheduledEnabled;
+		this.scheduledDryRun = scheduledDryRun;
+		this.pageSize = pageSize;
+	}
+	
+	@Scheduled(initialDelayString = "${document.gc.initial-delay:PT10M}", fixedDelayString = "${document.gc.interval:PT6H}")
+	public void scheduledCollect() {
+		if (!scheduledEnabled) {
+			return;
+		}
+		try {
+			collect(scheduledDryRun);
+		} catch (RuntimeException e) {
+			log.error("Orphan vector collection failed", e);
+		}
+	}
+	
+	/**
+	 * Find, and unless {@code dryRun} delete, the points of documents that no longer exist.
+	 */
+	public synchronized GcReport collect(boolean dryRun) {
+		LocalDateTime startedAt = LocalDateTime.now();
+		long startNanos = System.nanoTime();
+		List<String> collections = collectionRouter.getWriteCollections();
+		long scanned = 0;
+		long orphanPoints = 0;
+		long reclaimed = 0;
+		Set<String> orphanDocuments = new HashSet<>();
+		
+		for (String collectionName : collections) {
+			Map<String, Long> orphans = new HashMap<>();
+			scanned += qdrantChunkWriter.scanDocumentIds(collectionName, pageSize, documentIds -> {
+				Set<String> pageIds = new HashSet<>(documentIds);
+				userDocumentRepository.findExistingDocumentIds(pageIds).forEach(pageIds::remove);
+				documentIds.stream()
+					.filter(pageIds::contains)
+					.forEach(documentId -> orphans.merge(documentId, 1L, Long::sum));
+			});
+			orphanDocuments.addAll(orphans.keySet());
+			orphanPoints += orphans.values().stream().mapToLong(Long::longValue).sum();
+			
+			if (dryRun || orphans.isEmpty()) {
+				continue;
+			}
+			// Checked again right before deleting, in case a document was created with a reused id meanwhile
+			Set<String> stillOrphaned = new HashSet<>(orphans.keySet());
+			userDocumentRepository.findExistingDocumentIds(orphans.keySet()).forEach(stillOrphaned::remove);
+			for (String documentId : stillOrphaned) {
+				reclaimed += qdrantChunkWriter.deleteByDocumentId(documentId, collectionName);
+			}
+		}
+		
+		// After the points, so texts of the documents just collected go in the same run
+		long orphanChunkTexts = chunkTextStore.collectUnreferenced(!dryRun);
+		
+		reclaimedPoints.increment(reclaimed);
+		GcReport report = new GcReport(dryRun, collections, scanned, orphanDocuments.size(), orphanPoints, reclaimed,
+			orphanChunkTexts, startedAt, (System.nanoTime() - startNanos) / 1_000_000);
+		lastReport = report;
+		log.info("Orphan vector collection{} in {}: scanned {} points, {} orphaned documents with {} points, reclaimed {} points, {} orphaned chunk texts in {} ms",
+			dryRun ? " (dry run)" : "", collections, scanned, report.orphanDocuments(), orphanPoints, reclaimed,
+			orphanChunkTexts, report.durationMillis());
+		return report;
+	}
+	
+	/**
+	 * Result of the last run, or {@code null} if there has been none.
+	 */
+	public GcReport getLastReport() {
+		return lastReport;
+	}
+}
\ No newline at end of file
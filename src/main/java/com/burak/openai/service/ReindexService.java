@@ -0,0 +1,397 @@
+package com.burak.openai.service;
+
+import com.burak.openai.entity.DocumentChunk;
+import com.burak.openai.entity.UserDocument;
+import com.burak.openai.rag.ChunkEmbeddingStage;
+import com.burak.openai.rag.CollectionRouter;
+import com.burak.openai.rag.EmbeddedChunk;
+import com.burak.openai.rag.EmbeddingModelRegistry;
+import com.burak.openai.rag.QdrantChunkWriter;
+import com.burak.openai.rag.SeedCorpusLoader;
+import com.burak.openai.rag.StructureAwareTextSplitter;
+import com.burak.openai.rag.TextCleanupTransformer;
+import com.burak.openai.repository.DocumentChunkRepository;
+import com.burak.openai.repository.UserDocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-embeds the whole corpus into a new versioned Qdrant collection in the background,
+ * e.g. after a chunking or embedding model change. Documents are re-chunked from their
+ * stored blob (or stored extracted text) and embedded a few at a time. While the run is in
+ * progress the {@link CollectionRouter} dual-writes, so uploads and deletes reach both the
+ * live and the new collection. Retrieval switches to the new collection in one step once
+ * every document has been re-indexed; the previous collection is kept for rollback until
+ * the next run.
+ * <p>
+ * The target collection is embedded with {@code document.reindex.embedding-model} (the
+ * configured model by default). While the run is in progress uploads are embedded with
+ * both models and queries stay on the live model; the switch moves queries to the new
+ * model together with the collection.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexService {
+	
+	public static final String RUNNING = "RUNNING";
+	public static final String COMPLETED = "COMPLETED";
+	public static final String FAILED = "FAILED";
+	
+	private static final String DELETING = "DELETING";
+	private static final int MAX_ATTEMPTS = 3;
+	
+	private final UserDocumentRepository userDocumentRepository;
+	private final DocumentChunkRepository documentChunkRepository;
+	private final DocumentService documentService;
+	private final ChunkEmbeddingStage chunkEmbeddingStage;
+	private final EmbeddingModelRegistry embeddingModelRegistry;
+	private final QdrantChunkWriter qdrantChunkWriter;
+	private final CollectionRouter collectionRouter;
+	private final SeedCorpusLoader seedCorpusLoader;
+	private final TextCleanupTransformer textCleanupTransformer;
+	
+	@Value("${document.reindex.max-concurrency:2}")
+	private int maxConcurrency;
+	
+	private volatile Run currentRun;
+	
+	public record ReindexStatus(String status, String sourceCollection, String targetCollection,
+	                            String embeddingModel, int totalDocuments, int processedDocuments, int skippedDocuments,
+	                            int failedDocuments, long chunks,
+	                            double documentsPerSecond, double chunksPerSecond, Long etaSeconds,
+	                            LocalDateTime startedAt, LocalDateTime finishedAt, String error) {}
+	
+	/**
+	 * Re-index of one document: its content hash when it was read and the point id of
+	 * every chunk written to the target collection, by chunk hash.
+	 */
+	private record ReindexedDocument(String contentHash, Map<String, String> pointIdsByHash) {}
+	
+	private static final class Run {
+		private final String sourceCollection;
+		private final String targetCollection;
+		private final String embeddingModel;
+		private final int totalDocuments;
+		private final long startNanos = System.nanoTime();
+		private final LocalDateTime startedAt = LocalDateTime.now();
+		private final AtomicInteger processedDocuments = new AtomicInteger();
+		private final AtomicInteger skippedDocuments = new AtomicInteger();
+		private final AtomicInteger failedDocuments = new AtomicInteger();
+		private final AtomicLong chunks = new AtomicLong();
+		private final Map<String, ReindexedDocument> reindexed = new ConcurrentHashMap<>();
+		private volatile String status = RUNNING;
+		private volatile LocalDateTime finishedAt;
+		private volatile String error;
+		
+		private Run(String sourceCollection, String targetCollection, String embeddingModel, int totalDocuments) {
+			this.sourceCollection = sourceCollection;
+			this.targetCollection = targetCollection;
+			this.embeddingModel = embeddingModel;
+			this.totalDocuments = totalDocuments;
+		}
+	}
+	
+	/**
+	 * Start a re-index of every active document into a new collection.
+	 *
+	 * @throws RuntimeException if a re-index is already running
+	 */
+	public synchronized ReindexStatus start() {
+		if (currentRun != null && RUNNING.equals(currentRun.status)) {
+			throw new RuntimeException("A re-index into " + currentRun.targetCollection + " is already running");
+		}
+		
+		// Collections left from earlier runs (including the last rollback) are no longer needed
+		String liveCollection = collectionRouter.getLiveCollection();
+		collectionRouter.listCollections().stream()
+			.filter(collection -> !collection.equals(liveCollection))
+			.forEach(collectionRouter::deleteCollection);
+		
+		String targetCollection = collectionRouter.nextVersionName();
+		String embeddingModel = embeddingModelRegistry.getReindexModel();
+		collectionRouter.createCollection(targetCollection, embeddingModel);
+		qdrantChunkWriter.ensurePayloadIndexes(targetCollection);
+		
+		// Dual-write before the snapshot, so a document is either in the snapshot or written by its own job
+		collectionRouter.startDualWrite(targetCollection);
+		// Copies of shared content have no chunks of their own; they are in the access list of the owner's chunks
+		List<UserDocument> documents = userDocumentRepository.findByStatusIn(List.of("ACTIVE", "PROCESSING")).stream()
+			.filter(document -> document.getSharedFromDocumentId() == null)
+			.toList();
+		
+		Run run = new Run(liveCollection, targetCollection, embeddingModel, documents.size());
+		currentRun = run;
+		log.info("Re-indexing {} documents from {} into {} ({}) with {} workers", documents.size(), liveCollection,
+			targetCollection, embeddingModel, maxConcurrency);
+		
+		Thread coordinator = new Thread(() -> execute(run, documents), "reindex-" + targetCollection);
+		coordinator.setDaemon(true);
+		coordinator.start();
+		return toStatus(run);
+	}
+	
+	/**
+	 * Progress of the current or last run, or {@code null} if there has been none.
+	 */
+	public ReindexStatus getStatus() {
+		Run run = currentRun;
+		return run == null ? null : toStatus(run);
+	}
+	
+	private void execute(Run run, List<UserDocument> documents) {
+		AtomicInteger threadCounter = new AtomicInteger();
+		ExecutorService workers = Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+			Thread thread = new Thread(runnable, "reindex-worker-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		int logEvery = Math.max(1, documents.size() / 20);
+		try {
+			for (UserDocument document : documents) {
+				workers.execute(() -> {
+					reindexDocument(run, document);
+					if (run.processedDocuments.incrementAndGet() % logEvery == 0) {
+						logProgress(run);
+					}
+				});
+			}
+			workers.shutdown();
+			while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+				logProgress(run);
+			}
+			
+			if (run.failedDocuments.get() > 0) {
+				throw new RuntimeException(run.failedDocuments.get() + " documents could not be re-indexed");
+			}
+			Map<String, List<DocumentChunk>> manifests = reconcile(run);
+			seedCorpusLoader.seed(List.of(run.targetCollection));
+			collectionRouter.switchLive(run.targetCollection);
+			replaceManifests(run, manifests);
+			run.status = COMPLETED;
+			log.info("Re-index into {} completed: {} documents, {} chunks in {}s", run.targetCollection,
+				run.processedDocuments.get(), run.chunks.get(), elapsedSeconds(run));
+		} catch (Exception e) {
+			log.error("Re-index into {} failed, {} stays live", run.targetCollection, run.sourceCollection, e);
+			workers.shutdownNow();
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			collectionRouter.stopDualWrite();
+			if (run.targetCollection.equals(collectionRouter.getLiveCollection())) {
+				// Only the manifests failed; the next upload of a document records its own
+				log.error("Re-index into {} switched live, but its chunk manifests were not recorded",
+					run.targetCollection);
+			} else {
+				try {
+					collectionRouter.deleteCollection(run.targetCollection);
+				} catch (RuntimeException deleteError) {
+					log.warn("Could not delete collection {}: {}", run.targetCollection, deleteError.getMessage());
+				}
+			}
+			run.error = e.getMessage();
+			run.status = FAILED;
+		} finally {
+			run.finishedAt = LocalDateTime.now();
+		}
+	}
+	
+	/**
+	 * Re-index a document of the snapshot from its current row: users may delete the
+	 * document or upload a new version while the run is in progress, which releases the
+	 * blob the snapshot points to. Deleted documents are skipped; a document whose content
+	 * changed while it was being read is read again.
+	 */
+	private void reindexDocument(Run run, UserDocument snapshot) {
+		String documentId = snapshot.getDocumentId();
+		for (int attempt = 1; ; attempt++) {
+			Optional<UserDocument> current = currentDocument(documentId);
+			if (current.isEmpty()) {
+				log.info("Document {} was deleted during the re-index or failed, skipping", documentId);
+				run.skippedDocuments.incrementAndGet();
+				return;
+			}
+			try {
+				reindexContent(run, current.get());
+				return;
+			} catch (Exception e) {
+				Optional<UserDocument> after = currentDocument(documentId);
+				boolean changed = after.isEmpty()
+					|| !after.get().getContentHash().equals(current.get().getContentHash());
+				if (changed) {
+					// Points of the previous content written so far would never be reconciled
+					discardPoints(run, documentId);
+				}
+				if (changed && after.isPresent() && attempt < MAX_ATTEMPTS) {
+					log.info("Document {} changed while it was re-indexed, reading it again", documentId);
+					continue;
+				}
+				if (after.isEmpty()) {
+					log.info("Document {} was deleted during the re-index or failed, skipping", documentId);
+					run.skippedDocuments.incrementAndGet();
+					return;
+				}
+				log.error("Could not re-index document {}", documentId, e);
+				run.failedDocuments.incrementAndGet();
+				return;
+			}
+		}
+	}
+	
+	private void discardPoints(Run run, String documentId) {
+		try {
+			qdrantChunkWriter.deleteByDocumentId(documentId, run.targetCollection);
+		} catch (RuntimeException e) {
+			log.warn("Could not delete points of document {} from {}: {}", documentId, run.targetCollection,
+				e.getMessage());
+		}
+	}
+	
+	/**
+	 * The document's row, unless it is gone or no longer readable (being deleted or failed).
+	 */
+	private Optional<UserDocument> currentDocument(String documentId) {
+		return userDocumentRepository.findByDocumentId(documentId).stream()
+			.filter(document -> !DELETING.equals(document.getStatus()) && !"FAILED".equals(document.getStatus()))
+			.findFirst();
+	}
+	
+	private void reindexContent(Run run, UserDocument document) throws Exception {
+		String documentId = document.getDocumentId();
+		Map<String, String> pointIdsByHash = new HashMap<>();
+		Optional<StructureAwareTextSplitter> streamingSplitter = documentService.streamingSplitter(document);
+		if (streamingSplitter.isPresent()) {
+			// Large documents are chunked and written batch by batch while they are parsed
+			documentService.streamChunks(document, streamingSplitter.get(),
+				batch -> writeChunks(run, documentId, batch, pointIdsByHash));
+		} else {
+			List<Document> extracted = documentService.extractDocuments(document, true);
+			writeChunks(run, documentId,
+				documentService.splitDocuments(document, textCleanupTransformer.apply(extracted)), pointIdsByHash);
+		}
+		run.reindexed.put(documentId, new ReindexedDocument(document.getContentHash(), pointIdsByHash));
+		run.chunks.addAndGet(pointIdsByHash.size());
+	}
+	
+	private void writeChunks(Run run, String documentId, List<Document> chunks, Map<String, String> pointIdsByHash) {
+		List<Document> newChunks = new ArrayList<>();
+		DocumentService.chunksByHash(documentId, chunks).forEach((chunkHash, chunk) -> {
+			if (pointIdsByHash.putIfAbsent(chunkHash, chunk.getId()) == null) {
+				newChunks.add(chunk);
+			}
+		});
+		// Unchanged chunk text is served from the embedding cache, unless the model changed
+		List<EmbeddedChunk> embeddedChunks = chunkEmbeddingStage.embed(newChunks, List.of(run.targetCollection), null);
+		qdrantChunkWriter.write(embeddedChunks, run.targetCollection);
+	}
+	
+	/**
+	 * Bring the target collection in line with changes made while the run was in progress.
+	 * Uploads and deletes were dual-written, so only documents that changed after they were
+	 * re-indexed need attention.
+	 *
+	 * @return the chunk manifest in the target collection of every unchanged document, to
+	 * be recorded once it is live: until then the manifests describe the live collection
+	 */
+	private Map<String, List<DocumentChunk>> reconcile(Run run) {
+		Map<String, List<DocumentChunk>> manifests = new HashMap<>();
+		run.reindexed.forEach((documentId, reindexed) -> reconcile(run, documentId, reindexed)
+			.ifPresent(manifest -> manifests.put(documentId, manifest)));
+		return manifests;
+	}
+	
+	/**
+	 * @return the document's manifest in the target collection, unless it was deleted or
+	 * changed after it was re-indexed
+	 */
+	private Optional<List<DocumentChunk>> reconcile(Run run, String documentId, ReindexedDocument reindexed) {
+		List<UserDocument> current = userDocumentRepository.findByDocumentId(documentId);
+		if (current.isEmpty() || DELETING.equals(current.get(0).getStatus())) {
+			// Deleted during the run, after its points were re-written
+			qdrantChunkWriter.deleteByDocumentId(documentId, run.targetCollection);
+			return Optional.empty();
+		}
+		
+		if (!reindexed.contentHash().equals(current.get(0).getContentHash())) {
+			// A new version was ingested (and dual-written) during the run: drop the old chunks
+			Set<String> manifestPointIds = new HashSet<>();
+			documentChunkRepository.findByDocumentId(documentId)
+				.forEach(chunk -> manifestPointIds.add(chunk.getPointId()));
+			List<String> stalePointIds = reindexed.pointIdsByHash().values().stream()
+				.filter(pointId -> !manifestPointIds.contains(pointId))
+				.toList();
+			qdrantChunkWriter.deletePoints(stalePointIds, run.targetCollection);
+			return Optional.empty();
+		}
+		
+		// Same content, possibly chunked differently
+		return Optional.of(reindexed.pointIdsByHash().entrySet().stream()
+			.map(entry -> DocumentChunk.builder()
+				.documentId(documentId)
+				.chunkHash(entry.getKey())
+				.pointId(entry.getValue())
+				.build())
+			.toList());
+	}
+	
+	/**
+	 * Record the manifests of the collection that just went live, in one transaction. Each
+	 * document is checked once more: one changed between the reconcile and the switch
+	 * already has the manifest of its new version.
+	 */
+	private void replaceManifests(Run run, Map<String, List<DocumentChunk>> manifests) {
+		Map<String, List<DocumentChunk>> unchanged = new HashMap<>();
+		manifests.keySet().forEach(documentId -> reconcile(run, documentId, run.reindexed.get(documentId))
+			.ifPresent(manifest -> unchanged.put(documentId, manifest)));
+		documentChunkRepository.replaceByDocumentId(unchanged);
+	}
+	
+	private void logProgress(Run run) {
+		ReindexStatus status = toStatus(run);
+		log.info("Re-index into {}: {}/{} documents ({} skipped, {} failed), {} chunks, {} docs/s, ETA {}s",
+			status.targetCollection(), status.processedDocuments(), status.totalDocuments(),
+			status.skippedDocuments(), status.failedDocuments(),
+			status.chunks(), String.format("%.2f", status.documentsPerSecond()), status.etaSeconds());
+	}
+	
+	private ReindexStatus toStatus(Run run) {
+		int processed = run.processedDocuments.get();
+		double seconds = elapsedSeconds(run);
+		double documentsPerSecond = seconds > 0 ? processed / seconds : 0;
+		double chunksPerSecond = seconds > 0 ? run.chunks.get() / seconds : 0;
+		Long etaSeconds = null;
+		if (RUNNING.equals(run.status) && documentsPerSecond > 0) {
+			etaSeconds = Math.round((run.totalDocuments - processed) / documentsPerSecond);
+		}
+		return new ReindexStatus(run.status, run.sourceCollection, run.targetCollection, run.embeddingModel,
+			run.totalDocuments, processed, run.skippedDocuments.get(), run.failedDocuments.get(), run.chunks.get(), documentsPerSecond, chunksPerSecond, etaSeconds,
+			run.startedAt, run.finishedAt, run.error);
+	}
+	
+	private static double elapsedSeconds(Run run) {
+		LocalDateTime finishedAt = run.finishedAt;
+		if (finishedAt != null) {
+			return Duration.between(run.startedAt, finishedAt).toMillis() / 1000.0;
+		}
+		return (System.nanoTime() - run.startNanos) / 1_000_000_000.0;
+	}
+}
\ No newline at end of file
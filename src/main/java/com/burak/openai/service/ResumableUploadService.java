@@ -0,0 +1,248 @@
+package com.burak.openai.service;
+
+import com.burak.openai.entity.IngestionJob;
+import com.burak.openai.entity.UploadSession;
+import com.burak.openai.repository.UploadSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Resumable upload protocol for large documents: the client initiates an upload, PUTs
+ * numbered parts (in any order, retrying any part that failed) and then completes it.
+ * Every part is streamed to the staging area and checksummed; ingestion only starts once
+ * the parts have been assembled into the complete file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+	
+	public static final String OPEN = "OPEN";
+	public static final String COMPLETING = "COMPLETING";
+	public static final String COMPLETED = "COMPLETED";
+	public static final String FAILED = "FAILED";
+	public static final String ABORTED = "ABORTED";
+	
+	private static final int MAX_PARTS = 10000;
+	private static final String PART_PREFIX = "part-";
+	
+	private final UploadSessionRepository uploadSessionRepository;
+	private final UploadStagingService uploadStagingService;
+	private final DocumentService documentService;
+	
+	@Value("${document.ingestion.upload.max-part-size:67108864}")
+	private long maxPartSize;
+	
+	public record PartReceipt(int partNumber, long size, String sha256) {}
+	
+	public UploadSession initiate(String username, String originalFilename, String contentType, Long expectedSize) {
+		if (originalFilename == null || originalFilename.isBlank()) {
+			throw new RuntimeException("Filename is required");
+		}
+		UploadSession session = UploadSession.builder()
+			.uploadId(UUID.randomUUID().toString())
+			.username(username)
+			.originalFilename(originalFilename)
+			.contentType(contentType)
+			.expectedSize(expectedSize)
+			.status(OPEN)
+			.createdAt(LocalDateTime.now())
+			.build();
+		log.info("Initiated resumable upload {} of {} for user {}", session.getUploadId(), originalFilename, username);
+		return uploadSessionRepository.save(session);
+	}
+	
+	/**
+	 * Store one part. Re-sending a part number replaces it, which is how a client resumes
+	 * after a dropped connection.
+	 *
+	 * @param expectedSha256 optional SHA-256 of the part; the part is rejected on mismatch
+	 */
+	public PartReceipt uploadPart(String username, String uploadId, int partNumber, InputStream body,
+	                              String expectedSha256) {
+		UploadSession session = getOpenSession(username, uploadId);
+		if (partNumber < 1 || partNumber > MAX_PARTS) {
+			throw new RuntimeException("Part number must be between 1 and " + MAX_PARTS);
+		}
+		
+		Path partFile = partFile(session, partNumber);
+		try {
+			UploadStagingService.StagedUpload part = uploadStagingService.stage(body, partFile, maxPartSize);
+			if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(part.contentHash())) {
+				uploadStagingService.discard(partFile);
+				throw new RuntimeException("Checksum mismatch for part " + partNumber + " of upload " + uploadId);
+			}
+			log.debug("Stored part {} of upload {} ({} bytes)", partNumber, uploadId, part.size());
+			return new PartReceipt(partNumber, part.size(), part.contentHash());
+		} catch (IOException e) {
+			log.error("Error storing part {} of upload {}", partNumber, uploadId, e);
+			throw new RuntimeException("Error storing upload part: " + e.getMessage());
+		}
+	}
+	
+	public UploadSession getSession(String username, String uploadId) {
+		return uploadSessionRepository.findByUsernameAndUploadId(username, uploadId)
+			.orElseThrow(() -> new RuntimeException("Upload not found or access denied"));
+	}
+	
+	/**
+	 * Part numbers received so far, in order, so a client can tell which parts to resend.
+	 */
+	public List<Integer> getReceivedParts(String username, String uploadId) {
+		UploadSession session = getSession(username, uploadId);
+		return listParts(session).stream()
+			.map(ResumableUploadService::partNumber)
+			.toList();
+	}
+	
+	/**
+	 * Assemble parts {@code 1..n} into the staged file and queue it for ingestion. Only
+	 * one call can complete a session: it is moved to COMPLETING first, and a concurrent
+	 * call is rejected. The session goes back to OPEN if the parts are incomplete or don't
+	 * match, so the client can resend them, and to FAILED if ingestion could not be queued
+	 * after the parts were consumed.
+	 *
+	 * @param expectedSha256 optional SHA-256 of the whole file
+	 */
+	public IngestionJob complete(String username, String uploadId, String expectedSha256, boolean replaceExisting) {
+		UploadSession session = getOpenSession(username, uploadId);
+		if (uploadSessionRepository.compareAndSetStatus(uploadId, OPEN, COMPLETING) == 0) {
+			throw new RuntimeException("Upload " + uploadId + " is already being completed");
+		}
+		
+		UploadStagingService.StagedUpload staged;
+		try {
+			staged = assemble(session, expectedSha256);
+		} catch (RuntimeException e) {
+			uploadSessionRepository.compareAndSetStatus(uploadId, COMPLETING, OPEN);
+			throw e;
+		}
+		uploadStagingService.discardDirectory(partsDirectory(session));
+		
+		IngestionJob job;
+		try {
+			job = documentService.ingestStagedUpload(username, staged, session.getOriginalFilename(),
+				session.getContentType(), replaceExisting);
+		} catch (RuntimeException e) {
+			// The parts are gone, so the upload can't be completed again
+			session.setStatus(FAILED);
+			session.setCompletedAt(LocalDateTime.now());
+			uploadSessionRepository.save(session);
+			throw e;
+		}
+		session.setStatus(COMPLETED);
+		session.setJobId(job.getJobId());
+		session.setCompletedAt(LocalDateTime.now());
+		uploadSessionRepository.save(session);
+		
+		log.info("Completed resumable upload {} ({} bytes) as job {}", uploadId, staged.size(), job.getJobId());
+		return job;
+	}
+	
+	/**
+	 * Check that parts {@code 1..n} are all there and assemble them into a staged file of
+	 * the expected size and checksum.
+	 */
+	private UploadStagingService.StagedUpload assemble(UploadSession session, String expectedSha256) {
+		String uploadId = session.getUploadId();
+		List<Path> parts = listParts(session);
+		if (parts.isEmpty()) {
+			throw new RuntimeException("Upload " + uploadId + " has no parts");
+		}
+		for (int i = 0; i < parts.size(); i++) {
+			if (partNumber(parts.get(i)) != i + 1) {
+				throw new RuntimeException("Upload " + uploadId + " is missing part " + (i + 1));
+			}
+		}
+		
+		UploadStagingService.StagedUpload staged;
+		try {
+			staged = uploadStagingService.assemble(parts, uploadId);
+		} catch (IOException e) {
+			log.error("Error assembling upload {}", uploadId, e);
+			throw new RuntimeException("Error assembling upload: " + e.getMessage());
+		}
+		if (session.getExpectedSize() != null && session.getExpectedSize() != staged.size()) {
+			uploadStagingService.discard(staged.path());
+			throw new RuntimeException("Upload " + uploadId + " is " + staged.size() + " bytes, expected "
+				+ session.getExpectedSize());
+		}
+		if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(staged.contentHash())) {
+			uploadStagingService.discard(staged.path());
+			throw new RuntimeException("Checksum mismatch for upload " + uploadId);
+		}
+		log.debug("Assembled {} parts of upload {}", parts.size(), uploadId);
+		return staged;
+	}
+	
+	public void abort(String username, String uploadId) {
+		UploadSession session = getOpenSession(username, uploadId);
+		if (uploadSessionRepository.compareAndSetStatus(uploadId, OPEN, ABORTED) == 0) {
+			throw new RuntimeException("Upload " + uploadId + " is no longer open");
+		}
+		uploadStagingService.discardDirectory(partsDirectory(session));
+		session.setStatus(ABORTED);
+		session.setCompletedAt(LocalDateTime.now());
+		uploadSessionRepository.save(session);
+		log.info("Aborted resumable upload {}", uploadId);
+	}
+	
+	/**
+	 * Upload sessions live in the database, whose schema is recreated on every start
+	 * ({@code ddl-auto=create-drop}), so parts left over from a previous run can never be
+	 * completed.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void discardOrphanedParts() {
+		uploadStagingService.discardDirectory(uploadStagingService.partsRoot());
+	}
+	
+	private UploadSession getOpenSession(String username, String uploadId) {
+		UploadSession session = getSession(username, uploadId);
+		if (!OPEN.equals(session.getStatus())) {
+			throw new RuntimeException("Upload " + uploadId + " is " + session.getStatus());
+		}
+		return session;
+	}
+	
+	private Path partsDirectory(UploadSession session) {
+		return uploadStagingService.partsDirectory(session.getUploadId());
+	}
+	
+	private Path partFile(UploadSession session, int partNumber) {
+		return partsDirectory(session).resolve(String.format("%s%05d", PART_PREFIX, partNumber));
+	}
+	
+	private List<Path> listParts(UploadSession session) {
+		Path directory = partsDirectory(session);
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		// Zero-padded names sort in part order; in-flight ".partial" files are skipped
+		try (Stream<Path> files = Files.list(directory)) {
+			return files
+				.filter(file -> file.getFileName().toString().matches(PART_PREFIX + "\\d{5}"))
+				.sorted()
+				.toList();
+		} catch (IOException e) {
+			throw new RuntimeException("Error listing parts of upload " + session.getUploadId() + ": " + e.getMessage());
+		}
+	}
+	
+	private static int partNumber(Path partFile) {
+		return Integer.parseInt(partFile.getFileName().toString().substring(PART_PREFIX.length()));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.burak.openai.service;
+
+import com.burak.openai.rag.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Moves uploads out of the request into a local staging directory without ever holding
+ * the file content on the heap. Disk-backed multipart parts are renamed into place where
+ * the container supports it, and the content hash is computed over a memory-mapped view
+ * of the staged file.
+ */
+@Service
+@Slf4j
+public class UploadStagingService {
+	
+	private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+	private static final int COPY_BUFFER_BYTES = 256 * 1024;
+	private static final String PARTS_DIRECTORY = "uploads";
+	
+	private final Path stagingDirectory;
+	
+	public UploadStagingService(@Value("${document.ingestion.staging-dir:${java.io.tmpdir}/studentmate-ingestion}") Path stagingDirectory) {
+		this.stagingDirectory = stagingDirectory;
+	}
+	
+	public record StagedUpload(Path path, String contentHash, long size) {}
+	
+	public StagedUpload stage(MultipartFile file, String name) throws IOException {
+		Files.createDirectories(stagingDirectory);
+		Path stagedFile = stagingDirectory.resolve(name);
+		try {
+			file.transferTo(stagedFile);
+			return new StagedUpload(stagedFile, hash(stagedFile), Files.size(stagedFile));
+		} catch (IOException | RuntimeException e) {
+			discard(stagedFile);
+			throw e;
+		}
+	}
+	
+	public StagedUpload stage(InputStream body, String name, long maxBytes) throws IOException {
+		return stage(body, stagingDirectory.resolve(name), maxBytes);
+	}
+	
+	/**
+	 * Streams a request body into {@code target} through a direct buffer, hashing it on the
+	 * way. The body is written to a temporary sibling first and moved into place only once
+	 * it is complete, so a dropped connection never leaves a truncated file behind.
+	 *
+	 * @throws IOException if the body is larger than {@code maxBytes}
+	 */
+	public StagedUpload stage(InputStream body, Path target, long maxBytes) throws IOException {
+		Files.createDirectories(target.getParent());
+		Path partial = target.resolveSibling(target.getFileName() + ".partial");
+		MessageDigest digest = ContentHash.newDigest();
+		long size = 0;
+		try (ReadableByteChannel in = Channels.newChannel(body);
+		     FileChannel out = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			     StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_BYTES);
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+				size += buffer.remaining();
+				if (size > maxBytes) {
+					throw new IOException("Upload part exceeds " + maxBytes + " bytes");
+				}
+				digest.update(buffer.duplicate());
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				buffer.clear();
+			}
+		} catch (IOException | RuntimeException e) {
+			discard(partial);
+			throw e;
+		}
+		Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return new StagedUpload(target, ContentHash.toHex(digest.digest()), size);
+	}
+	
+	/**
+	 * Concatenates the parts, in order, into a single staged file using channel-to-channel
+	 * transfers.
+	 */
+	public StagedUpload assemble(List<Path> parts, String name) throws IOException {
+		Files.createDirectories(stagingDirectory);
+		Path stagedFile = stagingDirectory.resolve(name);
+		try (FileChannel out = FileChannel.open(stagedFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Path part : parts) {
+				try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+					long size = in.size();
+					for (long position = 0; position < size; ) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			discard(stagedFile);
+			throw e;
+		}
+		return new StagedUpload(stagedFile, hash(stagedFile), Files.size(stagedFile));
+	}
+	
+	/**
+	 * Directory holding the parts of a resumable upload.
+	 */
+	public Path partsDirectory(String uploadId) {
+		return partsRoot().resolve(uploadId);
+	}
+	
+	public Path partsRoot() {
+		return stagingDirectory.resolve(PARTS_DIRECTORY);
+	}
+	
+	public void discardDirectory(Path directory) {
+		if (directory == null || !Files.isDirectory(directory)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(this::discard);
+		} catch (IOException e) {
+			log.warn("Could not delete staging directory {}: {}", directory, e.getMessage());
+		}
+	}
+	
+	/**
+	 * File-backed resource for a staged upload that still reports the original filename.
+	 */
+	public Resource asResource(Path stagedFile, String originalFilename) {
+		return new FileSystemResource(stagedFile) {
+			@Override
+			public String getFilename() {
+				return originalFilename;
+			}
+		};
+	}
+	
+	public void discard(Path stagedFile) {
+		if (stagedFile == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(stagedFile);
+		} catch (IOException e) {
+			log.warn("Could not delete staged file {}: {}", stagedFile, e.getMessage());
+		}
+	}
+	
+	static String hash(Path file) throws IOException {
+		MessageDigest digest = ContentHash.newDigest();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += MAP_WINDOW_BYTES) {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(MAP_WINDOW_BYTES, size - position));
+				digest.update(window);
+			}
+		}
+		return ContentHash.toHex(digest.digest());
+	}
+}
\ No newline at end of file
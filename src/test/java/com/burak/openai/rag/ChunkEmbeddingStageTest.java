@@ -0,0 +1,86 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.EmbeddingCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChunkEmbeddingStageTest {
+	
+	private static final String LIVE_MODEL = "text-embedding-ada-002";
+	private static final String TARGET_MODEL = "text-embedding-3-large";
+	
+	@TempDir
+	Path directory;
+	
+	private final EmbeddingModel liveModel = mock(EmbeddingModel.class);
+	private final EmbeddingModel targetModel = mock(EmbeddingModel.class);
+	private final CollectionRouter collectionRouter = mock(CollectionRouter.class);
+	private ChunkEmbeddingStage stage;
+	
+	@AfterEach
+	void shutdown() {
+		stage.shutdown();
+	}
+	
+	@Test
+	void embedsWithTheModelOfEveryWrittenCollection() {
+		stage = open();
+		when(collectionRouter.getWriteCollections()).thenReturn(List.of("documents_v1", "documents_v2"));
+		
+		List<EmbeddedChunk> chunks = stage.embed(List.of(new Document("Overtime is paid monthly.")), null);
+		
+		assertThat(chunks).singleElement().satisfies(chunk -> {
+			assertThat(chunk.embedding(LIVE_MODEL)).containsExactly(1, 0);
+			assertThat(chunk.embedding(TARGET_MODEL)).containsExactly(0, 0, 1);
+		});
+	}
+	
+	@Test
+	void embedsOnlyWithTheModelOfTheGivenCollections() {
+		stage = open();
+		
+		List<EmbeddedChunk> chunks = stage.embed(List.of(new Document("Overtime is paid monthly.")),
+			List.of("documents_v2"), null);
+		
+		assertThat(chunks.get(0).embeddings()).containsOnlyKeys(TARGET_MODEL);
+		verify(liveModel, never()).embed(anyList());
+	}
+	
+	@Test
+	void keepsTheCachedVectorsOfEachModelApart() {
+		stage = open();
+		stage.embed(List.of(new Document("Overtime is paid monthly.")), List.of("documents_v1"), null);
+		
+		List<EmbeddedChunk> chunks = stage.embed(List.of(new Document("Overtime is paid monthly.")),
+			List.of("documents_v2"), null);
+		
+		assertThat(chunks.get(0).embedding(TARGET_MODEL)).containsExactly(0, 0, 1);
+	}
+	
+	private ChunkEmbeddingStage open() {
+		EmbeddingModelRegistry embeddingModelRegistry = mock(EmbeddingModelRegistry.class);
+		when(embeddingModelRegistry.get(LIVE_MODEL)).thenReturn(liveModel);
+		when(embeddingModelRegistry.get(TARGET_MODEL)).thenReturn(targetModel);
+		when(liveModel.embed(anyList())).thenReturn(List.of(new float[]{1, 0}));
+		when(targetModel.embed(anyList())).thenReturn(List.of(new float[]{0, 0, 1}));
+		when(collectionRouter.getModel("documents_v1")).thenReturn(LIVE_MODEL);
+		when(collectionRouter.getModel("documents_v2")).thenReturn(TARGET_MODEL);
+		EmbeddingCacheService embeddingCacheService = new EmbeddingCacheService(new SimpleMeterRegistry(), directory, 100);
+		return new ChunkEmbeddingStage(embeddingModelRegistry, collectionRouter, embeddingCacheService, 20000, 512, 2,
+			0, 0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package com.burak.openai.rag;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunks per second of {@link StructureAwareTextSplitter} versus Spring AI's
+ * {@link TokenTextSplitter} on a generated ~200 KB Markdown-like document. The
+ * {@code chunks} counter in the results is the chunk throughput. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.burak.openai.rag.ChunkingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkingBenchmark {
+	
+	private static final String[] WORDS = { "policy", "employee", "leave", "the", "of", "manager", "request",
+		"approval", "days", "annual", "and", "must", "be", "submitted", "before", "quarter", "benefits", "a" };
+	
+	private Document document;
+	private TextSplitter tokenTextSplitter;
+	private TextSplitter structureAwareSplitter;
+	
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ChunkCounter {
+		
+		public long chunks;
+	}
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 200_000) {
+			text.append("## Section ").append(text.length()).append("\n\n");
+			for (int paragraph = 0; paragraph < 4; paragraph++) {
+				for (int sentence = 0; sentence < 5; sentence++) {
+					int words = 8 + random.nextInt(20);
+					for (int word = 0; word < words; word++) {
+						text.append(word == 0 ? "The" : WORDS[random.nextInt(WORDS.length)]).append(' ');
+					}
+					text.setLength(text.length() - 1);
+					text.append(". ");
+				}
+				text.append("\n\n");
+			}
+		}
+		document = new Document(text.toString());
+		tokenTextSplitter = TokenTextSplitter.builder()
+			.withChunkSize(300)
+			.withMaxNumChunks(5000)
+			.withKeepSeparator(true)
+			.build();
+		structureAwareSplitter = StructureAwareTextSplitter.builder()
+			.chunkSize(300)
+			.overlapTokens(50)
+			.maxNumChunks(5000)
+			.markdownHeadings(true)
+			.build();
+	}
+	
+	@Benchmark
+	public List<Document> tokenTextSplitter(ChunkCounter counter) {
+		List<Document> chunks = tokenTextSplitter.split(document);
+		counter.chunks += chunks.size();
+		return chunks;
+	}
+	
+	@Benchmark
+	public List<Document> structureAwareSplitter(ChunkCounter counter) {
+		List<Document> chunks = structureAwareSplitter.split(document);
+		counter.chunks += chunks.size();
+		return chunks;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(ChunkingBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+}
\ No newline at end of file
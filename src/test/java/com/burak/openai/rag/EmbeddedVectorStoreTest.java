@@ -0,0 +1,175 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmbeddedVectorStoreTest {
+	
+	private static final int DIMENSIONS = 16;
+	
+	@TempDir
+	Path directory;
+	
+	private final Map<String, float[]> embeddings = new HashMap<>();
+	private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+	private final List<EmbeddedVectorStore> stores = new ArrayList<>();
+	private final FilterExpressionBuilder filters = new FilterExpressionBuilder();
+	
+	@AfterEach
+	void closeStores() throws IOException {
+		for (EmbeddedVectorStore store : stores) {
+			store.close();
+		}
+	}
+	
+	@Test
+	void searchesOnlyTheGraphOfTheFilteredUser() {
+		EmbeddedVectorStore store = open(0);
+		store.upsert(List.of(
+				point("a", "alice-notes", Map.of("users", List.of("alice"))),
+				point("b", "bob-notes", Map.of("users", List.of("bob"))),
+				point("s", "shared-notes", Map.of("users", List.of("alice", "bob"))),
+				point("h", "hr-policy", Map.of())),
+			List.of(vector("alice-notes"), vector("bob-notes"), vector("shared-notes"), vector("hr-policy")));
+		
+		assertThat(ids(store, "bob-notes", filters.eq("users", "alice").build())).containsExactlyInAnyOrder("a", "s");
+		assertThat(ids(store, "alice-notes", filters.eq("users", "bob").build())).containsExactlyInAnyOrder("b", "s");
+		assertThat(ids(store, "alice-notes", filters.eq("users", "carol").build())).isEmpty();
+		assertThat(ids(store, "alice-notes", null)).containsExactlyInAnyOrder("a", "b", "s", "h");
+	}
+	
+	@Test
+	void matchesFilterExpressionsAgainstPayloads() {
+		EmbeddedVectorStore store = open(2000);
+		store.upsert(List.of(
+				point("1", "one", Map.of("users", List.of("alice"), "documentIds", List.of("d1"), "page", 1)),
+				point("2", "two", Map.of("users", List.of("alice"), "documentIds", List.of("d1", "d2"), "page", 2)),
+				point("3", "three", Map.of("users", List.of("alice"), "documentIds", List.of("d3"), "page", 3L))),
+			List.of(vector("one"), vector("two"), vector("three")));
+		
+		Filter.Expression notTombstoned = filters.and(filters.eq("users", "alice"),
+			filters.not(filters.in("documentIds", "d2", "d3"))).build();
+		assertThat(ids(store, "one", notTombstoned)).containsExactly("1");
+		assertThat(ids(store, "one", filters.gte("page", 2).build())).containsExactlyInAnyOrder("2", "3");
+		assertThat(ids(store, "one", filters.or(filters.eq("page", 1), filters.eq("documentIds", "d3")).build()))
+			.containsExactlyInAnyOrder("1", "3");
+		
+		store.updatePayload(payload -> "1".equals(String.valueOf(payload.get("page"))), Map.of("users", List.of("bob")));
+		assertThat(ids(store, "one", filters.eq("users", "bob").build())).containsExactly("1");
+		assertThat(ids(store, "one", filters.eq("users", "alice").build())).containsExactlyInAnyOrder("2", "3");
+	}
+	
+	@Test
+	void reloadsPointsAndGraphsFromTheSnapshot() throws IOException {
+		EmbeddedVectorStore store = open(0);
+		List<Document> documents = new ArrayList<>();
+		List<float[]> vectors = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			documents.add(point("p" + i, "text " + i, Map.of("users", List.of(i % 2 == 0 ? "alice" : "bob"), "page", i)));
+			vectors.add(vector("text " + i));
+		}
+		store.upsert(documents, vectors);
+		store.delete(List.of("p0"));
+		List<String> before = ids(store, "text 42", filters.eq("users", "alice").build());
+		store.close();
+		stores.remove(store);
+		
+		EmbeddedVectorStore reloaded = open(0);
+		
+		assertThat(ids(reloaded, "text 42", filters.eq("users", "alice").build())).isEqualTo(before).startsWith("p42");
+		assertThat(ids(reloaded, "text 0", filters.eq("users", "alice").build())).doesNotContain("p0");
+		Document hit = search(reloaded, "text 7", filters.eq("users", "bob").build()).get(0);
+		assertThat(hit.getId()).isEqualTo("p7");
+		assertThat(hit.getText()).isEqualTo("text 7");
+		assertThat(hit.getMetadata()).containsEntry("page", 7).containsEntry("users", List.of("bob"));
+	}
+	
+	@Test
+	void reusesFreedSlotsOnlyAfterTheNextSnapshot() {
+		EmbeddedVectorStore store = open(0);
+		store.upsert(List.of(point("a", "alice-notes", Map.of("users", List.of("alice"))),
+			point("b", "bob-notes", Map.of("users", List.of("bob")))), List.of(vector("alice-notes"), vector("bob-notes")));
+		store.snapshot();
+		
+		store.delete(List.of("a"));
+		store.upsert(List.of(point("c", "carol-notes", Map.of("users", List.of("carol")))), List.of(vector("carol-notes")));
+		assertThat(store.allocatedSlots()).isEqualTo(3);
+		
+		// After a crash the last snapshot still finds the deleted point's vector intact
+		EmbeddedVectorStore recovered = open(0);
+		List<Document> hits = search(recovered, "alice-notes", filters.eq("users", "alice").build());
+		assertThat(hits).extracting(Document::getId).containsExactly("a");
+		assertThat(hits.get(0).getScore()).isGreaterThan(0.999);
+		
+		store.snapshot();
+		store.upsert(List.of(point("d", "dave-notes", Map.of("users", List.of("dave")))), List.of(vector("dave-notes")));
+		assertThat(store.allocatedSlots()).isEqualTo(3);
+		assertThat(ids(store, "dave-notes", filters.eq("users", "dave").build())).containsExactly("d");
+		assertThat(ids(store, "carol-notes", filters.eq("users", "carol").build())).containsExactly("c");
+	}
+	
+	private EmbeddedVectorStore open(int exactSearchThreshold) {
+		when(embeddingModel.embed(anyString())).thenAnswer(invocation -> vector(invocation.getArgument(0)));
+		EmbeddedVectorStore store = EmbeddedVectorStore.builder()
+			.embeddingModel(embeddingModel)
+			.directory(directory)
+			.dimensions(DIMENSIONS)
+			.quantize(true)
+			.m(8)
+			.efConstruction(50)
+			.exactSearchThreshold(exactSearchThreshold)
+			.build();
+		stores.add(store);
+		return store;
+	}
+	
+	private static List<String> ids(EmbeddedVectorStore store, String query, Filter.Expression filter) {
+		return search(store, query, filter).stream().map(Document::getId).toList();
+	}
+	
+	private static List<Document> search(EmbeddedVectorStore store, String query, Filter.Expression filter) {
+		SearchRequest.Builder request = SearchRequest.builder().query(query).topK(5).similarityThresholdAll();
+		if (filter != null) {
+			request.filterExpression(filter);
+		}
+		return store.similaritySearch(request.build());
+	}
+	
+	private static Document point(String id, String text, Map<String, Object> metadata) {
+		return Document.builder().id(id).text(text).metadata(metadata).build();
+	}
+	
+	/**
+	 * Random vector per text with positive components, so every pair of texts has a
+	 * positive similarity and each text is closest to itself.
+	 */
+	private float[] vector(String text) {
+		return embeddings.computeIfAbsent(text, key -> {
+			Random random = new Random(key.hashCode());
+			float[] vector = new float[DIMENSIONS];
+			for (int i = 0; i < DIMENSIONS; i++) {
+				vector[i] = (float) Math.abs(random.nextGaussian());
+			}
+			return vector;
+		});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.burak.openai.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 search latency of {@link HnswIndex} with float and with int8 traversal versus a
+ * brute force scan, on 20,000 clustered random 256-dimensional vectors. Sample time mode
+ * reports the latency percentiles (p0.99 is the p99). Recall@10 of both graphs against
+ * the brute force results is printed during setup. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.burak.openai.rag.HnswIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HnswIndexBenchmark {
+	
+	private static final int VECTORS = 20_000;
+	private static final int DIMENSIONS = 256;
+	private static final int CLUSTERS = 50;
+	private static final int QUERIES = 200;
+	private static final int K = 10;
+	private static final int EF_SEARCH = 64;
+	
+	private Path directory;
+	private MappedVectorFile floatVectors;
+	private MappedVectorFile quantizedVectors;
+	private HnswIndex floatIndex;
+	private HnswIndex quantizedIndex;
+	private List<MappedVectorFile.Query> floatQueries;
+	private List<MappedVectorFile.Query> quantizedQueries;
+	private int next;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("hnsw-benchmark");
+		floatVectors = new MappedVectorFile(directory.resolve("float"), DIMENSIONS, false);
+		quantizedVectors = new MappedVectorFile(directory.resolve("int8"), DIMENSIONS, true);
+		floatIndex = new HnswIndex(floatVectors, 16, 200, 42);
+		quantizedIndex = new HnswIndex(quantizedVectors, 16, 200, 42);
+		
+		Random random = new Random(42);
+		float[][] centroids = new float[CLUSTERS][];
+		for (int i = 0; i < CLUSTERS; i++) {
+			centroids[i] = gaussian(random, 1.0f, null);
+		}
+		for (int slot = 0; slot < VECTORS; slot++) {
+			float[] vector = gaussian(random, 2.0f, centroids[random.nextInt(CLUSTERS)]);
+			floatVectors.put(slot, vector);
+			quantizedVectors.put(slot, vector);
+			floatIndex.insert(slot);
+			quantizedIndex.insert(slot);
+		}
+		floatQueries = new ArrayList<>();
+		quantizedQueries = new ArrayList<>();
+		for (int i = 0; i < QUERIES; i++) {
+			float[] query = gaussian(random, 2.0f, centroids[random.nextInt(CLUSTERS)]);
+			floatQueries.add(floatVectors.query(query));
+			quantizedQueries.add(quantizedVectors.query(query));
+		}
+		
+		double floatRecall = 0;
+		double quantizedRecall = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			Set<Integer> exact = slots(bruteForce(floatQueries.get(i)));
+			floatRecall += overlap(exact, floatIndex.search(floatQueries.get(i), K, EF_SEARCH, null));
+			quantizedRecall += overlap(exact, quantizedIndex.search(quantizedQueries.get(i), K, EF_SEARCH, null));
+		}
+		System.out.printf("%nRecall@%d over %d queries: hnsw float %.3f, hnsw int8 %.3f%n", K, QUERIES,
+			floatRecall / QUERIES, quantizedRecall / QUERIES);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		floatVectors.close();
+		quantizedVectors.close();
+		FileSystemUtils.deleteRecursively(directory);
+	}
+	
+	@Benchmark
+	public List<HnswIndex.Hit> hnswFloat() {
+		return floatIndex.search(floatQueries.get(nextQuery()), K, EF_SEARCH, null);
+	}
+	
+	@Benchmark
+	public List<HnswIndex.Hit> hnswInt8() {
+		return quantizedIndex.search(quantizedQueries.get(nextQuery()), K, EF_SEARCH, null);
+	}
+	
+	@Benchmark
+	public List<HnswIndex.Hit> bruteForce() {
+		return bruteForce(floatQueries.get(nextQuery()));
+	}
+	
+	private int nextQuery() {
+		next = (next + 1) % QUERIES;
+		return next;
+	}
+	
+	private List<HnswIndex.Hit> bruteForce(MappedVectorFile.Query query) {
+		List<HnswIndex.Hit> hits = new ArrayList<>(VECTORS);
+		for (int slot = 0; slot < VECTORS; slot++) {
+			hits.add(new HnswIndex.Hit(slot, floatVectors.score(slot, query)));
+		}
+		hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+		return hits.subList(0, K);
+	}
+	
+	private static Set<Integer> slots(List<HnswIndex.Hit> hits) {
+		Set<Integer> slots = new HashSet<>();
+		hits.forEach(hit -> slots.add(hit.slot()));
+		return slots;
+	}
+	
+	private static double overlap(Set<Integer> exact, List<HnswIndex.Hit> hits) {
+		return hits.stream().filter(hit -> exact.contains(hit.slot())).count() / (double) K;
+	}
+	
+	private static float[] gaussian(Random random, float sigma, float[] center) {
+		float[] vector = new float[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			vector[i] = (float) random.nextGaussian() * sigma + (center != null ? center[i] : 0);
+		}
+		return vector;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(HnswIndexBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+	
+	private static final int VECTORS = 3000;
+	private static final int DIMENSIONS = 64;
+	private static final int CLUSTERS = 20;
+	private static final int QUERIES = 100;
+	private static final int K = 10;
+	private static final int EF_SEARCH = 64;
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void recallAgainstBruteForceWithFloatTraversal() throws IOException {
+		assertThat(recall(false)).isGreaterThanOrEqualTo(0.95);
+	}
+	
+	@Test
+	void recallAgainstBruteForceWithInt8Traversal() throws IOException {
+		assertThat(recall(true)).isGreaterThanOrEqualTo(0.9);
+	}
+	
+	@Test
+	void skipsDeletedAndRejectedSlots() throws IOException {
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, DIMENSIONS, false)) {
+			HnswIndex index = new HnswIndex(vectors, 8, 50, 42);
+			Random random = new Random(7);
+			for (int slot = 0; slot < 200; slot++) {
+				vectors.put(slot, gaussian(random, 1.0f, null));
+				index.insert(slot);
+			}
+			MappedVectorFile.Query query = vectors.query(vectors.get(10));
+			assertThat(index.search(query, 1, EF_SEARCH, null).get(0).slot()).isEqualTo(10);
+			
+			index.markDeleted(10);
+			
+			List<HnswIndex.Hit> hits = index.search(query, K, EF_SEARCH, slot -> slot % 2 == 0);
+			assertThat(hits).hasSize(K);
+			assertThat(hits).allSatisfy(hit -> assertThat(hit.slot()).isNotEqualTo(10).isEven());
+			assertThat(index.liveCount()).isEqualTo(199);
+			assertThat(index.deletedSlots()).containsExactly(10);
+		}
+	}
+	
+	@Test
+	void readsBackWhatItWrote() throws IOException {
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, DIMENSIONS, false)) {
+			HnswIndex index = new HnswIndex(vectors, 8, 50, 42);
+			Random random = new Random(11);
+			for (int slot = 0; slot < 500; slot++) {
+				vectors.put(slot, gaussian(random, 1.0f, null));
+				index.insert(slot);
+			}
+			index.markDeleted(3);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			index.write(new DataOutputStream(bytes));
+			
+			HnswIndex read = HnswIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+				vectors, 8, 50, 42);
+			
+			assertThat(read.size()).isEqualTo(500);
+			assertThat(read.deletedSlots()).containsExactly(3);
+			for (int i = 0; i < 20; i++) {
+				MappedVectorFile.Query query = vectors.query(gaussian(random, 1.0f, null));
+				assertThat(read.search(query, K, EF_SEARCH, null)).isEqualTo(index.search(query, K, EF_SEARCH, null));
+			}
+		}
+	}
+	
+	private double recall(boolean quantized) throws IOException {
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, DIMENSIONS, quantized)) {
+			HnswIndex index = new HnswIndex(vectors, 16, 100, 42);
+			Random random = new Random(42);
+			float[][] centroids = new float[CLUSTERS][];
+			for (int i = 0; i < CLUSTERS; i++) {
+				centroids[i] = gaussian(random, 1.0f, null);
+			}
+			for (int slot = 0; slot < VECTORS; slot++) {
+				vectors.put(slot, gaussian(random, 1.0f, centroids[random.nextInt(CLUSTERS)]));
+				index.insert(slot);
+			}
+			
+			double recall = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				MappedVectorFile.Query query = vectors.query(gaussian(random, 1.0f, centroids[random.nextInt(CLUSTERS)]));
+				Set<Integer> exact = bruteForce(vectors, query);
+				recall += index.search(query, K, EF_SEARCH, null).stream()
+					.filter(hit -> exact.contains(hit.slot()))
+					.count() / (double) K;
+			}
+			return recall / QUERIES;
+		}
+	}
+	
+	private static Set<Integer> bruteForce(MappedVectorFile vectors, MappedVectorFile.Query query) {
+		List<HnswIndex.Hit> hits = new ArrayList<>(VECTORS);
+		for (int slot = 0; slot < VECTORS; slot++) {
+			hits.add(new HnswIndex.Hit(slot, vectors.score(slot, query)));
+		}
+		hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+		return hits.subList(0, K).stream().map(HnswIndex.Hit::slot).collect(Collectors.toSet());
+	}
+	
+	private static float[] gaussian(Random random, float sigma, float[] center) {
+		float[] vector = new float[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			vector[i] = (float) random.nextGaussian() * sigma + (center != null ? center[i] : 0);
+		}
+		return vector;
+	}
+}
\ No newline at end of file
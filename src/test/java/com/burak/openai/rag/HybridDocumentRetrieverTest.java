@@ -0,0 +1,55 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HybridDocumentRetrieverTest {
+	
+	private final Filter.Expression sharedCorpusFilter = new SeedCorpusLoader(null, null, null, null, null, null, null,
+		true, new ByteArrayResource("""
+			# Shared corpus
+			seed/hr-policy.pdf
+			seed/sentences.txt=lines
+			""".getBytes(StandardCharsets.UTF_8))).sharedCorpusFilter();
+	
+	@Test
+	void limitsTheVectorSearchToTheSharedCorpus() {
+		VectorStore vectorStore = mock(VectorStore.class);
+		when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of());
+		
+		HybridDocumentRetriever.builder()
+			.vectorStore(vectorStore)
+			.filterExpression(sharedCorpusFilter)
+			.build()
+			.retrieve(new Query("How many days of annual leave?"));
+		
+		ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+		verify(vectorStore).similaritySearch(request.capture());
+		assertThat(request.getValue().getFilterExpression()).isEqualTo(sharedCorpusFilter);
+	}
+	
+	@Test
+	void sharedCorpusFilterLeavesUserChunksOut() {
+		Predicate<Map<String, Object>> matcher = EmbeddedVectorStore.matcher(sharedCorpusFilter);
+		
+		assertThat(matcher.test(Map.of(SeedCorpusLoader.RESOURCE_FIELD, "seed/hr-policy.pdf"))).isTrue();
+		assertThat(matcher.test(Map.of(SeedCorpusLoader.RESOURCE_FIELD, "seed/sentences.txt"))).isTrue();
+		assertThat(matcher.test(Map.of("documentId", "d1", "users", List.of("alice")))).isFalse();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.burak.openai.rag;
+
+import com.burak.openai.service.ChunkTextStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LexicalIndexTest {
+	
+	private static final String COLLECTION = "documents";
+	
+	private final LexicalIndex index = open(0.3);
+	
+	@AfterEach
+	void shutdown() {
+		index.shutdown();
+	}
+	
+	@Test
+	void foldsAccentsAndCase() {
+		assertThat(LexicalIndex.tokenize("Résumé ÇALIŞMA Ölçütleri naïve"))
+			.containsExactly("resume", "calisma", "olcutleri", "naive");
+	}
+	
+	@Test
+	void foldsDottedAndDotlessI() {
+		assertThat(LexicalIndex.tokenize("İzin IŞIK ışık")).containsExactly("izin", "isik", "isik");
+	}
+	
+	@Test
+	void keepsNumbersWithInnerSeparatorsAsOneTerm() {
+		assertThat(LexicalIndex.tokenize("See article 4.2, section 12-3 and ISO 27001:2013."))
+			.containsExactly("see", "article", "4.2", "section", "12-3", "and", "iso", "27001:2013");
+	}
+	
+	@Test
+	void leavesStopWordsOut() {
+		assertThat(LexicalIndex.terms("What is the leave policy ve izin nedir")).containsExactly("leave", "policy", "izin");
+	}
+	
+	@Test
+	void ranksByBm25() {
+		index.add(COLLECTION, List.of(
+			chunk("often", "Overtime rules. Overtime is paid. Overtime needs approval.", "alice"),
+			chunk("once", "Overtime is paid monthly with the salary.", "alice"),
+			chunk("long", "Overtime is mentioned once in this much longer chunk about travel, expenses, "
+				+ "meals, hotels, flights, trains, taxis, receipts and reimbursement deadlines.", "alice"),
+			chunk("other", "Remote work needs approval from the manager.", "alice")), true);
+		
+		assertThat(ids(index.search("alice", "overtime", 10, null))).containsExactly("often", "once", "long");
+	}
+	
+	@Test
+	void dropsHitsThatShareOnlyACommonTerm() {
+		index.add(COLLECTION, List.of(
+			chunk("gdpr", "GDPR policy for personal data.", "alice"),
+			chunk("travel", "Travel policy for business trips.", "alice"),
+			chunk("leave", "Leave policy for parents.", "alice"),
+			chunk("remote", "Remote work policy.", "alice")), true);
+		
+		assertThat(ids(index.search("alice", "What does the GDPR policy say?", 10, null))).containsExactly("gdpr");
+		assertThat(ids(index.search("alice", "the", 10, null))).isEmpty();
+		assertThat(ids(index.search("alice", "policy", 10, null))).hasSize(4);
+	}
+	
+	@Test
+	void searchesOnlyTheUsersOwnIndex() {
+		index.add(COLLECTION, List.of(
+			chunk("a", "Quarterly budget for alice.", "alice"),
+			chunk("b", "Quarterly budget for bob.", "bob"),
+			chunk("s", "Quarterly budget shared by both.", "alice", "bob"),
+			chunk("h", "Quarterly budget policy of the company.")), true);
+		
+		assertThat(ids(index.search("alice", "quarterly budget", 10, null))).containsExactlyInAnyOrder("a", "s");
+		assertThat(ids(index.search("bob", "quarterly budget", 10, null))).containsExactlyInAnyOrder("b", "s");
+		assertThat(ids(index.search("carol", "quarterly budget", 10, null))).isEmpty();
+		assertThat(ids(index.searchShared("quarterly budget", 10))).containsExactly("h");
+	}
+	
+	@Test
+	void movesChunksBetweenUsersWhenTheAccessListChanges() {
+		index.add(COLLECTION, List.of(
+			chunk("1", "Kubernetes deployment notes.", "alice"),
+			chunk("2", "Kubernetes cluster sizing.", "alice")), true);
+		
+		index.updatePayload(COLLECTION, payload -> "1".equals(payload.get("id")), Map.of("users", List.of("alice", "bob")));
+		assertThat(ids(index.search("bob", "kubernetes", 10, null))).containsExactly("1");
+		
+		index.updatePayload(COLLECTION, payload -> "1".equals(payload.get("id")), Map.of("users", List.of("bob")));
+		assertThat(ids(index.search("alice", "kubernetes", 10, null))).containsExactly("2");
+		assertThat(ids(index.search("bob", "kubernetes", 10, null))).containsExactly("1");
+	}
+	
+	@Test
+	void removesAndRestoresByPointId() {
+		index.add(COLLECTION, List.of(
+			chunk("1", "Invoice 2024-17 for hosting.", "alice"),
+			chunk("2", "Invoice 2024-18 for support.", "alice")), true);
+		
+		index.remove(COLLECTION, List.of("1"));
+		assertThat(ids(index.search("alice", "invoice", 10, null))).containsExactly("2");
+		
+		index.restore(COLLECTION, List.of(chunk("2", "Stale copy read back from the store.", "alice"),
+			chunk("1", "Invoice 2024-17 for hosting.", "alice")), true);
+		assertThat(ids(index.search("alice", "2024-18", 10, null))).containsExactly("2");
+		assertThat(ids(index.search("alice", "invoice", 10, null))).containsExactlyInAnyOrder("1", "2");
+		assertThat(index.size()).isEqualTo(2);
+	}
+	
+	@Test
+	void appliesThePayloadFilter() {
+		index.add(COLLECTION, List.of(
+			chunk("1", "Onboarding checklist.", "alice"),
+			chunk("2", "Onboarding schedule.", "alice")), true);
+		
+		assertThat(ids(index.search("alice", "onboarding", 10, payload -> !"1".equals(payload.get("id")))))
+			.containsExactly("2");
+	}
+	
+	private static LexicalIndex open(double minScoreRatio) {
+		CollectionRouter collectionRouter = mock(CollectionRouter.class);
+		when(collectionRouter.getLiveCollection()).thenReturn(COLLECTION);
+		when(collectionRouter.getWriteCollections()).thenReturn(List.of(COLLECTION));
+		ChunkTextStore chunkTextStore = mock(ChunkTextStore.class);
+		when(chunkTextStore.hydrate(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+		return new LexicalIndex(collectionRouter, chunkTextStore, new SimpleMeterRegistry(), true, 1, minScoreRatio);
+	}
+	
+	private static Document chunk(String id, String text, String... users) {
+		Map<String, Object> metadata = users.length > 0
+			? Map.of("id", id, "users", List.of(users))
+			: Map.of("id", id);
+		return Document.builder().id(id).text(text).metadata(metadata).build();
+	}
+	
+	private static List<String> ids(List<Document> documents) {
+		return documents.stream().map(Document::getId).toList();
+	}
+}
\ No newline at end of file
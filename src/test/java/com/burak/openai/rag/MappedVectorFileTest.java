@@ -0,0 +1,72 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MappedVectorFileTest {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void storesNormalizedVectorsAndScoresByCosine() throws IOException {
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, 4, false)) {
+			vectors.put(0, new float[]{3, 4, 0, 0});
+			vectors.put(1, new float[]{0, 2, 0, 0});
+			
+			assertThat(vectors.get(0)).containsExactly(new float[]{0.6f, 0.8f, 0, 0}, within(1e-6f));
+			assertThat(vectors.score(0, vectors.query(new float[]{5, 0, 0, 0}))).isCloseTo(0.6f, within(1e-6f));
+			assertThat(vectors.similarity(0, 1)).isCloseTo(0.8f, within(1e-6f));
+			assertThatThrownBy(() -> vectors.put(2, new float[]{1, 2, 3}))
+				.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+	
+	@Test
+	void approximatesScoresWithInt8Codes() throws IOException {
+		Random random = new Random(42);
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, 256, true)) {
+			for (int slot = 0; slot < 100; slot++) {
+				vectors.put(slot, gaussian(random, 256));
+			}
+			for (int i = 0; i < 20; i++) {
+				MappedVectorFile.Query query = vectors.query(gaussian(random, 256));
+				for (int slot = 0; slot < 100; slot++) {
+					assertThat(vectors.approximateScore(slot, query)).isCloseTo(vectors.score(slot, query), within(0.02f));
+				}
+			}
+		}
+	}
+	
+	@Test
+	void growsPastASegmentAndReopensWhatWasWritten() throws IOException {
+		float[] first = {1, 2, 3, 4};
+		float[] far = {4, 3, 2, 1};
+		try (MappedVectorFile vectors = new MappedVectorFile(directory, 4, true)) {
+			vectors.put(0, first);
+			vectors.put(20_000, far);
+		}
+		
+		try (MappedVectorFile reopened = new MappedVectorFile(directory, 4, true)) {
+			assertThat(reopened.score(0, reopened.query(first))).isCloseTo(1.0f, within(1e-6f));
+			assertThat(reopened.score(20_000, reopened.query(far))).isCloseTo(1.0f, within(1e-6f));
+			assertThat(reopened.approximateScore(20_000, reopened.query(far))).isCloseTo(1.0f, within(0.02f));
+		}
+	}
+	
+	private static float[] gaussian(Random random, int dimensions) {
+		float[] vector = new float[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
\ No newline at end of file
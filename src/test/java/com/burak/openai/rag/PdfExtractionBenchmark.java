@@ -0,0 +1,79 @@
+package com.burak.openai.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded Tika extraction versus {@link ParallelPdfExtractor} on the bundled HR
+ * policy PDF. Run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.burak.openai.rag.PdfExtractionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExtractionBenchmark {
+	
+	private Path pdfFile;
+	private ParallelPdfExtractor parallelExtractor;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		pdfFile = Files.createTempFile("hr-policies", ".pdf");
+		try (InputStream in = new ClassPathResource("Eazybytes_HR_Policies.pdf").getInputStream()) {
+			Files.copy(in, pdfFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		parallelExtractor = new ParallelPdfExtractor(Runtime.getRuntime().availableProcessors(), 1);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		parallelExtractor.shutdown();
+		Files.deleteIfExists(pdfFile);
+	}
+	
+	@Benchmark
+	public List<Document> tikaSingleThreaded() {
+		return new TikaDocumentReader(new FileSystemResource(pdfFile)).get();
+	}
+	
+	@Benchmark
+	public List<Document> parallelPageRanges() {
+		return parallelExtractor.extract(pdfFile, "Eazybytes_HR_Policies.pdf");
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(PdfExtractionBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.burak.openai.rag;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructureAwareTextSplitterTest {
+	
+	private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+	
+	@Test
+	void packsWholeSentencesUpToChunkSize() {
+		String text = sentences(1, 40);
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(40).overlapTokens(0).build(), text);
+		
+		assertThat(chunks).hasSizeGreaterThan(1);
+		assertThat(chunks).allSatisfy(chunk -> {
+			assertThat(tokens(chunk)).isLessThanOrEqualTo(40);
+			assertThat(chunk).startsWith("Sentence number").endsWith(".");
+		});
+		// Without overlap every sentence ends up in exactly one chunk
+		assertThat(String.join(" ", chunks)).isEqualTo(text);
+	}
+	
+	@Test
+	void carriesTrailingSentencesIntoTheNextChunk() {
+		String text = sentences(1, 40);
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(40).overlapTokens(15).build(), text);
+		
+		assertThat(chunks).hasSizeGreaterThan(1);
+		for (int i = 1; i < chunks.size(); i++) {
+			String previous = chunks.get(i - 1);
+			String lastSentence = previous.substring(previous.lastIndexOf("Sentence number"));
+			assertThat(chunks.get(i)).startsWith(lastSentence);
+			assertThat(tokens(chunks.get(i))).isLessThanOrEqualTo(40);
+		}
+	}
+	
+	@Test
+	void startsAFreshChunkAtEveryMarkdownHeading() {
+		String text = "# Introduction\n" + sentences(1, 3) + "\n# Methods\n" + sentences(4, 6) + "\n## Results\n"
+			+ sentences(7, 9);
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder()
+			.chunkSize(300)
+			.overlapTokens(50)
+			.markdownHeadings(true)
+			.build(), text);
+		
+		assertThat(chunks).containsExactly(
+			"# Introduction\n" + sentences(1, 3),
+			"# Methods\n" + sentences(4, 6),
+			"## Results\n" + sentences(7, 9));
+	}
+	
+	@Test
+	void ignoresHeadingsUnlessEnabled() {
+		String text = "# Introduction\n" + sentences(1, 3) + "\n# Methods\n" + sentences(4, 6);
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(300).build(), text);
+		
+		assertThat(chunks).containsExactly(text);
+	}
+	
+	@Test
+	void splitsParagraphsWithoutLosingText() {
+		String text = sentences(1, 3) + "\n\n" + sentences(4, 6) + "\n\n" + sentences(7, 9);
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(30).overlapTokens(0).build(), text);
+		
+		assertThat(chunks).allSatisfy(chunk -> assertThat(tokens(chunk)).isLessThanOrEqualTo(30));
+		assertThat(String.join(" ", chunks).replaceAll("\\s+", " ")).isEqualTo(text.replaceAll("\\s+", " "));
+	}
+	
+	@Test
+	void neverEndsAChunkInsideAListItem() {
+		String items = IntStream.rangeClosed(1, 20)
+			.mapToObj(i -> "- list item " + i + " without a full stop")
+			.collect(Collectors.joining("\n"));
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(25).overlapTokens(0).build(),
+			"Steps:\n" + items);
+		
+		assertThat(chunks).hasSizeGreaterThan(1);
+		assertThat(chunks).allSatisfy(chunk -> chunk.lines()
+			.filter(line -> !line.equals("Steps:"))
+			.forEach(line -> assertThat(line).matches("- list item \\d+ without a full stop")));
+		assertThat(chunks.stream().flatMap(String::lines).filter(line -> line.startsWith("-")).count()).isEqualTo(20);
+	}
+	
+	@Test
+	void neverEndsAChunkInsideATableRow() {
+		String rows = IntStream.rangeClosed(1, 20)
+			.mapToObj(i -> "| row " + i + " | " + (2000 + i) + " | value |")
+			.collect(Collectors.joining("\n"));
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(30).overlapTokens(0).build(),
+			"| name | year | value |\n|---|---|---|\n" + rows);
+		
+		assertThat(chunks).hasSizeGreaterThan(1);
+		assertThat(chunks).allSatisfy(chunk -> chunk.lines()
+			.forEach(line -> assertThat(line).startsWith("|").endsWith("|")));
+		assertThat(chunks.stream().flatMap(String::lines).filter(line -> line.startsWith("| row")).count())
+			.isEqualTo(20);
+	}
+	
+	@Test
+	void cutsASentenceLongerThanAChunkIntoOverlappingWindows() {
+		String longSentence = IntStream.range(0, 200).mapToObj(i -> "Word" + i).collect(Collectors.joining(" ")) + ".";
+		String text = "Short opening sentence. " + longSentence + " Short closing sentence.";
+		
+		List<String> chunks = split(StructureAwareTextSplitter.builder().chunkSize(50).overlapTokens(10).build(), text);
+		
+		assertThat(chunks.get(0)).isEqualTo("Short opening sentence.");
+		assertThat(chunks.get(chunks.size() - 1)).isEqualTo("Short closing sentence.");
+		List<String> windows = chunks.subList(1, chunks.size() - 1);
+		assertThat(windows).hasSizeGreaterThan(1);
+		assertThat(windows).allSatisfy(window -> assertThat(tokens(window)).isLessThanOrEqualTo(50));
+		assertThat(windows.get(0)).startsWith("Word0 ");
+		assertThat(windows.get(windows.size() - 1)).endsWith("Word199.");
+		for (int i = 1; i < windows.size(); i++) {
+			String previous = windows.get(i - 1);
+			// Consecutive windows overlap, so the next one starts inside the previous one
+			assertThat(previous).contains(windows.get(i).substring(0, 8).strip());
+		}
+	}
+	
+	@Test
+	void stopsAtMaxNumChunks() {
+		List<String> chunks = split(StructureAwareTextSplitter.builder()
+			.chunkSize(20)
+			.overlapTokens(0)
+			.maxNumChunks(3)
+			.build(), sentences(1, 40));
+		
+		assertThat(chunks).hasSize(3);
+	}
+	
+	@Test
+	void streamingThroughParagraphStreamWriterMatchesSplittingInOneGo() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int section = 0; section < 12; section++) {
+			text.append("# Section ").append(section).append("\n")
+				.append(sentences(section * 10, section * 10 + 7)).append("\n\n")
+				.append("- first item of section ").append(section).append("\n")
+				.append("- second item of section ").append(section).append("\n\n")
+				.append("| year | value |\n| ").append(2000 + section).append(" | ").append(section).append(" |\n\n");
+		}
+		StructureAwareTextSplitter splitter = StructureAwareTextSplitter.builder()
+			.chunkSize(60)
+			.overlapTokens(20)
+			.markdownHeadings(true)
+			.build();
+		
+		List<String> streamed = new ArrayList<>();
+		StructureAwareTextSplitter.ChunkStream stream = splitter.stream(streamed::add);
+		List<Integer> pieceLengths = new ArrayList<>();
+		try (ParagraphStreamWriter writer = new ParagraphStreamWriter(300, piece -> {
+			pieceLengths.add(piece.length());
+			stream.add(piece);
+		})) {
+			// Parsers write in small runs
+			for (int i = 0; i < text.length(); i += 7) {
+				writer.write(text.substring(i, Math.min(i + 7, text.length())));
+			}
+		}
+		stream.finish();
+		
+		assertThat(pieceLengths).hasSizeGreaterThan(5);
+		assertThat(streamed).isEqualTo(split(splitter, text.toString()));
+	}
+	
+	private static List<String> split(StructureAwareTextSplitter splitter, String text) {
+		return splitter.apply(List.of(new Document(text))).stream().map(Document::getText).toList();
+	}
+	
+	private static String sentences(int from, int to) {
+		return IntStream.rangeClosed(from, to)
+			.mapToObj(i -> "Sentence number " + i + " has a few words in it.")
+			.collect(Collectors.joining(" "));
+	}
+	
+	private static int tokens(String text) {
+		return ENCODING.countTokens(text);
+	}
+}
\ No newline at end of file
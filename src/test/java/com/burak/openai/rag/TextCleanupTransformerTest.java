@@ -0,0 +1,103 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextCleanupTransformerTest {
+	
+	private final TextCleanupTransformer transformer = TextCleanupTransformer.builder().build();
+	
+	private static final List<String> BODIES = List.of("Welcome to the course.", "Grading is weekly.",
+		"Exams are in June.", "Projects are optional.");
+	
+	@Test
+	void dropsRunningHeadersAndFooters() {
+		List<Document> pages = IntStream.range(0, 4)
+			.mapToObj(i -> new Document("Course Handbook 2024\n" + BODIES.get(i) + "\nPage " + (i + 1) + " of 4"))
+			.toList();
+		
+		TextCleanupTransformer.CleanupResult result = transformer.clean(pages);
+		
+		assertThat(texts(result.documents())).containsExactlyElementsOf(BODIES);
+		assertThat(result.linesRemoved()).isEqualTo(8);
+		assertThat(result.tokensSaved()).isPositive();
+	}
+	
+	@Test
+	void dropsPageNumbersOnlyAtTheEdgesOfAPage() {
+		List<Document> pages = IntStream.range(0, 4)
+			.mapToObj(i -> new Document((i + 1) + "\n" + BODIES.get(i) + "\n2023\n42\n" + BODIES.get(i) + "\n- " + (i + 1) + " -"))
+			.toList();
+		
+		List<String> texts = texts(transformer.clean(pages).documents());
+		
+		assertThat(texts).hasSize(4);
+		for (int i = 0; i < 4; i++) {
+			assertThat(texts.get(i)).isEqualTo(BODIES.get(i) + "\n2023\n42\n" + BODIES.get(i));
+		}
+	}
+	
+	@Test
+	void keepsNumbersThatRepeatInsidePages() {
+		List<Document> pages = IntStream.range(0, 4)
+			.mapToObj(i -> new Document(BODIES.get(i) + "\n100\n100\n" + BODIES.get(i)))
+			.toList();
+		
+		assertThat(texts(transformer.clean(pages).documents()))
+			.allSatisfy(text -> assertThat(text).contains("\n100\n100\n"));
+	}
+	
+	@Test
+	void splitsFormFeedSeparatedPages() {
+		String text = "Lecture Notes\nFirst page text.\n1\fLecture Notes\nSecond page text.\n2\f"
+			+ "Lecture Notes\nThird page text.\n3";
+		
+		List<String> texts = texts(transformer.clean(List.of(new Document(text))).documents());
+		
+		assertThat(texts).containsExactly("First page text.\n\nSecond page text.\n\nThird page text.");
+	}
+	
+	@Test
+	void leavesShortDocumentsAlone() {
+		List<Document> pages = List.of(new Document("Header\nFirst page.\n1"), new Document("Header\nSecond page.\n2"));
+		
+		assertThat(texts(transformer.clean(pages).documents()))
+			.containsExactly("Header\nFirst page.\n1", "Header\nSecond page.\n2");
+	}
+	
+	@Test
+	void joinsWordsHyphenatedAcrossLines() {
+		assertThat(transformer.normalizeText("The infor-\nmation is stored.")).isEqualTo("The information is stored.");
+	}
+	
+	@Test
+	void keepsTheHyphenOfCompoundWords() {
+		String text = "This is a well-\nknown result. It is well known, and so is the self-\nevident one.";
+		
+		assertThat(transformer.normalizeText(text))
+			.isEqualTo("This is a well-known result. It is well known, and so is the selfevident one.");
+	}
+	
+	@Test
+	void joinsWithoutTheHyphenWhenTheJoinedWordOccurs() {
+		String text = "A data-\nbase and a database, but not the data or the base.";
+		
+		assertThat(transformer.normalizeText(text))
+			.isEqualTo("A database and a database, but not the data or the base.");
+	}
+	
+	@Test
+	void collapsesWhitespace() {
+		assertThat(transformer.normalizeText("  Two \t spaces here. \n\n\n\nNext  paragraph.  "))
+			.isEqualTo("Two spaces here.\n\nNext paragraph.");
+	}
+	
+	private static List<String> texts(List<Document> documents) {
+		return documents.stream().map(Document::getText).toList();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisorChain;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.rag.Query;
+import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class UserDocumentRetrieverConcurrencyTest {
+	
+	private static final int USERS = 50;
+	private static final int REQUESTS_PER_USER = 40;
+	
+	@Test
+	void parallelRequestsOnlySeeTheirOwnUsersDocuments() throws Exception {
+		UserFilteringVectorStore vectorStore = new UserFilteringVectorStore();
+		
+		// Callers on virtual threads, retrieval on the advisor's executor: no thread carries the user
+		List<Future<?>> requests = new ArrayList<>();
+		try (ExecutorService retrieval = Executors.newFixedThreadPool(4);
+		     ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+			RetrievalAugmentationAdvisor advisor = RetrievalAugmentationAdvisor.builder()
+				.documentRetriever(UserDocumentRetriever.builder().vectorStore(vectorStore).build())
+				.taskExecutor(retrieval::execute)
+				.build();
+			for (int request = 0; request < REQUESTS_PER_USER; request++) {
+				for (int user = 0; user < USERS; user++) {
+					String username = "user-" + user;
+					requests.add(callers.submit(() -> assertOnlyOwnDocuments(advisor, username)));
+				}
+			}
+			for (Future<?> request : requests) {
+				request.get();
+			}
+		}
+		
+		assertThat(vectorStore.searches.get()).isEqualTo(USERS * REQUESTS_PER_USER);
+	}
+	
+	@Test
+	void requestWithoutUsernameIsRejectedBeforeSearching() {
+		UserFilteringVectorStore vectorStore = new UserFilteringVectorStore();
+		UserDocumentRetriever retriever = UserDocumentRetriever.builder().vectorStore(vectorStore).build();
+		
+		assertThatThrownBy(() -> retriever.retrieve(new Query("what is in my notes?")))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThat(vectorStore.searches.get()).isZero();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void assertOnlyOwnDocuments(RetrievalAugmentationAdvisor advisor, String username) {
+		ChatClientRequest request = ChatClientRequest.builder()
+			.prompt(new Prompt(new UserMessage("what is in my notes?")))
+			.context(UserDocumentRetriever.USERNAME, username)
+			.build();
+		
+		ChatClientRequest augmented = advisor.before(request, mock(AdvisorChain.class));
+		
+		List<Document> documents = (List<Document>) augmented.context().get(RetrievalAugmentationAdvisor.DOCUMENT_CONTEXT);
+		assertThat(documents).isNotEmpty();
+		assertThat(documents).allSatisfy(document ->
+			assertThat((List<String>) document.getMetadata().get("users")).containsExactly(username));
+		assertThat(augmented.prompt().getUserMessage().getText())
+			.contains("notes of " + username + ".")
+			.doesNotContainPattern("notes of (?!" + username + "\\.)user-\\d+\\.");
+	}
+	
+	/**
+	 * Returns documents of the user named in the {@code users} filter, after a short random
+	 * delay so that searches of different users overlap.
+	 */
+	private static final class UserFilteringVectorStore implements VectorStore {
+		
+		private final AtomicInteger searches = new AtomicInteger();
+		
+		@Override
+		public List<Document> similaritySearch(SearchRequest request) {
+			searches.incrementAndGet();
+			String username = filteredUser(request.getFilterExpression());
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return List.of(
+				new Document("First page of the notes of " + username + ".", Map.of("users", List.of(username))),
+				new Document("Second page of the notes of " + username + ".", Map.of("users", List.of(username))));
+		}
+		
+		private static String filteredUser(Filter.Expression expression) {
+			if (expression.type() == Filter.ExpressionType.EQ
+				&& expression.left() instanceof Filter.Key key && key.key().equals("users")) {
+				return (String) ((Filter.Value) expression.right()).value();
+			}
+			throw new IllegalArgumentException("Search is not filtered by user: " + expression);
+		}
+		
+		@Override
+		public void add(List<Document> documents) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void delete(List<String> idList) {
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public void delete(Filter.Expression filterExpression) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
\ No newline at end of file
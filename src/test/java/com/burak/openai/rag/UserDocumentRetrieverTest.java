@@ -0,0 +1,37 @@
+package com.burak.openai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class UserDocumentRetrieverTest {
+	
+	@Test
+	void fusesRankingsByReciprocalRank() {
+		List<Document> vector = List.of(document("a", "vector a"), document("b", "vector b"), document("c", "vector c"));
+		List<Document> lexical = List.of(document("c", "lexical c"), document("d", "lexical d"), document("a", "lexical a"));
+		
+		List<Document> fused = UserDocumentRetriever.fuse(List.of(vector, lexical), 3);
+		
+		// a: ranks 1 and 3, c: ranks 3 and 1, then b and d at rank 2 of one ranking each
+		assertThat(fused).extracting(Document::getId).containsExactly("a", "c", "b");
+		assertThat(fused.get(0).getScore()).isCloseTo(1.0 / 61 + 1.0 / 63, within(1e-12));
+		assertThat(fused.get(1).getText()).isEqualTo("vector c");
+	}
+	
+	@Test
+	void keepsTheOrderOfASingleRanking() {
+		List<Document> vector = List.of(document("a", "a"), document("b", "b"));
+		
+		assertThat(UserDocumentRetriever.fuse(List.of(vector, List.of()), 5))
+			.extracting(Document::getId).containsExactly("a", "b");
+	}
+	
+	private static Document document(String id, String text) {
+		return Document.builder().id(id).text(text).build();
+	}
+}
\ No newline at end of file
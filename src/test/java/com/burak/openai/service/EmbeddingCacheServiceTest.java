@@ -0,0 +1,73 @@
+package com.burak.openai.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddingCacheServiceTest {
+	
+	private static final String MODEL = "text-embedding-ada-002";
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void hitsSurviveAContextRestart() {
+		ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withBean(SimpleMeterRegistry.class)
+			.withBean(EmbeddingCacheService.class)
+			.withPropertyValues("document.ingestion.embedding-cache.dir=" + directory);
+		
+		contextRunner.run(context -> context.getBean(EmbeddingCacheService.class)
+			.putAll(MODEL, List.of("first chunk", "second chunk"), List.of(new float[]{1, 2}, new float[]{3, 4})));
+		
+		contextRunner.run(context -> {
+			Map<Integer, float[]> cached = context.getBean(EmbeddingCacheService.class)
+				.getAll(MODEL, List.of("second chunk", "unknown chunk", "first chunk"));
+			
+			assertThat(cached).containsOnlyKeys(0, 2);
+			assertThat(cached.get(0)).containsExactly(3, 4);
+			assertThat(cached.get(2)).containsExactly(1, 2);
+		});
+	}
+	
+	@Test
+	void keysEntriesByModel() {
+		EmbeddingCacheService cache = new EmbeddingCacheService(new SimpleMeterRegistry(), directory, 100);
+		cache.putAll("small", List.of("chunk"), List.of(new float[]{1}));
+		
+		assertThat(cache.getAll("large", List.of("chunk"))).isEmpty();
+		assertThat(cache.getAll("small", List.of("chunk"))).containsOnlyKeys(0);
+	}
+	
+	@Test
+	void evictsTheLeastRecentlyUsedEntries() throws Exception {
+		EmbeddingCacheService cache = new EmbeddingCacheService(new SimpleMeterRegistry(), directory, 20);
+		for (int i = 0; i < 20; i++) {
+			cache.putAll(MODEL, List.of("chunk " + i), List.of(new float[]{i}));
+		}
+		// Age every entry, then use all but chunks 1 and 2 again
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.filter(Files::isRegularFile).forEach(file -> file.toFile().setLastModified(1_000));
+		}
+		cache.getAll(MODEL, IntStream.range(0, 20).filter(i -> i != 1 && i != 2).mapToObj(i -> "chunk " + i).toList());
+		
+		cache.putAll(MODEL, List.of("chunk 20"), List.of(new float[]{20}));
+		
+		Map<Integer, float[]> cached = cache.getAll(MODEL, List.of("chunk 0", "chunk 1", "chunk 2", "chunk 20"));
+		assertThat(cached).containsOnlyKeys(0, 3);
+		try (Stream<Path> files = Files.walk(directory)) {
+			assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(20 - 1);
+		}
+	}
+}
\ No newline at end of file
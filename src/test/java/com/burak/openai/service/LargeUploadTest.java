@@ -0,0 +1,92 @@
+package com.burak.openai.service;
+
+import com.burak.openai.controller.DocumentController;
+import com.burak.openai.entity.IngestionJob;
+import com.burak.openai.rag.ChunkEmbeddingStage;
+import com.burak.openai.rag.DocumentTextExtractor;
+import com.burak.openai.rag.DocumentTombstoneRegistry;
+import com.burak.openai.rag.ParallelPdfExtractor;
+import com.burak.openai.rag.QdrantChunkWriter;
+import com.burak.openai.rag.RetrievalResultCache;
+import com.burak.openai.rag.TextCleanupTransformer;
+import com.burak.openai.rag.TextSplitterSelector;
+import com.burak.openai.repository.DocumentChunkRepository;
+import com.burak.openai.repository.UserDocumentRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Uploads a file larger than the heap through {@link DocumentController}. Runs in its own
+ * surefire execution with a small heap, see the {@code small-heap} tag in the pom.
+ */
+@Tag("small-heap")
+class LargeUploadTest {
+	
+	@TempDir
+	Path directory;
+	
+	@Test
+	void uploadLargerThanHeapIsStagedAndStoredWithoutBufferingIt() throws Exception {
+		long maxHeap = Runtime.getRuntime().maxMemory();
+		// Don't write gigabytes when run with a large default heap
+		assumeTrue(maxHeap <= 1024L * 1024 * 1024, "test needs a small heap, see the small-heap surefire execution");
+		long size = maxHeap * 2;
+		
+		UserDocumentRepository userDocumentRepository = mock(UserDocumentRepository.class);
+		IngestionJobService ingestionJobService = mock(IngestionJobService.class);
+		FairIngestionScheduler ingestionScheduler = mock(FairIngestionScheduler.class);
+		ContentBlobStore contentBlobStore = new ContentBlobStore(directory.resolve("blobs"));
+		DocumentService documentService = new DocumentService(userDocumentRepository, mock(DocumentChunkRepository.class),
+			ingestionJobService, ingestionScheduler, mock(ChunkEmbeddingStage.class), mock(QdrantChunkWriter.class),
+			new UploadStagingService(directory.resolve("staging")), contentBlobStore,
+			mock(DocumentTombstoneRegistry.class), mock(RetrievalResultCache.class), mock(ParallelPdfExtractor.class),
+			mock(DocumentTextExtractor.class), mock(TextSplitterSelector.class), TextCleanupTransformer.builder().build());
+		when(ingestionJobService.createJob(eq("alice"), anyString(), eq("large.bin"), anyString()))
+			.thenAnswer(invocation -> IngestionJob.builder()
+				.jobId("job-1")
+				.documentId(invocation.getArgument(1))
+				.username("alice")
+				.status("QUEUED")
+				.build());
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new DocumentController(documentService, ingestionJobService,
+			mock(ResumableUploadService.class), mock(ArchiveUploadService.class))).build();
+		
+		// The part streams its content and refuses to hand it over as a byte array
+		mockMvc.perform(multipart("/api/documents/upload")
+				.with(request -> {
+					((MockMultipartHttpServletRequest) request)
+						.addFile(new UploadStagingServiceTest.GeneratedMultipartFile(size));
+					return request;
+				})
+				.header("username", "alice"))
+			.andExpect(status().isAccepted())
+			.andExpect(jsonPath("$.jobId").value("job-1"))
+			.andExpect(jsonPath("$.filename").value("large.bin"));
+		
+		String contentHash = UploadStagingServiceTest.expectedHash(size);
+		assertThat(Files.size(contentBlobStore.path(contentHash))).isEqualTo(size);
+		try (var staged = Files.list(directory.resolve("staging"))) {
+			assertThat(staged).isEmpty();
+		}
+		verify(ingestionScheduler).submit(eq("alice"), any(Runnable.class));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.burak.openai.service;
+
+import com.burak.openai.rag.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadStagingServiceTest {
+	
+	@TempDir
+	Path stagingDirectory;
+	
+	@Test
+	void stagedResourceKeepsOriginalFilename() throws IOException {
+		UploadStagingService stagingService = new UploadStagingService(stagingDirectory);
+		UploadStagingService.StagedUpload staged = stagingService.stage(new GeneratedMultipartFile(1024), "small-upload");
+		
+		var resource = stagingService.asResource(staged.path(), "notes.pdf");
+		
+		assertThat(resource.getFilename()).isEqualTo("notes.pdf");
+		assertThat(resource.contentLength()).isEqualTo(1024);
+	}
+	
+	static String expectedHash(long size) throws IOException {
+		MessageDigest digest = ContentHash.newDigest();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = new GeneratedInputStream(size)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return ContentHash.toHex(digest.digest());
+	}
+	
+	/**
+	 * Produces a deterministic byte pattern of the given length without allocating it.
+	 */
+	private static class GeneratedInputStream extends InputStream {
+		
+		private final long size;
+		private long position;
+		
+		GeneratedInputStream(long size) {
+			this.size = size;
+		}
+		
+		@Override
+		public int read() {
+			if (position >= size) {
+				return -1;
+			}
+			return (int) (position++ * 31 % 251);
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (position >= size) {
+				return -1;
+			}
+			int count = (int) Math.min(length, size - position);
+			for (int i = 0; i < count; i++) {
+				buffer[offset + i] = (byte) (position++ * 31 % 251);
+			}
+			return count;
+		}
+	}
+	
+	record GeneratedMultipartFile(long size) implements MultipartFile {
+		
+		@Override
+		public String getName() {
+			return "file";
+		}
+		
+		@Override
+		public String getOriginalFilename() {
+			return "large.bin";
+		}
+		
+		@Override
+		public String getContentType() {
+			return "application/octet-stream";
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		
+		@Override
+		public long getSize() {
+			return size;
+		}
+		
+		@Override
+		public byte[] getBytes() {
+			throw new UnsupportedOperationException("upload must not be buffered on the heap");
+		}
+		
+		@Override
+		public InputStream getInputStream() {
+			return new GeneratedInputStream(size);
+		}
+		
+		@Override
+		public void transferTo(File dest) throws IOException {
+			transferTo(dest.toPath());
+		}
+	}
+}
\ No newline at end of file